@@ -0,0 +1,35 @@
+package io.github.hasanjahidul.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suites with the GC profiler attached, so
+ * gc.alloc.rate.norm (bytes per operation, i.e. per record for the parser
+ * suites) is reported next to throughput.
+ * Usage: java -jar target/benchmarks.jar [include-regex]
+ * For full JMH options use: java -cp target/benchmarks.jar org.openjdk.jmh.Main -prof gc ...
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // Utility class
+    }
+
+    /**
+     * Entry point
+     *
+     * @param args Optional benchmark include pattern
+     * @throws RunnerException if JMH fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "io.github.hasanjahidul.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
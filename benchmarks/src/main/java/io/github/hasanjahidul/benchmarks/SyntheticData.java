@@ -0,0 +1,79 @@
+package io.github.hasanjahidul.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic device payloads in the layout the SDK parsers receive
+ * (after the transfer prefix has been stripped)
+ */
+public final class SyntheticData {
+
+    /** Size of one attendance record */
+    public static final int ATTENDANCE_RECORD_SIZE = 40;
+    /** Size of one user record */
+    public static final int USER_RECORD_SIZE = 72;
+
+    private SyntheticData() {
+        // Utility class
+    }
+
+    /**
+     * Build an attendance payload with punches spread over a few hundred employees
+     *
+     * @param records Number of records
+     * @return Raw attendance bytes
+     */
+    public static byte[] attendance(int records) {
+        Random random = new Random(42);
+        byte[] data = new byte[records * ATTENDANCE_RECORD_SIZE];
+        // 2024-01-01 00:00:00 in ZKTeco encoding
+        int baseTime = (24 * 12 * 31) * (24 * 60 * 60);
+        for (int i = 0; i < records; i++) {
+            int offset = i * ATTENDANCE_RECORD_SIZE;
+            int employee = random.nextInt(300) + 1;
+            putShort(data, offset + 2, employee);
+            putString(data, offset + 4, String.valueOf(1000 + employee), 9);
+            data[offset + 28] = 1;
+            putInt(data, offset + 29, baseTime + i * 37);
+            data[offset + 33] = (byte) (i & 1);
+        }
+        return data;
+    }
+
+    /**
+     * Build a user table payload
+     *
+     * @param users Number of users
+     * @return Raw user bytes
+     */
+    public static byte[] users(int users) {
+        byte[] data = new byte[users * USER_RECORD_SIZE];
+        for (int i = 0; i < users; i++) {
+            int offset = i * USER_RECORD_SIZE;
+            putShort(data, offset + 1, i + 1);
+            data[offset + 3] = 0;
+            putString(data, offset + 4, "1234", 8);
+            putString(data, offset + 12, "Employee " + (i + 1), 24);
+            putInt(data, offset + 36, 100000 + i);
+            putString(data, offset + 49, String.valueOf(1000 + i), 9);
+        }
+        return data;
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            data[offset + i] = (byte) (value >> (i * 8));
+        }
+    }
+
+    private static void putString(byte[] data, int offset, String value, int width) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, data, offset, Math.min(bytes.length, width));
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.benchmarks.SyntheticData;
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.UserInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of the attendance (40-byte) and user (72-byte) parsers.
+ * Scores and gc.alloc.rate.norm are normalised per record through
+ * {@link OperationsPerInvocation}.
+ * Lives in the service package to reach the package-private parsers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RecordParserBenchmark {
+
+    private static final int ATTENDANCE_RECORDS = 100_000;
+    private static final int USERS = 10_000;
+
+    private byte[] attendance;
+    private byte[] users;
+
+    @Setup
+    public void setUp() {
+        attendance = SyntheticData.attendance(ATTENDANCE_RECORDS);
+        users = SyntheticData.users(USERS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ATTENDANCE_RECORDS)
+    public List<AttendanceRecord> parseAttendance() {
+        return ZKTecoDeviceService.parseAttendanceData(attendance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public List<UserInfo> parseUsers() {
+        return ZKTecoDeviceService.parseUserData(users);
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.hasanjahidul.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the packet codec in {@link PacketUtil}.
+ * Lives in the util package to reach the package-private checksum routine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PacketCodecBenchmark {
+
+    /** Payload size: empty command, option string, full UDP data chunk */
+    @Param({"0", "16", "1024"})
+    public int payloadSize;
+
+    private byte[] payload;
+    private byte[] packet;
+
+    @Setup
+    public void setUp() {
+        payload = payloadSize == 0 ? null : new byte[payloadSize];
+        if (payload != null) {
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) (i * 31);
+            }
+        }
+        packet = PacketUtil.createPacket(1501, 1234, 42, payload);
+    }
+
+    @Benchmark
+    public byte[] createPacket() {
+        return PacketUtil.createPacket(1501, 1234, 42, payload);
+    }
+
+    @Benchmark
+    public int calculateChecksum() {
+        return PacketUtil.calculateChecksum(packet);
+    }
+
+    @Benchmark
+    public int[] parseHeader() {
+        return PacketUtil.parseHeader(packet);
+    }
+
+    @Benchmark
+    public byte[] extractData() {
+        return PacketUtil.extractData(packet);
+    }
+}
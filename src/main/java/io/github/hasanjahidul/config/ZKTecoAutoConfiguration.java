@@ -1,12 +1,23 @@
 package io.github.hasanjahidul.config;
 
+import io.github.hasanjahidul.service.AttendanceSink;
+import io.github.hasanjahidul.service.DeviceOptionsCache;
+import io.github.hasanjahidul.service.ZKTecoDevicePoller;
 import io.github.hasanjahidul.service.ZKTecoDeviceService;
+import io.github.hasanjahidul.service.ZKTecoFleetService;
+import io.github.hasanjahidul.service.ZKTecoSessionPool;
+import io.github.hasanjahidul.store.InMemoryWatermarkStore;
+import io.github.hasanjahidul.store.WatermarkStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -22,21 +33,37 @@ import org.springframework.context.annotation.Configuration;
 public class ZKTecoAutoConfiguration {
 
     /**
-     * Creates and configures ZKTecoDeviceService bean
+     * Creates the device options cache shared by all services
      *
      * @param properties ZKTeco configuration properties
+     * @return DeviceOptionsCache instance
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public DeviceOptionsCache zkTecoDeviceOptionsCache(ZKTecoProperties properties) {
+        return new DeviceOptionsCache(properties.getOptionsCacheTtl());
+    }
+
+    /**
+     * Creates and configures ZKTecoDeviceService bean
+     *
+     * @param properties   ZKTeco configuration properties
+     * @param optionsCache Device options cache
      * @return configured ZKTecoDeviceService instance
      */
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnProperty(name = "zkteco.ip-address")
-    public ZKTecoDeviceService zkTecoDeviceService(ZKTecoProperties properties) {
-        log.info("Initializing ZKTeco Device Service for IP: {}", properties.getIpAddress());
+    public ZKTecoDeviceService zkTecoDeviceService(ZKTecoProperties properties, DeviceOptionsCache optionsCache) {
+        log.info("Initializing ZKTeco Device Service for IP: {} over {}", properties.getIpAddress(), properties.getTransport());
 
         ZKTecoDeviceService service = new ZKTecoDeviceService(
                 properties.getIpAddress(),
-                properties.getPort()
+                properties.getPort(),
+                properties.getTransport()
         );
+        configure(service, properties);
+        service.setOptionsCache(optionsCache);
 
         if (properties.isAutoConnect()) {
             try {
@@ -53,4 +80,132 @@ public class ZKTecoAutoConfiguration {
 
         return service;
     }
+
+    /**
+     * Creates the session pool that keeps one connection per device alive,
+     * when devices are listed under zkteco.devices or zkteco.pool.enabled is
+     * true; a single-device setup gets no pool, keep-alive thread or fleet
+     *
+     * @param properties   ZKTeco configuration properties
+     * @param optionsCache Device options cache
+     * @return configured ZKTecoSessionPool instance
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(PoolWantedCondition.class)
+    public ZKTecoSessionPool zkTecoSessionPool(ZKTecoProperties properties, DeviceOptionsCache optionsCache) {
+        ZKTecoSessionPool pool = new ZKTecoSessionPool(
+                properties.getPool().getKeepAliveInterval(),
+                properties.getPool().getIdleTimeout(),
+                properties.getPool().getEvictionTimeout()
+        );
+        pool.setConfigurer((endpoint, service) -> {
+            configure(service, properties);
+            service.setOptionsCache(optionsCache);
+            if (endpoint.getTimeout() != null) {
+                service.setTimeouts(Math.min(properties.getMinTimeout(), endpoint.getTimeout()),
+                        properties.getInitialTimeout(), endpoint.getTimeout());
+            }
+            if (endpoint.getZoneId() != null) {
+                service.setZoneId(endpoint.getZoneId());
+            }
+        });
+        return pool;
+    }
+
+    /**
+     * Creates the fleet service that collects from many devices concurrently
+     *
+     * @param pool       Session pool
+     * @param properties ZKTeco configuration properties
+     * @return configured ZKTecoFleetService instance
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(ZKTecoSessionPool.class)
+    public ZKTecoFleetService zkTecoFleetService(ZKTecoSessionPool pool, ZKTecoProperties properties) {
+        ZKTecoFleetService fleet = new ZKTecoFleetService(pool, properties.getFleet().getConcurrency());
+        fleet.setDeviceTimeout(properties.getFleet().getDeviceTimeout());
+        fleet.setPartialResults(properties.getFleet().isPartialResults());
+        return fleet;
+    }
+
+    /**
+     * Creates the default in-memory watermark store used by the poller;
+     * define a {@link io.github.hasanjahidul.store.FileWatermarkStore} bean to keep watermarks across restarts
+     *
+     * @return WatermarkStore instance
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public WatermarkStore zkTecoWatermarkStore() {
+        return new InMemoryWatermarkStore();
+    }
+
+    /**
+     * Creates the poller for the devices listed under zkteco.devices
+     *
+     * @param pool       Session pool
+     * @param store      Watermark store
+     * @param sink       Receives collected records
+     * @param properties ZKTeco configuration properties
+     * @return started ZKTecoDevicePoller instance
+     */
+    @Bean(initMethod = "start")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean({ZKTecoSessionPool.class, AttendanceSink.class})
+    @ConditionalOnProperty(name = "zkteco.poller.enabled", havingValue = "true", matchIfMissing = true)
+    public ZKTecoDevicePoller zkTecoDevicePoller(ZKTecoSessionPool pool, WatermarkStore store,
+                                                 AttendanceSink sink, ZKTecoProperties properties) {
+        ZKTecoDevicePoller poller = new ZKTecoDevicePoller(pool, store, sink,
+                properties.getPoller().getThreads(), properties.getPoller().getMaxJitter());
+        for (ZKTecoProperties.Device device : properties.getDevices()) {
+            poller.addDevice(device.toEndpoint(), device.getPollInterval());
+        }
+        return poller;
+    }
+
+    /**
+     * Matches when the pool is enabled explicitly, or devices are listed and the pool is not disabled
+     */
+    static class PoolWantedCondition extends AllNestedConditions {
+
+        PoolWantedCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "zkteco.pool.enabled", havingValue = "true", matchIfMissing = true)
+        static class NotDisabled {
+        }
+
+        @Conditional(PoolNeededCondition.class)
+        static class Needed {
+        }
+    }
+
+    static class PoolNeededCondition extends AnyNestedCondition {
+
+        PoolNeededCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "zkteco.pool.enabled", havingValue = "true")
+        static class Enabled {
+        }
+
+        @ConditionalOnProperty(name = "zkteco.devices[0].ip-address")
+        static class DevicesListed {
+        }
+    }
+
+    private static void configure(ZKTecoDeviceService service, ZKTecoProperties properties) {
+        service.setTimeouts(properties.getMinTimeout(), properties.getInitialTimeout(), properties.getTimeout());
+        service.setBufferedReads(properties.isBufferedReads());
+        service.setBufferedReadOptions(properties.getReadChunkSize(), properties.getReadWindow());
+        service.setParallelParseThreshold(properties.getParallelParseThreshold());
+        service.setSkipUnchangedDownloads(properties.isSkipUnchangedDownloads());
+        if (properties.getZoneId() != null) {
+            service.setZoneId(properties.getZoneId());
+        }
+    }
 }
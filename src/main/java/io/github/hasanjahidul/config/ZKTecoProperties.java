@@ -1,8 +1,14 @@
 package io.github.hasanjahidul.config;
 
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.protocol.TransportType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration properties for ZKTeco device.
  * Constructor is generated by Lombok's @Data annotation.
@@ -22,12 +28,216 @@ public class ZKTecoProperties {
     private int port = 4370;
 
     /**
-     * Connection timeout in milliseconds
+     * Upper bound for command and packet timeouts in milliseconds.
+     * Actual timeouts follow the measured round-trip time of the device.
      */
     private int timeout = 60000;
 
+    /**
+     * Lower bound for command and packet timeouts in milliseconds
+     */
+    private int minTimeout = 500;
+
+    /**
+     * Timeout before the first round-trip time sample in milliseconds
+     */
+    private int initialTimeout = 1000;
+
+    /**
+     * Transport: UDP (default) or TCP with 0x5050827d framing
+     */
+    private TransportType transport = TransportType.UDP;
+
+    /**
+     * Zone the device clock runs in, used to turn device timestamps into instants (default: system zone)
+     */
+    private ZoneId zoneId;
+
+    /**
+     * Pull attendance and user data in pipelined chunks (CMD_PREPARE_BUFFER / CMD_READ_BUFFER)
+     */
+    private boolean bufferedReads = false;
+
+    /**
+     * Bytes per buffered read chunk (0: 16 KB over UDP, 64 KB over TCP)
+     */
+    private int readChunkSize = 0;
+
+    /**
+     * Number of buffered read chunks kept in flight
+     */
+    private int readWindow = 4;
+
+    /**
+     * Transfer size in bytes from which attendance and user downloads are decoded in parallel
+     * (0: always decode as packets arrive)
+     */
+    private int parallelParseThreshold = 1 << 20;
+
+    /**
+     * Time in milliseconds that static device options (serial number, versions, name, ...) are cached
+     * (0: read them on every call)
+     */
+    private long optionsCacheTtl = 300_000;
+
+    /**
+     * Check record counts (CMD_GET_FREE_SIZES) first and skip attendance and user downloads whose count
+     * has not changed since the last one
+     */
+    private boolean skipUnchangedDownloads = false;
+
     /**
      * Auto-connect on startup
      */
     private boolean autoConnect = false;
+
+    /**
+     * Session pool settings
+     */
+    private Pool pool = new Pool();
+
+    /**
+     * Fleet-wide collection settings
+     */
+    private Fleet fleet = new Fleet();
+
+    /**
+     * Devices polled by the built-in poller
+     */
+    private List<Device> devices = new ArrayList<>();
+
+    /**
+     * Poller settings
+     */
+    private Poller poller = new Poller();
+
+    /**
+     * Settings for the shared {@link io.github.hasanjahidul.service.ZKTecoSessionPool}
+     */
+    @Data
+    public static class Pool {
+
+        /**
+         * Create the session pool bean: true always, false never; unset creates it
+         * only when devices are listed under zkteco.devices
+         */
+        private Boolean enabled;
+
+        /**
+         * Interval between keep-alive probes of idle sessions in milliseconds (0: no probes)
+         */
+        private long keepAliveInterval = 30000;
+
+        /**
+         * Close sessions unused for this long in milliseconds (0: keep forever)
+         */
+        private long idleTimeout = 600000;
+
+        /**
+         * Forget devices whose session has stayed closed this long in milliseconds
+         */
+        private long evictionTimeout = 3600000;
+    }
+
+    /**
+     * Settings for {@link io.github.hasanjahidul.service.ZKTecoFleetService}
+     */
+    @Data
+    public static class Fleet {
+
+        /**
+         * Maximum number of devices worked on at once
+         */
+        private int concurrency = 16;
+
+        /**
+         * Per-device deadline in milliseconds
+         */
+        private long deviceTimeout = 120000;
+
+        /**
+         * Return data received before the deadline as a partial result
+         */
+        private boolean partialResults = true;
+    }
+
+    /**
+     * One device polled by {@link io.github.hasanjahidul.service.ZKTecoDevicePoller}
+     */
+    @Data
+    public static class Device {
+
+        /**
+         * Label used in logs and results (default: the address)
+         */
+        private String name;
+
+        /**
+         * Device IP address
+         */
+        private String ipAddress;
+
+        /**
+         * Device port
+         */
+        private int port = 4370;
+
+        /**
+         * Transport
+         */
+        private TransportType transport = TransportType.UDP;
+
+        /**
+         * Upper bound for command timeouts in milliseconds (default: zkteco.timeout)
+         */
+        private Integer timeout;
+
+        /**
+         * Zone the device clock runs in (default: zkteco.zone-id)
+         */
+        private ZoneId zoneId;
+
+        /**
+         * Time between polls in milliseconds
+         */
+        private long pollInterval = 60000;
+
+        /**
+         * Get endpoint for this device
+         *
+         * @return Device endpoint
+         */
+        public DeviceEndpoint toEndpoint() {
+            return DeviceEndpoint.builder()
+                    .name(name)
+                    .ipAddress(ipAddress)
+                    .port(port)
+                    .transport(transport)
+                    .timeout(timeout)
+                    .zoneId(zoneId)
+                    .build();
+        }
+    }
+
+    /**
+     * Settings for {@link io.github.hasanjahidul.service.ZKTecoDevicePoller}
+     */
+    @Data
+    public static class Poller {
+
+        /**
+         * Poll the configured devices (requires an AttendanceSink bean)
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of devices polled at once
+         */
+        private int threads = 4;
+
+        /**
+         * Maximum random delay added to poll times in milliseconds
+         */
+        private long maxJitter = 5000;
+    }
 }
@@ -0,0 +1,28 @@
+package io.github.hasanjahidul.exception;
+
+/**
+ * Exception for failures of the link to the device: timeouts, socket
+ * errors and use of a session that is not connected. The device may not
+ * have seen the command, and the session should not be reused.
+ */
+public class ZKTecoConnectionException extends ZKTecoException {
+
+    /**
+     * Constructs a new connection exception with the specified detail message
+     *
+     * @param message the detail message
+     */
+    public ZKTecoConnectionException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new connection exception with the specified detail message and cause
+     *
+     * @param message the detail message
+     * @param cause   the cause
+     */
+    public ZKTecoConnectionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,395 @@
+package io.github.hasanjahidul.model;
+
+import io.github.hasanjahidul.util.TimeCodec;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, column-oriented set of attendance records for large logs.
+ * Each record costs a few bytes in parallel primitive arrays (uid, encoded
+ * device timestamp, state, type and an index into a table of distinct user
+ * IDs) instead of an {@link AttendanceRecord} object graph. Records are read
+ * through index getters or a reusable {@link Cursor}, and converted to
+ * {@link AttendanceRecord} only when asked for.
+ * Not thread-safe while records are being added.
+ */
+public final class AttendanceBatch {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final TimeCodec timeCodec;
+    private int size;
+    private int[] uids;
+    private int[] times;
+    private byte[] states;
+    private byte[] types;
+    private int[] userIdIndexes;
+    private final List<String> userIds = new ArrayList<>();
+    private final Map<String, Integer> userIdLookup = new HashMap<>();
+
+    /**
+     * Create empty batch for a device in the system zone
+     */
+    public AttendanceBatch() {
+        this(DEFAULT_CAPACITY, TimeCodec.systemDefault());
+    }
+
+    /**
+     * Create empty batch sized for an expected number of records
+     *
+     * @param capacity  Expected number of records
+     * @param timeCodec Codec for the zone of the device the records come from
+     */
+    public AttendanceBatch(int capacity, TimeCodec timeCodec) {
+        this.timeCodec = timeCodec;
+        int initial = Math.max(1, capacity);
+        uids = new int[initial];
+        times = new int[initial];
+        states = new byte[initial];
+        types = new byte[initial];
+        userIdIndexes = new int[initial];
+    }
+
+    /**
+     * Append a record
+     *
+     * @param uid         Record serial number
+     * @param userId      User ID
+     * @param encodedTime Timestamp in the device encoding
+     * @param state       Authentication state
+     * @param type        Attendance type
+     */
+    public void add(int uid, String userId, int encodedTime, int state, int type) {
+        add(uid, userIdIndex(userId), encodedTime, state, type);
+    }
+
+    /**
+     * Append a record whose user ID is already in the table
+     *
+     * @param uid         Record serial number
+     * @param userIdIndex Index returned by {@link #userIdIndex(String)}
+     * @param encodedTime Timestamp in the device encoding
+     * @param state       Authentication state
+     * @param type        Attendance type
+     */
+    public void add(int uid, int userIdIndex, int encodedTime, int state, int type) {
+        if (size == uids.length) {
+            grow();
+        }
+        uids[size] = uid;
+        userIdIndexes[size] = userIdIndex;
+        times[size] = encodedTime;
+        states[size] = (byte) state;
+        types[size] = (byte) type;
+        size++;
+    }
+
+    /**
+     * Get the table index of a user ID, adding it if new
+     *
+     * @param userId User ID
+     * @return Index into {@link #getUserIds()}
+     */
+    public int userIdIndex(String userId) {
+        Integer index = userIdLookup.get(userId);
+        if (index == null) {
+            index = userIds.size();
+            userIds.add(userId);
+            userIdLookup.put(userId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get number of records
+     *
+     * @return Record count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the batch holds no records
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get record serial number
+     *
+     * @param index Record index
+     * @return Uid
+     */
+    public int getUid(int index) {
+        return uids[checkIndex(index)];
+    }
+
+    /**
+     * Get user ID
+     *
+     * @param index Record index
+     * @return Shared user ID instance
+     */
+    public String getUserId(int index) {
+        return userIds.get(userIdIndexes[checkIndex(index)]);
+    }
+
+    /**
+     * Get user ID table index
+     *
+     * @param index Record index
+     * @return Index into {@link #getUserIds()}
+     */
+    public int getUserIdIndex(int index) {
+        return userIdIndexes[checkIndex(index)];
+    }
+
+    /**
+     * Get timestamp in the device encoding
+     *
+     * @param index Record index
+     * @return Encoded timestamp
+     */
+    public int getEncodedTime(int index) {
+        return times[checkIndex(index)];
+    }
+
+    /**
+     * Get timestamp as device local time
+     *
+     * @param index Record index
+     * @return Decoded timestamp, or null if the device stored an invalid one
+     */
+    public LocalDateTime getTimestamp(int index) {
+        return TimeCodec.toLocalDateTime(times[checkIndex(index)]);
+    }
+
+    /**
+     * Get timestamp as epoch seconds, using the device zone
+     *
+     * @param index Record index
+     * @return Epoch seconds, or {@link TimeCodec#INVALID}
+     */
+    public long getEpochSecond(int index) {
+        return timeCodec.toEpochSecond(times[checkIndex(index)]);
+    }
+
+    /**
+     * Get timestamp as an instant, using the device zone
+     *
+     * @param index Record index
+     * @return Instant, or null if the device stored an invalid timestamp
+     */
+    public Instant getInstant(int index) {
+        return timeCodec.toInstant(times[checkIndex(index)]);
+    }
+
+    /**
+     * Get codec for the zone of the device the records come from
+     *
+     * @return Time codec
+     */
+    public TimeCodec getTimeCodec() {
+        return timeCodec;
+    }
+
+    /**
+     * Get authentication state
+     *
+     * @param index Record index
+     * @return State
+     */
+    public int getState(int index) {
+        return states[checkIndex(index)] & 0xFF;
+    }
+
+    /**
+     * Get attendance type
+     *
+     * @param index Record index
+     * @return Type
+     */
+    public int getType(int index) {
+        return types[checkIndex(index)] & 0xFF;
+    }
+
+    /**
+     * Get the distinct user IDs seen in this batch
+     *
+     * @return User IDs in order of first appearance
+     */
+    public List<String> getUserIds() {
+        return Collections.unmodifiableList(userIds);
+    }
+
+    /**
+     * Convert one record to an object
+     *
+     * @param index Record index
+     * @return Attendance record
+     */
+    public AttendanceRecord toRecord(int index) {
+        return AttendanceRecord.builder()
+                .uid((long) getUid(index))
+                .userId(getUserId(index))
+                .state(getState(index))
+                .timestamp(getTimestamp(index))
+                .type(getType(index))
+                .build();
+    }
+
+    /**
+     * Convert all records to objects
+     *
+     * @return Attendance records
+     */
+    public List<AttendanceRecord> toRecords() {
+        List<AttendanceRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(toRecord(i));
+        }
+        return records;
+    }
+
+    /**
+     * Get a cursor positioned before the first record
+     *
+     * @return New cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = uids.length + (uids.length >> 1) + 1;
+        uids = Arrays.copyOf(uids, capacity);
+        times = Arrays.copyOf(times, capacity);
+        states = Arrays.copyOf(states, capacity);
+        types = Arrays.copyOf(types, capacity);
+        userIdIndexes = Arrays.copyOf(userIdIndexes, capacity);
+    }
+
+    /**
+     * Reusable view that walks the records of the batch without creating
+     * an object per record
+     */
+    public final class Cursor {
+
+        private int index = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Move to the next record
+         *
+         * @return false when there are no more records
+         */
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        /**
+         * Get index of the current record
+         *
+         * @return Record index
+         */
+        public int index() {
+            return index;
+        }
+
+        /**
+         * Get record serial number
+         *
+         * @return Uid
+         */
+        public int getUid() {
+            return AttendanceBatch.this.getUid(index);
+        }
+
+        /**
+         * Get user ID
+         *
+         * @return Shared user ID instance
+         */
+        public String getUserId() {
+            return AttendanceBatch.this.getUserId(index);
+        }
+
+        /**
+         * Get timestamp in the device encoding
+         *
+         * @return Encoded timestamp
+         */
+        public int getEncodedTime() {
+            return AttendanceBatch.this.getEncodedTime(index);
+        }
+
+        /**
+         * Get timestamp as device local time
+         *
+         * @return Decoded timestamp, or null if invalid
+         */
+        public LocalDateTime getTimestamp() {
+            return AttendanceBatch.this.getTimestamp(index);
+        }
+
+        /**
+         * Get timestamp as epoch seconds
+         *
+         * @return Epoch seconds, or {@link TimeCodec#INVALID}
+         */
+        public long getEpochSecond() {
+            return AttendanceBatch.this.getEpochSecond(index);
+        }
+
+        /**
+         * Get authentication state
+         *
+         * @return State
+         */
+        public int getState() {
+            return AttendanceBatch.this.getState(index);
+        }
+
+        /**
+         * Get attendance type
+         *
+         * @return Type
+         */
+        public int getType() {
+            return AttendanceBatch.this.getType(index);
+        }
+
+        /**
+         * Convert the current record to an object
+         *
+         * @return Attendance record
+         */
+        public AttendanceRecord toRecord() {
+            return AttendanceBatch.this.toRecord(index);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of an incremental attendance sync.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceSyncResult {
+
+    /**
+     * Device serial number
+     */
+    private String serialNumber;
+
+    /**
+     * Number of records delivered by this sync
+     */
+    private long newRecords;
+
+    /**
+     * Number of records in the device log
+     */
+    private long totalRecords;
+
+    /**
+     * True if the log was cleared or rotated and every record was delivered again
+     */
+    private boolean fullResync;
+}
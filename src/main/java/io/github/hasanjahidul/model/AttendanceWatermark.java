@@ -0,0 +1,40 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position of the last incremental attendance sync for one device.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceWatermark {
+
+    /**
+     * Device serial number (~SerialNumber)
+     */
+    private String serialNumber;
+
+    /**
+     * Number of records already delivered
+     */
+    private long recordCount;
+
+    /**
+     * CRC32C of the raw bytes of the delivered records
+     */
+    private long prefixHash;
+
+    /**
+     * Time of the sync that produced this watermark
+     */
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,80 @@
+package io.github.hasanjahidul.model;
+
+import io.github.hasanjahidul.protocol.TransportType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZoneId;
+
+/**
+ * Network address of a device.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceEndpoint {
+
+    /**
+     * Optional label used in logs and results
+     */
+    private String name;
+
+    /**
+     * Device IP address or host name
+     */
+    private String ipAddress;
+
+    /**
+     * Device port
+     */
+    @Builder.Default
+    private int port = 4370;
+
+    /**
+     * Transport
+     */
+    @Builder.Default
+    private TransportType transport = TransportType.UDP;
+
+    /**
+     * Upper bound for command timeouts in milliseconds, null for the default
+     */
+    private Integer timeout;
+
+    /**
+     * Zone the device clock runs in, null for the system zone
+     */
+    private ZoneId zoneId;
+
+    /**
+     * Create endpoint for a device on the default port over UDP
+     *
+     * @param ipAddress Device IP address
+     * @return Endpoint
+     */
+    public static DeviceEndpoint of(String ipAddress) {
+        return DeviceEndpoint.builder().ipAddress(ipAddress).build();
+    }
+
+    /**
+     * Create endpoint for a device over UDP
+     *
+     * @param ipAddress Device IP address
+     * @param port      Device port
+     * @return Endpoint
+     */
+    public static DeviceEndpoint of(String ipAddress, int port) {
+        return DeviceEndpoint.builder().ipAddress(ipAddress).port(port).build();
+    }
+
+    @Override
+    public String toString() {
+        String address = ipAddress + ":" + port + "/" + transport;
+        return name == null ? address : name + " (" + address + ")";
+    }
+}
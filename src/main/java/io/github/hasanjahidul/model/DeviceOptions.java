@@ -0,0 +1,76 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the static options of a ZKTeco device, which change only
+ * with firmware or configuration updates.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceOptions {
+
+    /**
+     * Device firmware version
+     */
+    private String version;
+
+    /**
+     * Device OS version
+     */
+    private String osVersion;
+
+    /**
+     * Device platform
+     */
+    private String platform;
+
+    /**
+     * Device serial number
+     */
+    private String serialNumber;
+
+    /**
+     * Device name
+     */
+    private String deviceName;
+
+    /**
+     * Work code setting
+     */
+    private String workCode;
+
+    /**
+     * SSR (Self-Service Recorder) setting
+     */
+    private String ssr;
+
+    /**
+     * PIN width setting
+     */
+    private String pinWidth;
+
+    /**
+     * Face function status
+     */
+    private String faceFunctionOn;
+
+    /**
+     * Fingerprint algorithm version
+     */
+    private String firmwareVersion;
+
+    /**
+     * When the options were read from the device
+     */
+    private Instant fetchedAt;
+}
@@ -0,0 +1,57 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of an operation on one device of a fleet.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ *
+ * @param <T> Result type
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceResult<T> {
+
+    /**
+     * Outcome status
+     */
+    public enum Status {
+        /** Operation completed */
+        SUCCESS,
+        /** Deadline passed; value holds the data received until then */
+        PARTIAL,
+        /** Operation failed or timed out without usable data */
+        FAILED
+    }
+
+    /**
+     * Device the operation ran on
+     */
+    private DeviceEndpoint endpoint;
+
+    /**
+     * Outcome status
+     */
+    private Status status;
+
+    /**
+     * Result value, null if the operation failed
+     */
+    private T value;
+
+    /**
+     * Error message if the operation did not succeed
+     */
+    private String error;
+
+    /**
+     * Time spent on this device in milliseconds
+     */
+    private long durationMillis;
+}
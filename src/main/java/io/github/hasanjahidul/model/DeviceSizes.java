@@ -0,0 +1,63 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Record counts and capacities reported by CMD_GET_FREE_SIZES.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceSizes {
+
+    /**
+     * Number of users
+     */
+    private int userCount;
+
+    /**
+     * Number of fingerprint templates
+     */
+    private int fingerprintCount;
+
+    /**
+     * Number of attendance records
+     */
+    private int attendanceCount;
+
+    /**
+     * Number of cards
+     */
+    private int cardCount;
+
+    /**
+     * Maximum number of users
+     */
+    private int userCapacity;
+
+    /**
+     * Maximum number of fingerprint templates
+     */
+    private int fingerprintCapacity;
+
+    /**
+     * Maximum number of attendance records
+     */
+    private int attendanceCapacity;
+
+    /**
+     * Number of face templates, null if the device does not report faces
+     */
+    private Integer faceCount;
+
+    /**
+     * Maximum number of face templates, null if the device does not report faces
+     */
+    private Integer faceCapacity;
+}
@@ -0,0 +1,38 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fingerprint template from ZKTeco device.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FingerTemplate {
+
+    /**
+     * UID of the user the template belongs to
+     */
+    private int uid;
+
+    /**
+     * Finger index (0-9)
+     */
+    private int fingerIndex;
+
+    /**
+     * Template flag: 1 for a valid template, 3 for a duress finger
+     */
+    private int flag;
+
+    /**
+     * Raw template bytes in the device's format
+     */
+    private byte[] template;
+}
@@ -0,0 +1,64 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregated outcome of an operation run across a fleet, one result per
+ * device in the order the devices were given.
+ * Constructors are generated by Lombok's @NoArgsConstructor
+ * and @AllArgsConstructor annotations.
+ *
+ * @param <T> Result type
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetResult<T> {
+
+    /**
+     * Per-device results
+     */
+    private List<DeviceResult<T>> results = new ArrayList<>();
+
+    /**
+     * Wall-clock time of the sweep in milliseconds
+     */
+    private long durationMillis;
+
+    /**
+     * Get results with the given status
+     *
+     * @param status Status to select
+     * @return Matching results
+     */
+    public List<DeviceResult<T>> getResults(DeviceResult.Status status) {
+        return results.stream().filter(result -> result.getStatus() == status).collect(Collectors.toList());
+    }
+
+    /**
+     * Get values of successful and partial results
+     *
+     * @return Values in device order
+     */
+    public List<T> getValues() {
+        return results.stream()
+                .filter(result -> result.getStatus() != DeviceResult.Status.FAILED)
+                .map(DeviceResult::getValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Check if every device succeeded
+     *
+     * @return true if all results are SUCCESS
+     */
+    public boolean isComplete() {
+        return results.stream().allMatch(result -> result.getStatus() == DeviceResult.Status.SUCCESS);
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.hasanjahidul.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a user roster sync.
+ * Constructors are generated by Lombok's @Builder, @NoArgsConstructor,
+ * and @AllArgsConstructor annotations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSyncResult {
+
+    /**
+     * Number of users added to the device
+     */
+    private int inserted;
+
+    /**
+     * Number of device users overwritten because a field changed
+     */
+    private int updated;
+
+    /**
+     * Number of device users removed because they are not in the roster
+     */
+    private int deleted;
+
+    /**
+     * Number of users already up to date
+     */
+    private int unchanged;
+}
@@ -0,0 +1,19 @@
+package io.github.hasanjahidul.protocol;
+
+/**
+ * Receives the bytes of a data transfer as they arrive from the device.
+ * Chunks are delivered in order and the array may be reused after the call
+ * returns, so implementations must copy anything they keep.
+ */
+@FunctionalInterface
+public interface DataChunkHandler {
+
+    /**
+     * Handle the next chunk of transfer data
+     *
+     * @param data   Buffer holding the chunk
+     * @param offset Start of the chunk in the buffer
+     * @param length Number of bytes in the chunk
+     */
+    void onChunk(byte[] data, int offset, int length);
+}
@@ -0,0 +1,119 @@
+package io.github.hasanjahidul.protocol;
+
+/**
+ * Round-trip time estimator for one device (Jacobson/Karels, as in RFC 6298).
+ * Keeps a smoothed RTT and its mean deviation and derives the retransmission
+ * timeout from them, clamped between a floor and a ceiling. Until the first
+ * sample arrives the initial timeout is used. A timeout doubles the current
+ * value until the next sample, and samples from retransmitted requests must
+ * not be fed in (Karn's algorithm).
+ * Thread-safe: an async session samples on the multiplexer's I/O thread
+ * while callers read the timeout for new requests.
+ */
+public class RttEstimator {
+
+    /** Default lower bound for derived timeouts in milliseconds */
+    public static final int DEFAULT_MIN_TIMEOUT = 500;
+    /** Default timeout before the first RTT sample in milliseconds */
+    public static final int DEFAULT_INITIAL_TIMEOUT = 1000;
+    /** Default upper bound for derived timeouts in milliseconds */
+    public static final int DEFAULT_MAX_TIMEOUT = 60000;
+
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+    private static final int K = 4;
+
+    private final int minTimeout;
+    private final int maxTimeout;
+    private double smoothedRtt = -1;
+    private double rttVariance;
+    private int timeout;
+
+    /**
+     * Create estimator with default bounds
+     */
+    public RttEstimator() {
+        this(DEFAULT_MIN_TIMEOUT, DEFAULT_INITIAL_TIMEOUT, DEFAULT_MAX_TIMEOUT);
+    }
+
+    /**
+     * Create estimator
+     *
+     * @param minTimeout     Lower bound for derived timeouts in milliseconds
+     * @param initialTimeout Timeout before the first sample in milliseconds
+     * @param maxTimeout     Upper bound for all timeouts in milliseconds
+     */
+    public RttEstimator(int minTimeout, int initialTimeout, int maxTimeout) {
+        if (minTimeout <= 0 || maxTimeout < minTimeout) {
+            throw new IllegalArgumentException("Invalid timeout bounds: " + minTimeout + "-" + maxTimeout);
+        }
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.timeout = clamp(initialTimeout);
+    }
+
+    /**
+     * Record a measured round trip
+     *
+     * @param rttMillis Time from sending a request to its first reply packet
+     */
+    public synchronized void sample(long rttMillis) {
+        double rtt = Math.max(0, rttMillis);
+        if (smoothedRtt < 0) {
+            smoothedRtt = rtt;
+            rttVariance = rtt / 2;
+        } else {
+            rttVariance = (1 - BETA) * rttVariance + BETA * Math.abs(smoothedRtt - rtt);
+            smoothedRtt = (1 - ALPHA) * smoothedRtt + ALPHA * rtt;
+        }
+        timeout = clamp(Math.round(smoothedRtt + K * rttVariance));
+    }
+
+    /**
+     * Double the timeout after a request went unanswered
+     */
+    public synchronized void backoff() {
+        timeout = clamp(2L * timeout);
+    }
+
+    /**
+     * Get the timeout to wait for the next reply packet
+     *
+     * @return Timeout in milliseconds
+     */
+    public synchronized int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get the ceiling used for requests that make the device do work
+     * proportional to its data (e.g. preparing the attendance log)
+     *
+     * @return Maximum timeout in milliseconds
+     */
+    public int getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    /**
+     * Get smoothed round-trip time
+     *
+     * @return Smoothed RTT in milliseconds, or -1 before the first sample
+     */
+    public synchronized double getSmoothedRtt() {
+        return smoothedRtt;
+    }
+
+    /**
+     * Get round-trip time variation
+     *
+     * @return Mean deviation of the RTT in milliseconds
+     */
+    public synchronized double getRttVariance() {
+        return rttVariance;
+    }
+
+    private int clamp(long value) {
+        return (int) Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+}
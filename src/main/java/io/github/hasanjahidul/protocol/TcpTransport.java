@@ -0,0 +1,133 @@
+package io.github.hasanjahidul.protocol;
+
+import io.github.hasanjahidul.util.PacketUtil;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * TCP transport. Every packet is preceded by an 8-byte frame header:
+ * the magic 0x5050827d (bytes 50 50 82 7d) and the packet length as a
+ * little-endian int. Partial frames survive read timeouts, so a short
+ * timeout never desynchronises the stream.
+ */
+class TcpTransport implements ZKTecoTransport {
+
+    /** Frame header size */
+    static final int FRAME_HEADER_SIZE = 8;
+    /** Largest frame accepted from a device */
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private static final byte[] MAGIC = {0x50, 0x50, (byte) 0x82, 0x7d};
+
+    private final byte[] frameHeader = new byte[FRAME_HEADER_SIZE];
+    private byte[] buffer = new byte[4096];
+    private byte[] sendFrame = new byte[1024];
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private int headerRead;
+    private int frameLength = -1;
+    private int bodyRead;
+
+    @Override
+    public void open(InetAddress address, int port, int timeout) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(address, port), timeout);
+        socket.setSoTimeout(timeout);
+        in = new BufferedInputStream(socket.getInputStream(), 65536);
+        out = socket.getOutputStream();
+    }
+
+    @Override
+    public void send(byte[] packet, int offset, int length) throws IOException {
+        // Frame into a reused array so header and packet go out in one write
+        if (sendFrame.length < FRAME_HEADER_SIZE + length) {
+            sendFrame = new byte[Math.max(FRAME_HEADER_SIZE + length, sendFrame.length * 2)];
+        }
+        System.arraycopy(MAGIC, 0, sendFrame, 0, MAGIC.length);
+        for (int i = 0; i < 4; i++) {
+            sendFrame[4 + i] = (byte) (length >> (i * 8));
+        }
+        System.arraycopy(packet, offset, sendFrame, FRAME_HEADER_SIZE, length);
+        out.write(sendFrame, 0, FRAME_HEADER_SIZE + length);
+        out.flush();
+    }
+
+    @Override
+    public int receive() throws IOException {
+        while (frameLength < 0) {
+            int n = in.read(frameHeader, headerRead, FRAME_HEADER_SIZE - headerRead);
+            if (n < 0) {
+                throw new IOException("Connection closed by device");
+            }
+            headerRead += n;
+            if (headerRead == FRAME_HEADER_SIZE) {
+                for (int i = 0; i < MAGIC.length; i++) {
+                    if (frameHeader[i] != MAGIC[i]) {
+                        throw new IOException("Invalid TCP frame header");
+                    }
+                }
+                int length = PacketUtil.bytesToInt(frameHeader, 4, 4);
+                if (length < 0 || length > MAX_FRAME) {
+                    throw new IOException("Invalid TCP frame length: " + length);
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                frameLength = length;
+                bodyRead = 0;
+            }
+        }
+
+        while (bodyRead < frameLength) {
+            int n = in.read(buffer, bodyRead, frameLength - bodyRead);
+            if (n < 0) {
+                throw new IOException("Connection closed by device");
+            }
+            bodyRead += n;
+        }
+
+        int length = frameLength;
+        headerRead = 0;
+        frameLength = -1;
+        return length;
+    }
+
+    @Override
+    public byte[] getReceiveBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void setTimeout(int timeout) throws IOException {
+        socket.setSoTimeout(timeout);
+    }
+
+    @Override
+    public boolean isReliable() {
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket != null && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null && !socket.isClosed()) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.hasanjahidul.protocol;
+
+/**
+ * Transport used to talk to a device
+ */
+public enum TransportType {
+
+    /** UDP datagrams (default, supported by every firmware) */
+    UDP,
+
+    /** TCP stream with 0x5050827d framing, for lossy or high-latency links */
+    TCP
+}
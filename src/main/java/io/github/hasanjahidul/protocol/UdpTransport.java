@@ -0,0 +1,67 @@
+package io.github.hasanjahidul.protocol;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+/**
+ * UDP transport: one datagram per packet
+ */
+class UdpTransport implements ZKTecoTransport {
+
+    private static final int MAX_DATAGRAM = 65536;
+
+    private final byte[] buffer = new byte[MAX_DATAGRAM];
+    private final DatagramPacket receivePacket = new DatagramPacket(buffer, buffer.length);
+    private final DatagramPacket sendPacket = new DatagramPacket(new byte[0], 0);
+    private DatagramSocket socket;
+
+    @Override
+    public void open(InetAddress address, int port, int timeout) throws IOException {
+        sendPacket.setAddress(address);
+        sendPacket.setPort(port);
+        socket = new DatagramSocket();
+        socket.setSoTimeout(timeout);
+    }
+
+    @Override
+    public void send(byte[] packet, int offset, int length) throws IOException {
+        sendPacket.setData(packet, offset, length);
+        socket.send(sendPacket);
+    }
+
+    @Override
+    public int receive() throws IOException {
+        receivePacket.setLength(buffer.length);
+        socket.receive(receivePacket);
+        return receivePacket.getLength();
+    }
+
+    @Override
+    public byte[] getReceiveBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void setTimeout(int timeout) throws IOException {
+        socket.setSoTimeout(timeout);
+    }
+
+    @Override
+    public boolean isReliable() {
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket != null && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null && !socket.isClosed()) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.hasanjahidul.protocol;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.util.PacketUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking device session driven by a {@link ZKTecoMultiplexer}.
+ * Operations are queued and sent one at a time, as the device only handles a
+ * single outstanding command per session. Futures are completed on the
+ * multiplexer I/O thread, so callbacks attached to them must not block.
+ */
+@Slf4j
+public class ZKTecoAsyncSession {
+
+    private static final int USHRT_MAX = 65535;
+    private static final int MAX_PRESIZE = 1 << 20;
+
+    private final ZKTecoMultiplexer multiplexer;
+    private final InetSocketAddress address;
+    private final RttEstimator rtt;
+    private int sessionId = 0;
+    private int replyId = USHRT_MAX - 1;
+    private volatile boolean connected = false;
+    private Exchange current;
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+    ZKTecoAsyncSession(ZKTecoMultiplexer multiplexer, InetSocketAddress address, int timeout) {
+        this.multiplexer = multiplexer;
+        this.address = address;
+        this.rtt = new RttEstimator(Math.min(RttEstimator.DEFAULT_MIN_TIMEOUT, timeout),
+                RttEstimator.DEFAULT_INITIAL_TIMEOUT, timeout);
+    }
+
+    /**
+     * Connect to device
+     *
+     * @return Future completed with true if connection successful
+     */
+    public CompletableFuture<Boolean> connect() {
+        return enqueue(() -> {
+            synchronized (this) {
+                sessionId = 0;
+                replyId = USHRT_MAX - 1;
+            }
+            return start(ZKTecoCommand.CMD_CONNECT, null, false);
+        }).handle((response, e) -> {
+            if (e != null) {
+                log.error("Connection to {} failed: {}", address, e.getMessage());
+                return false;
+            }
+            return connected;
+        });
+    }
+
+    /**
+     * Disconnect from device and release the session from the multiplexer
+     *
+     * @return Future completed once the session is closed
+     */
+    public CompletableFuture<Void> disconnect() {
+        return enqueue(() -> {
+            if (!connected) {
+                return CompletableFuture.completedFuture(new byte[0]);
+            }
+            return start(ZKTecoCommand.CMD_EXIT, null, false);
+        }).handle((response, e) -> {
+            if (e != null) {
+                log.warn("Error during disconnect: {}", e.getMessage());
+            }
+            synchronized (this) {
+                connected = false;
+                sessionId = 0;
+                replyId = 0;
+            }
+            multiplexer.release(this);
+            return null;
+        });
+    }
+
+    /**
+     * Send command to device
+     *
+     * @param command Command code
+     * @param data    Data payload
+     * @return Future completed with the response packet
+     */
+    public CompletableFuture<byte[]> sendCommand(int command, byte[] data) {
+        return enqueue(() -> start(command, data, false));
+    }
+
+    /**
+     * Send a command that makes the device push a dataset (CMD_PREPARE_DATA
+     * followed by CMD_DATA packets) and collect it.
+     * The result has the same layout as {@link ZKTecoProtocol#receiveDataPackets()}.
+     *
+     * @param command Command code
+     * @param data    Data payload
+     * @return Future completed with the received data, empty if the device had nothing to send
+     */
+    public CompletableFuture<byte[]> requestData(int command, byte[] data) {
+        return enqueue(() -> start(command, data, true));
+    }
+
+    /**
+     * Check if connected to device
+     *
+     * @return true if connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Get session ID
+     *
+     * @return Session ID
+     */
+    public synchronized int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Get device address
+     *
+     * @return Device socket address
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    private synchronized CompletableFuture<byte[]> enqueue(Supplier<CompletableFuture<byte[]>> operation) {
+        CompletableFuture<byte[]> result = tail.handle((r, e) -> null).thenCompose(v -> operation.get());
+        tail = result;
+        return result;
+    }
+
+    private CompletableFuture<byte[]> start(int command, byte[] data, boolean dataTransfer) {
+        Exchange exchange;
+        byte[] packet;
+        synchronized (this) {
+            if (!connected && command != ZKTecoCommand.CMD_CONNECT) {
+                return CompletableFuture.failedFuture(new ZKTecoException("Not connected to device"));
+            }
+            packet = PacketUtil.createPacket(command, sessionId, replyId, data);
+            exchange = new Exchange(command, PacketUtil.parseHeader(packet)[3], dataTransfer);
+            exchange.sentAt = System.currentTimeMillis();
+            exchange.slow = ZKTecoProtocol.isSlowCommand(command);
+            exchange.deadline = exchange.sentAt + (exchange.slow ? rtt.getMaxTimeout() : rtt.getTimeout());
+            current = exchange;
+        }
+        try {
+            multiplexer.send(packet, address);
+        } catch (ZKTecoException e) {
+            fail(exchange, e);
+        }
+        return exchange.future;
+    }
+
+    /**
+     * Handle a packet routed to this session by the multiplexer I/O thread
+     *
+     * @param packet Received packet
+     * @param header Parsed header
+     */
+    void onPacket(byte[] packet, int[] header) {
+        Exchange exchange;
+        byte[] result = null;
+        ZKTecoException error = null;
+
+        synchronized (this) {
+            exchange = current;
+            if (exchange == null) {
+                log.debug("Dropping unsolicited packet {} from {}", header[0], address);
+                return;
+            }
+            if (exchange.command != ZKTecoCommand.CMD_CONNECT && header[2] != sessionId) {
+                log.debug("Dropping packet for session {} (expected {}) from {}", header[2], sessionId, address);
+                return;
+            }
+
+            if (exchange.totalSize >= 0) {
+                if (header[0] != ZKTecoCommand.CMD_DATA) {
+                    if (header[3] != exchange.replyId) {
+                        return;
+                    }
+                    // The device ended the transfer before all data arrived
+                    error = new ZKTecoException("Incomplete data transfer: received "
+                            + exchange.received + " of " + exchange.totalSize + " bytes");
+                } else {
+                    // Data phase: first packet keeps its header, like receiveDataPackets()
+                    int offset = exchange.first ? 0 : 8;
+                    int payload = Math.min(packet.length - 8, exchange.totalSize - exchange.received);
+                    exchange.dataStream.write(packet, offset, payload + 8 - offset);
+                    exchange.received += payload;
+                    exchange.first = false;
+                    exchange.deadline = System.currentTimeMillis() + rtt.getTimeout();
+                    if (exchange.received < exchange.totalSize) {
+                        return;
+                    }
+                    result = exchange.dataStream.toByteArray();
+                }
+            } else {
+                if (header[3] != exchange.replyId) {
+                    log.debug("Dropping stale reply {} (expected {}) from {}", header[3], exchange.replyId, address);
+                    return;
+                }
+                replyId = header[3];
+                if (!exchange.slow) {
+                    rtt.sample(System.currentTimeMillis() - exchange.sentAt);
+                }
+
+                if (header[0] == ZKTecoCommand.CMD_ACK_ERROR) {
+                    error = new ZKTecoException("Device returned error for command: " + exchange.command);
+                } else if (exchange.command == ZKTecoCommand.CMD_CONNECT) {
+                    if (header[0] == ZKTecoCommand.CMD_ACK_OK || header[0] == ZKTecoCommand.CMD_ACK_UNAUTH) {
+                        sessionId = header[2];
+                        connected = true;
+                        log.info("Connected to device at {}  (Session ID: {})", address, sessionId);
+                    } else {
+                        log.warn("Connection failed: Invalid response from device");
+                    }
+                    result = packet;
+                } else if (exchange.dataTransfer) {
+                    byte[] prepareData = PacketUtil.extractData(packet);
+                    if (header[0] == ZKTecoCommand.CMD_PREPARE_DATA && prepareData.length >= 4) {
+                        exchange.totalSize = PacketUtil.bytesToInt(prepareData, 0, 4);
+                        exchange.dataStream = new ByteArrayOutputStream(Math.min(exchange.totalSize, MAX_PRESIZE));
+                        exchange.deadline = System.currentTimeMillis() + rtt.getTimeout();
+                        log.debug("Receiving {} bytes of data in packets from {}", exchange.totalSize, address);
+                        return;
+                    }
+                    result = new byte[0];
+                } else {
+                    result = packet;
+                }
+            }
+            current = null;
+        }
+
+        if (error != null) {
+            exchange.future.completeExceptionally(error);
+        } else {
+            exchange.future.complete(result);
+        }
+    }
+
+    /**
+     * Fail the outstanding exchange if its deadline has passed
+     *
+     * @param now Current time in milliseconds
+     */
+    void checkTimeout(long now) {
+        Exchange exchange;
+        synchronized (this) {
+            exchange = current;
+            if (exchange == null || now < exchange.deadline) {
+                return;
+            }
+            rtt.backoff();
+        }
+        if (exchange.totalSize >= 0) {
+            fail(exchange, new ZKTecoException("Timeout receiving data: received "
+                    + exchange.received + "/" + exchange.totalSize + " bytes"));
+        } else {
+            fail(exchange, new ZKTecoException("Device response timeout"));
+        }
+    }
+
+    /**
+     * Fail the outstanding exchange, used when the multiplexer shuts down
+     *
+     * @param cause Failure cause
+     */
+    void abort(ZKTecoException cause) {
+        Exchange exchange;
+        synchronized (this) {
+            exchange = current;
+            connected = false;
+        }
+        if (exchange != null) {
+            fail(exchange, cause);
+        }
+    }
+
+    private void fail(Exchange exchange, ZKTecoException cause) {
+        synchronized (this) {
+            if (current == exchange) {
+                current = null;
+            }
+        }
+        exchange.future.completeExceptionally(cause);
+    }
+
+    private static final class Exchange {
+        private final int command;
+        private final int replyId;
+        private final boolean dataTransfer;
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        private long sentAt;
+        private boolean slow;
+        private long deadline;
+        private int totalSize = -1;
+        private int received;
+        private boolean first = true;
+        private ByteArrayOutputStream dataStream;
+
+        private Exchange(int command, int replyId, boolean dataTransfer) {
+            this.command = command;
+            this.replyId = replyId;
+            this.dataTransfer = dataTransfer;
+        }
+    }
+}
@@ -46,6 +46,8 @@ public class ZKTecoCommand {
     public static final int CMD_CLEAR_LCD = 67;
 
     // User management commands
+    /** Command to read a data table selected by function code (e.g. FCT_FINGERTMP) */
+    public static final int CMD_DB_RRQ = 7;
     /** Command to set/add user */
     public static final int CMD_SET_USER = 8;
     /** Command to request user template data */
@@ -60,6 +62,10 @@ public class ZKTecoCommand {
     public static final int CMD_CLEAR_DATA = 14;
     /** Command to clear admin privileges */
     public static final int CMD_CLEAR_ADMIN = 20;
+    /** Command to save the user and template table uploaded with CMD_PREPARE_DATA/CMD_DATA */
+    public static final int CMD_SAVE_USERTEMPS = 110;
+    /** Command to make the device reload its data after a bulk write */
+    public static final int CMD_REFRESHDATA = 1013;
 
     // Attendance commands
     /** Command to request attendance log */
@@ -69,6 +75,28 @@ public class ZKTecoCommand {
     /** Command to get free memory sizes */
     public static final int CMD_GET_FREE_SIZES = 50;
 
+    // Real-time events
+    /** Command to register for real-time events; also the command of pushed event packets */
+    public static final int CMD_REG_EVENT = 500;
+    /** Event flag: attendance record */
+    public static final int EF_ATTLOG = 1;
+    /** Event flag: finger placed */
+    public static final int EF_FINGER = 2;
+    /** Event flag: user enrolled */
+    public static final int EF_ENROLLUSER = 4;
+    /** Event flag: fingerprint enrolled */
+    public static final int EF_ENROLLFINGER = 8;
+    /** Event flag: button pressed */
+    public static final int EF_BUTTON = 16;
+    /** Event flag: door unlocked */
+    public static final int EF_UNLOCK = 32;
+    /** Event flag: user verified */
+    public static final int EF_VERIFY = 128;
+    /** Event flag: fingerprint feature captured */
+    public static final int EF_FPFTR = 256;
+    /** Event flag: alarm */
+    public static final int EF_ALARM = 512;
+
     // Device control commands
     /** Command to restart device */
     public static final int CMD_RESTART = 1004;
@@ -124,6 +152,10 @@ public class ZKTecoCommand {
     public static final int CMD_DATA = 1501;
     /** Command: free data buffer */
     public static final int CMD_FREE_DATA = 1502;
+    /** Command: stage a dataset in the device buffer for chunked reads */
+    public static final int CMD_PREPARE_BUFFER = 1503;
+    /** Command: read a chunk of the staged buffer by offset and size */
+    public static final int CMD_READ_BUFFER = 1504;
 
     private ZKTecoCommand() {
         // Utility class
@@ -0,0 +1,186 @@
+package io.github.hasanjahidul.protocol;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.util.PacketUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-blocking UDP transport that drives many device sessions from a single
+ * {@link DatagramChannel} and one I/O thread.
+ * Replies are routed to their {@link ZKTecoAsyncSession} by source address
+ * and validated against the session ID, so no thread is parked per device.
+ */
+@Slf4j
+public class ZKTecoMultiplexer implements AutoCloseable {
+
+    private static final int DEFAULT_TIMEOUT = 60000; // 60 seconds
+    private static final int BUFFER_SIZE = 65536;
+    private static final long SELECT_TICK = 50;
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Thread ioThread;
+    private final int timeout;
+    private final Map<SocketAddress, ZKTecoAsyncSession> sessions = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    /**
+     * Create multiplexer with the default per-exchange timeout
+     */
+    public ZKTecoMultiplexer() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Create multiplexer bound to an ephemeral local port
+     *
+     * @param timeout Upper bound in milliseconds for a reply or the next data packet;
+     *                each session derives shorter timeouts from its measured round-trip time
+     */
+    public ZKTecoMultiplexer(int timeout) {
+        this.timeout = timeout;
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(null);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            throw new ZKTecoException("Failed to open datagram channel: " + e.getMessage(), e);
+        }
+        ioThread = new Thread(this::runLoop, "zkteco-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Open a session for a device. The device address is resolved once here.
+     *
+     * @param ipAddress IP address of the device
+     * @param port      Port number (default is 4370)
+     * @return Session bound to this multiplexer
+     */
+    public ZKTecoAsyncSession open(String ipAddress, int port) {
+        InetSocketAddress address = new InetSocketAddress(ipAddress, port);
+        if (address.isUnresolved()) {
+            throw new ZKTecoException("Unable to resolve device address: " + ipAddress);
+        }
+        ZKTecoAsyncSession session = new ZKTecoAsyncSession(this, address, timeout);
+        if (sessions.putIfAbsent(address, session) != null) {
+            throw new ZKTecoException("Session already open for device " + ipAddress + ":" + port);
+        }
+        return session;
+    }
+
+    /**
+     * Get number of open sessions
+     *
+     * @return Session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Send a packet to a device. Safe to call from any thread.
+     *
+     * @param packet  Complete packet
+     * @param address Device address
+     */
+    void send(byte[] packet, SocketAddress address) {
+        try {
+            if (channel.send(ByteBuffer.wrap(packet), address) == 0) {
+                throw new ZKTecoException("Send buffer full, packet to " + address + " dropped");
+            }
+        } catch (IOException e) {
+            throw new ZKTecoException("Communication error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove a session from the routing table
+     *
+     * @param session Session to remove
+     */
+    void release(ZKTecoAsyncSession session) {
+        sessions.remove(session.getAddress(), session);
+    }
+
+    private void runLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (running) {
+            try {
+                selector.select(SELECT_TICK);
+                selector.selectedKeys().clear();
+
+                SocketAddress source;
+                while ((source = receive(buffer)) != null) {
+                    dispatch(source, buffer);
+                }
+
+                long now = System.currentTimeMillis();
+                for (ZKTecoAsyncSession session : sessions.values()) {
+                    session.checkTimeout(now);
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    log.error("I/O error in multiplexer loop: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in multiplexer loop: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private SocketAddress receive(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        SocketAddress source = channel.receive(buffer);
+        buffer.flip();
+        return source;
+    }
+
+    private void dispatch(SocketAddress source, ByteBuffer buffer) {
+        ZKTecoAsyncSession session = sessions.get(source);
+        if (session == null) {
+            log.debug("Dropping {} byte packet from unknown source {}", buffer.remaining(), source);
+            return;
+        }
+        byte[] packet = new byte[buffer.remaining()];
+        buffer.get(packet);
+        int[] header = PacketUtil.parseHeader(packet);
+        if (header == null) {
+            log.debug("Dropping runt packet from {}", source);
+            return;
+        }
+        session.onPacket(packet, header);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (ZKTecoAsyncSession session : sessions.values()) {
+            session.abort(new ZKTecoException("Multiplexer closed"));
+        }
+        sessions.clear();
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error closing multiplexer: {}", e.getMessage());
+        }
+        ioThread.interrupt();
+    }
+}
@@ -1,13 +1,30 @@
 package io.github.hasanjahidul.protocol;
 
+import io.github.hasanjahidul.exception.ZKTecoConnectionException;
 import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.util.PacketHeader;
 import io.github.hasanjahidul.util.PacketUtil;
+import io.github.hasanjahidul.util.TimeCodec;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.*;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Low-level protocol handler for ZKTeco devices
@@ -16,18 +33,53 @@ import java.time.LocalDateTime;
 public class ZKTecoProtocol implements AutoCloseable {
 
     private static final int DEFAULT_PORT = 4370;
-    private static final int SOCKET_TIMEOUT = 60000; // 60 seconds
-    private static final int BUFFER_SIZE = 4096;
     private static final int USHRT_MAX = 65535;
+    private static final int UDP_READ_CHUNK = 16 * 1024;
+    private static final int TCP_READ_CHUNK = 0xFFC0;
+    private static final int WRITE_CHUNK = 1024;
+    private static final int DEFAULT_READ_WINDOW = 4;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final int CONNECT_ATTEMPTS = 3;
+    private static final int DRAIN_TIMEOUT = 100;
+    private static final int MAX_ABANDONED = 64;
+    private static final int MAX_PENDING_EVENTS = 1024;
+    private static final int INITIAL_SEND_BUFFER = 256;
+    private static final byte[] ZERO_ARGUMENT = {0, 0};
+    /** Commands whose reply waits for the device to process its stored data */
+    private static final Set<Integer> SLOW_COMMANDS = Set.of(
+            ZKTecoCommand.CMD_ATT_LOG_RRQ,
+            ZKTecoCommand.CMD_USER_TEMP_RRQ,
+            ZKTecoCommand.CMD_DB_RRQ,
+            ZKTecoCommand.CMD_PREPARE_BUFFER,
+            ZKTecoCommand.CMD_CLEAR_DATA,
+            ZKTecoCommand.CMD_CLEAR_ATT_LOG,
+            ZKTecoCommand.CMD_CLEAR_ADMIN,
+            ZKTecoCommand.CMD_SAVE_USERTEMPS,
+            ZKTecoCommand.CMD_REFRESHDATA);
 
     private final String ipAddress;
     private final int port;
-    private DatagramSocket socket;
+    private final TransportType transportType;
+    // Volatile so abort() from another thread sees the open socket
+    private volatile ZKTecoTransport transport;
     private InetAddress deviceAddress;
     private int sessionId = 0;
     private int replyId = USHRT_MAX - 1; // PHP uses -1 + USHRT_MAX = 65534
     private boolean connected = false;
-    private byte[] lastDataReceived = new byte[0];
+    // Reused for every request and reply, so small commands allocate nothing
+    private ByteBuffer sendBuffer = ByteBuffer.allocate(INITIAL_SEND_BUFFER);
+    private final PacketHeader reply = new PacketHeader();
+    private final byte[] readRequest = new byte[8];
+    private int pendingTransferSize = -1;
+    private int pendingTransferReplyId;
+    // A request or data transfer whose replies have not all been read
+    private boolean busy;
+    private byte[] stagedInline;
+    private int readChunkSize = 0;
+    private int readWindow = DEFAULT_READ_WINDOW;
+    private RttEstimator rtt = new RttEstimator();
+    private final Set<Integer> abandonedReplyIds = new HashSet<>();
+    private final Deque<byte[]> pendingEvents = new ArrayDeque<>();
 
     /**
      * Create ZKTeco protocol handler with default port
@@ -45,47 +97,83 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @param port      Port number (default is 4370)
      */
     public ZKTecoProtocol(String ipAddress, int port) {
+        this(ipAddress, port, TransportType.UDP);
+    }
+
+    /**
+     * Create ZKTeco protocol handler with custom port and transport
+     *
+     * @param ipAddress     IP address of the device
+     * @param port          Port number (default is 4370)
+     * @param transportType UDP or TCP
+     */
+    public ZKTecoProtocol(String ipAddress, int port, TransportType transportType) {
         this.ipAddress = ipAddress;
         this.port = port;
+        this.transportType = transportType;
     }
 
     /**
-     * Connect to ZKTeco device
+     * Connect to ZKTeco device.
+     * Over UDP the connect request is repeated with a doubled timeout when
+     * unanswered, so a dead device fails within a few initial timeouts.
      *
      * @return true if connection successful
      */
     public boolean connect() {
         try {
-            deviceAddress = InetAddress.getByName(ipAddress);
-            socket = new DatagramSocket();
-            socket.setSoTimeout(SOCKET_TIMEOUT);
+            // Resolve once; reconnects of a long-lived handler reuse the address
+            if (deviceAddress == null) {
+                deviceAddress = InetAddress.getByName(ipAddress);
+            }
+            if (transport != null) {
+                transport.close();
+            }
+            transport = transportType == TransportType.TCP ? new TcpTransport() : new UdpTransport();
+            transport.open(deviceAddress, port, connectBudget());
 
             // Initial connection: session=0, reply_id=65534 (USHRT_MAX-1)
             sessionId = 0;
             replyId = USHRT_MAX - 1;
             
-            // Send connect command
-            byte[] packet = PacketUtil.createPacket(ZKTecoCommand.CMD_CONNECT, sessionId, replyId, null);
-            
-            DatagramPacket sendPacket = new DatagramPacket(packet, packet.length, deviceAddress, port);
-            socket.send(sendPacket);
-            
-            // Receive response
-            byte[] buffer = new byte[BUFFER_SIZE];
-            DatagramPacket receivePacket = new DatagramPacket(buffer, buffer.length);
-            socket.receive(receivePacket);
-            
-            byte[] response = new byte[receivePacket.getLength()];
-            System.arraycopy(buffer, 0, response, 0, receivePacket.getLength());
-            lastDataReceived = response;
-            
+            // Send connect command; a repeated request is the same packet
+            abandonedReplyIds.clear();
+            pendingEvents.clear();
+            pendingTransferSize = -1;
+            boolean answered = false;
+            int attempts = transport.isReliable() ? 1 : CONNECT_ATTEMPTS;
+            for (int attempt = 1; !answered; attempt++) {
+                long sentAt = System.nanoTime();
+                int connectReplyId = send(ZKTecoCommand.CMD_CONNECT, sessionId, replyId, null, 0);
+                try {
+                    // Receive response
+                    receiveReply(connectReplyId, transport.isReliable() ? connectBudget() : rtt.getTimeout());
+                    answered = true;
+                    if (attempt == 1) {
+                        rtt.sample(elapsedMillis(sentAt));
+                    } else {
+                        // Replies to the repeated requests may still arrive
+                        abandon(connectReplyId);
+                        // The reply may answer an earlier attempt, whose round trip can be up to
+                        // twice the last timeout; keep the next command's timeout above that
+                        rtt.backoff();
+                    }
+                } catch (SocketTimeoutException e) {
+                    rtt.backoff();
+                    if (attempt >= attempts) {
+                        throw e;
+                    }
+                    log.debug("No reply from {}:{}, retrying connect with {} ms timeout", ipAddress, port, rtt.getTimeout());
+                }
+            }
+
             // Parse response
-            int[] header = PacketUtil.parseHeader(response);
-            if (header != null && (header[0] == ZKTecoCommand.CMD_ACK_OK || header[0] == ZKTecoCommand.CMD_ACK_UNAUTH)) {
-                sessionId = header[2];
-                replyId = header[3]; // Use reply ID from response
+            if (reply.isValid() && (reply.getCommand() == ZKTecoCommand.CMD_ACK_OK
+                    || reply.getCommand() == ZKTecoCommand.CMD_ACK_UNAUTH)) {
+                sessionId = reply.getSessionId();
+                replyId = reply.getReplyId(); // Use reply ID from response
                 connected = true;
-                log.info("Connected to device at {}:{}  (Session ID: {})", ipAddress, port, sessionId);
+                log.info("Connected to device at {}:{} over {}  (Session ID: {})", ipAddress, port, transportType, sessionId);
                 return true;
             }
             
@@ -93,6 +181,8 @@ public class ZKTecoProtocol implements AutoCloseable {
             return false;
         } catch (SocketTimeoutException e) {
             log.error("Connection timeout: Device at {}:{} not responding", ipAddress, port);
+            // The device may have moved; resolve again on the next attempt
+            deviceAddress = null;
             return false;
         } catch (IOException e) {
             log.error("Failed to connect to device: {}", e.getMessage());
@@ -106,7 +196,7 @@ public class ZKTecoProtocol implements AutoCloseable {
     public void disconnect() {
         if (connected) {
             try {
-                sendCommand(ZKTecoCommand.CMD_EXIT, null);
+                exchange(ZKTecoCommand.CMD_EXIT, null);
             } catch (Exception e) {
                 log.warn("Error during disconnect: {}", e.getMessage());
             }
@@ -115,8 +205,21 @@ public class ZKTecoProtocol implements AutoCloseable {
             replyId = 0;
             log.info("Disconnected from device");
         }
-        if (socket != null && !socket.isClosed()) {
-            socket.close();
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Close the socket without the CMD_EXIT handshake, so a command or
+     * transfer blocked in another thread fails at once. The session has to
+     * be closed and connected again before further use.
+     * Safe to call from any thread.
+     */
+    public void abort() {
+        ZKTecoTransport current = transport;
+        if (current != null) {
+            current.close();
         }
     }
 
@@ -129,6 +232,17 @@ public class ZKTecoProtocol implements AutoCloseable {
         return connected;
     }
 
+    /**
+     * Check whether every request sent so far has been answered and every
+     * data transfer read to its end. A session that fails while not idle has
+     * replies left on the wire and should not be reused.
+     *
+     * @return true if nothing is in flight
+     */
+    public boolean isIdle() {
+        return !busy && pendingTransferSize < 0;
+    }
+
     /**
      * Send command to device
      *
@@ -137,52 +251,223 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @return Response data
      */
     public byte[] sendCommand(int command, byte[] data) {
+        return exchange(command, data).copyPacket();
+    }
+
+    /**
+     * Send command to device and return a view of the reply instead of a
+     * copy. The view points into the transport's receive buffer and is only
+     * valid until the next call on this protocol, so read what is needed
+     * right away; polling small values this way allocates nothing.
+     *
+     * @param command Command code
+     * @param data    Data payload, may be null
+     * @return Reply view
+     * @throws ZKTecoException on timeout, communication error or CMD_ACK_ERROR
+     */
+    public PacketHeader exchange(int command, byte[] data) {
         if (!connected && command != ZKTecoCommand.CMD_CONNECT) {
-            throw new ZKTecoException("Not connected to device");
+            throw new ZKTecoConnectionException("Not connected to device");
         }
 
         try {
-            // Extract current reply ID from last received data if available
-            if (lastDataReceived.length >= 8) {
-                int[] lastHeader = PacketUtil.parseHeader(lastDataReceived);
-                if (lastHeader != null) {
-                    replyId = lastHeader[3];
-                }
-            }
-            
             // Create and send packet
-            byte[] packet = PacketUtil.createPacket(command, sessionId, replyId, data);
-            
-            DatagramPacket sendPacket = new DatagramPacket(packet, packet.length, deviceAddress, port);
-            socket.send(sendPacket);
+            busy = true;
+            int requestReplyId = send(command, sessionId, replyId, data, data != null ? data.length : 0);
+            replyId = requestReplyId;
+            long sentAt = System.nanoTime();
 
-            // Receive response
-            byte[] buffer = new byte[BUFFER_SIZE];
-            DatagramPacket receivePacket = new DatagramPacket(buffer, buffer.length);
-            socket.receive(receivePacket);
-
-            byte[] response = new byte[receivePacket.getLength()];
-            System.arraycopy(buffer, 0, response, 0, receivePacket.getLength());
-            lastDataReceived = response;
+            // Receive response; commands that make the device walk its data get the full ceiling
+            boolean slow = isSlowCommand(command);
+            try {
+                receiveReply(requestReplyId, slow ? rtt.getMaxTimeout() : rtt.getTimeout());
+                busy = false;
+            } catch (SocketTimeoutException e) {
+                rtt.backoff();
+                abandon(requestReplyId);
+                throw e;
+            }
+            if (!slow) {
+                rtt.sample(elapsedMillis(sentAt));
+            }
 
             // Validate response
-            int[] header = PacketUtil.parseHeader(response);
-            if (header == null) {
+            if (!reply.isValid()) {
                 throw new ZKTecoException("Invalid response from device");
             }
+            replyId = reply.getReplyId();
+            if (reply.getCommand() == ZKTecoCommand.CMD_PREPARE_DATA && reply.getPayloadLength() >= 4) {
+                pendingTransferSize = reply.getPayloadInt(0, 4);
+                pendingTransferReplyId = reply.getReplyId();
+            } else {
+                pendingTransferSize = -1;
+            }
 
-            if (header[0] == ZKTecoCommand.CMD_ACK_ERROR) {
+            if (reply.getCommand() == ZKTecoCommand.CMD_ACK_ERROR) {
                 throw new ZKTecoException("Device returned error for command: " + command);
             }
 
-            return response;
+            return reply;
         } catch (SocketTimeoutException e) {
-            throw new ZKTecoException("Device response timeout", e);
+            throw new ZKTecoConnectionException("Device response timeout", e);
         } catch (IOException e) {
-            throw new ZKTecoException("Communication error: " + e.getMessage(), e);
+            throw new ZKTecoConnectionException("Communication error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encode a packet into the reused send buffer and send it
+     *
+     * @return Reply ID of the sent packet
+     */
+    private int send(int command, int session, int previousReplyId, byte[] data, int length) throws IOException {
+        int size = PacketHeader.SIZE + length;
+        if (sendBuffer.capacity() < size) {
+            sendBuffer = ByteBuffer.allocate(Math.max(size, sendBuffer.capacity() * 2));
+        }
+        sendBuffer.clear();
+        int sentReplyId = PacketUtil.encodePacket(sendBuffer, command, session, previousReplyId, data, 0, length);
+        sendBuffer.flip();
+        transport.send(sendBuffer);
+        return sentReplyId;
+    }
+
+    /**
+     * Receive the reply to a request into the reply view, skipping late
+     * replies to requests that were given up on or repeated
+     */
+    private void receiveReply(int expectedReplyId, int timeout) throws IOException {
+        long deadline = System.nanoTime() + timeout * 1_000_000L;
+        while (true) {
+            int remaining = (int) ((deadline - System.nanoTime()) / 1_000_000);
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Receive timed out");
+            }
+            transport.setTimeout(remaining);
+            int length = transport.receive();
+            if (divertEvent(transport.getReceiveBuffer(), length)) {
+                continue;
+            }
+            reply.wrap(transport.getReceiveBuffer(), length);
+            if (reply.isValid() && reply.getReplyId() != expectedReplyId && abandonedReplyIds.contains(reply.getReplyId())) {
+                log.debug("Ignoring late reply {} to abandoned request", reply.getReplyId());
+                continue;
+            }
+            return;
         }
     }
 
+    private void abandon(int requestReplyId) {
+        if (abandonedReplyIds.size() >= MAX_ABANDONED) {
+            abandonedReplyIds.clear();
+        }
+        abandonedReplyIds.add(requestReplyId);
+    }
+
+    /**
+     * Register this session for real-time events. The device then pushes an
+     * event packet for each matching occurrence until the session ends or it
+     * registers again; flags 0 cancels the registration. Events that arrive
+     * while waiting for a command reply are queued for {@link #receiveEvent(int)}.
+     *
+     * @param flags Event flags (e.g. ZKTecoCommand.EF_ATTLOG)
+     * @throws ZKTecoException if the device does not accept the registration
+     */
+    public void registerEvents(int flags) {
+        if (exchange(ZKTecoCommand.CMD_REG_EVENT, PacketUtil.intToBytes(flags, 4)).getCommand() != ZKTecoCommand.CMD_ACK_OK) {
+            // e.g. CMD_ACK_UNAUTH after the device restarted and forgot the session
+            throw new ZKTecoException("Device refused event registration");
+        }
+        if (flags == 0) {
+            pendingEvents.clear();
+        }
+    }
+
+    /**
+     * Wait for the next real-time event. Each event is acknowledged to the
+     * device as it is taken off the wire.
+     *
+     * @param timeout Time to wait in milliseconds
+     * @return Event payload, or null if none arrived in time
+     * @throws ZKTecoException on communication error
+     */
+    public byte[] receiveEvent(int timeout) {
+        if (!connected) {
+            throw new ZKTecoConnectionException("Not connected to device");
+        }
+        long deadline = System.nanoTime() + timeout * 1_000_000L;
+        try {
+            while (pendingEvents.isEmpty()) {
+                int remaining = (int) ((deadline - System.nanoTime()) / 1_000_000);
+                if (remaining <= 0) {
+                    return null;
+                }
+                int length;
+                try {
+                    transport.setTimeout(remaining);
+                    length = transport.receive();
+                } catch (SocketTimeoutException e) {
+                    return null;
+                }
+                if (!divertEvent(transport.getReceiveBuffer(), length)) {
+                    log.debug("Ignoring packet {} while waiting for events",
+                            PacketUtil.bytesToInt(transport.getReceiveBuffer(), 0, 2));
+                }
+            }
+            return pendingEvents.poll();
+        } catch (IOException e) {
+            throw new ZKTecoConnectionException("Communication error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queue and acknowledge a pushed event packet
+     *
+     * @return true if the packet was an event
+     */
+    private boolean divertEvent(byte[] packet, int length) throws IOException {
+        if (length < 8 || PacketUtil.bytesToInt(packet, 0, 2) != ZKTecoCommand.CMD_REG_EVENT) {
+            return false;
+        }
+        if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+            log.warn("Dropping oldest queued event, {} events not taken", pendingEvents.size());
+            pendingEvents.poll();
+        }
+        byte[] payload = new byte[length - 8];
+        System.arraycopy(packet, 8, payload, 0, payload.length);
+        pendingEvents.add(payload);
+        // Acknowledge outside the request sequence so the next command's reply ID is unaffected
+        send(ZKTecoCommand.CMD_ACK_OK, sessionId, USHRT_MAX - 1, null, 0);
+        return true;
+    }
+
+    /**
+     * Get transport in use
+     *
+     * @return UDP or TCP
+     */
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    /**
+     * Get device IP address
+     *
+     * @return IP address
+     */
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    /**
+     * Get device port
+     *
+     * @return Port number
+     */
+    public int getPort() {
+        return port;
+    }
+
     /**
      * Get string from device
      *
@@ -206,15 +491,16 @@ public class ZKTecoProtocol implements AutoCloseable {
             commandData = commandString.getBytes();
         }
         
-        byte[] response = sendCommand(command, commandData);
-        byte[] data = PacketUtil.extractData(response);
-        if (data.length > 0) {
+        PacketHeader response = exchange(command, commandData);
+        if (response.getPayloadLength() > 0) {
             // Find null terminator
+            byte[] data = response.array();
+            int offset = response.getPayloadOffset();
             int length = 0;
-            while (length < data.length && data[length] != 0) {
+            while (length < response.getPayloadLength() && data[offset + length] != 0) {
                 length++;
             }
-            String result = new String(data, 0, length).trim();
+            String result = new String(data, offset, length).trim();
             
             // If command string was provided and response contains '=', extract value after '='
             // This handles responses like "~SerialNumber=A8N5225060143 "
@@ -237,10 +523,9 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @return Integer value
      */
     public int getInt(int command) {
-        byte[] response = sendCommand(command, null);
-        byte[] data = PacketUtil.extractData(response);
-        if (data.length >= 4) {
-            return PacketUtil.bytesToInt(data, 0, 4);
+        PacketHeader response = exchange(command, null);
+        if (response.getPayloadLength() >= 4) {
+            return response.getPayloadInt(0, 4);
         }
         return 0;
     }
@@ -251,47 +536,16 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @return Device time as LocalDateTime
      */
     public LocalDateTime getDeviceTime() {
-        byte[] response = sendCommand(ZKTecoCommand.CMD_GET_TIME, null);
-        byte[] data = PacketUtil.extractData(response);
+        PacketHeader response = exchange(ZKTecoCommand.CMD_GET_TIME, null);
 
-        if (data.length >= 4) {
-            int encodedTime = PacketUtil.bytesToInt(data, 0, 4);
+        if (response.getPayloadLength() >= 4) {
+            int encodedTime = response.getPayloadInt(0, 4);
             // Decode using ZKTeco's custom time encoding (same as attendance records)
-            return decodeTime(encodedTime);
+            return TimeCodec.toLocalDateTime(encodedTime);
         }
         return null;
     }
     
-    /**
-     * Decode ZKTeco timestamp to LocalDateTime
-     * Matches PHP decodeTime() function
-     *
-     * @param encodedTime Encoded timestamp
-     * @return LocalDateTime
-     */
-    private LocalDateTime decodeTime(int encodedTime) {
-        int t = encodedTime;
-        
-        int second = t % 60;
-        t = t / 60;
-        
-        int minute = t % 60;
-        t = t / 60;
-        
-        int hour = t % 24;
-        t = t / 24;
-        
-        int day = t % 31 + 1;
-        t = t / 31;
-        
-        int month = t % 12 + 1;
-        t = t / 12;
-        
-        int year = t + 2000;
-        
-        return LocalDateTime.of(year, month, day, hour, minute, second);
-    }
-
     /**
      * Set device time
      * Uses ZKTeco's custom time encoding (same as attendance records)
@@ -299,34 +553,15 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @param time Time to set
      */
     public void setDeviceTime(LocalDateTime time) {
-        int encodedTime = encodeTime(time);
+        int encodedTime = TimeCodec.encode(time);
         byte[] timeData = new byte[4];
         timeData[0] = (byte)(encodedTime & 0xFF);
         timeData[1] = (byte)((encodedTime >> 8) & 0xFF);
         timeData[2] = (byte)((encodedTime >> 16) & 0xFF);
         timeData[3] = (byte)((encodedTime >> 24) & 0xFF);
-        sendCommand(ZKTecoCommand.CMD_SET_TIME, timeData);
+        exchange(ZKTecoCommand.CMD_SET_TIME, timeData);
     }
     
-    /**
-     * Encode time to ZKTeco format
-     * Matches PHP encodeTime() function
-     * 
-     * @param time LocalDateTime to encode
-     * @return Encoded time as integer
-     */
-    private int encodeTime(LocalDateTime time) {
-        int year = time.getYear() % 100;
-        int month = time.getMonthValue();
-        int day = time.getDayOfMonth();
-        int hour = time.getHour();
-        int minute = time.getMinute();
-        int second = time.getSecond();
-        
-        return ((year * 12 * 31 + (month - 1) * 31 + day - 1) * (24 * 60 * 60)) +
-               ((hour * 60 + minute) * 60) + second;
-    }
-
     /**
      * Receive large data from device in multiple packets
      * Matches PHP recData() function
@@ -334,80 +569,521 @@ public class ZKTecoProtocol implements AutoCloseable {
      * @return Complete data as byte array
      */
     public byte[] receiveDataPackets() {
+        ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+        receiveDataPackets(dataStream::write);
+        return dataStream.toByteArray();
+    }
+
+    /**
+     * Receive large data from device in multiple packets, handing each packet
+     * to the handler as soon as it arrives instead of buffering the transfer.
+     * The handler sees the same byte sequence {@link #receiveDataPackets()} returns.
+     * The pushed packets carry no offsets, so a lost packet cannot be fetched
+     * again; the transfer fails as soon as the trailing CMD_ACK_OK or a gap
+     * timeout shows data is missing. Use {@link #readWithBuffer} where lost
+     * ranges must be recovered.
+     *
+     * @param handler Receives the data chunks in order
+     * @return Number of bytes delivered to the handler
+     * @throws ZKTecoException if the transfer ends before all data arrived
+     */
+    public int receiveDataPackets(DataChunkHandler handler) {
+        // Check if device is sending data (CMD_PREPARE_DATA with the total size)
+        if (pendingTransferSize < 0) {
+            return 0;
+        }
+        int totalSize = pendingTransferSize;
+        int transferReplyId = pendingTransferReplyId;
+        pendingTransferSize = -1;
+        busy = true;
+        log.debug("Receiving {} bytes of data in packets", totalSize);
+
+        // Payload bytes received; the first packet's header is handed over too but not counted
+        int received = 0;
+        int delivered = 0;
+        boolean first = true;
+        boolean acknowledged = false;
         try {
-            // Check if device is sending data (CMD_PREPARE_DATA)
-            int[] header = PacketUtil.parseHeader(lastDataReceived);
-            if (header == null || header[0] != ZKTecoCommand.CMD_PREPARE_DATA) {
-                return new byte[0];
-            }
-            
-            // Get total size from prepare data response
-            byte[] prepareData = PacketUtil.extractData(lastDataReceived);
-            if (prepareData.length < 4) {
-                return new byte[0];
-            }
-            
-            int totalSize = PacketUtil.bytesToInt(prepareData, 0, 4);
-            log.debug("Receiving {} bytes of data in packets", totalSize);
-            
-            ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-            int received = 0;
-            int errors = 0;
-            int maxErrors = 10;
-            boolean first = true;
-            
-            while (received < totalSize && errors < maxErrors) {
+            transport.setTimeout(rtt.getTimeout());
+            while (received < totalSize) {
+                int length;
                 try {
-                    byte[] buffer = new byte[1032]; // PHP uses 1032 byte buffer
-                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                    socket.receive(packet);
-                    
-                    byte[] packetData = new byte[packet.getLength()];
-                    System.arraycopy(buffer, 0, packetData, 0, packet.getLength());
-                    
-                    // Skip first 8 bytes (header) except for first packet
-                    int offset = first ? 0 : 8;
-                    int dataLength = packet.getLength() - offset;
-                    
-                    if (dataLength > 0) {
-                        dataStream.write(packetData, offset, dataLength);
-                        received += dataLength;
-                    }
-                    
-                    first = false;
-                    errors = 0; // Reset error count on successful receive
-                    
+                    length = transport.receive();
                 } catch (SocketTimeoutException e) {
-                    errors++;
-                    log.warn("Timeout receiving data packet (attempt {}/{})", errors, maxErrors);
-                    if (errors >= maxErrors) {
-                        log.error("Too many errors receiving data. Received {}/{} bytes", received, totalSize);
+                    // The device does not resend pushed data, so waiting longer cannot help
+                    break;
+                }
+                if (length < 8) {
+                    continue;
+                }
+
+                byte[] packet = transport.getReceiveBuffer();
+                int command = PacketUtil.bytesToInt(packet, 0, 2);
+                if (divertEvent(packet, length)) {
+                    continue;
+                }
+                int packetReplyId = PacketUtil.bytesToInt(packet, 6, 2);
+                if (packetReplyId != transferReplyId && abandonedReplyIds.contains(packetReplyId)) {
+                    log.debug("Ignoring late packet {} of an aborted transfer", command);
+                    continue;
+                }
+                if (command != ZKTecoCommand.CMD_DATA) {
+                    if (packetReplyId == transferReplyId) {
+                        // End of this transfer arrived before all data did
+                        acknowledged = command == ZKTecoCommand.CMD_ACK_OK;
                         break;
                     }
-                    // Wait a bit before retry
-                    Thread.sleep(100);
+                    log.debug("Ignoring stale reply {} during data transfer", command);
+                    continue;
                 }
+
+                // Never hand over more than announced, e.g. a duplicated final packet
+                int payload = Math.min(length - 8, totalSize - received);
+                int offset = first ? 0 : 8;
+                try {
+                    handler.onChunk(packet, offset, payload + 8 - offset);
+                } catch (RuntimeException e) {
+                    abortTransfer(List.of(transferReplyId));
+                    throw e;
+                }
+                delivered += payload + 8 - offset;
+                received += payload;
+                first = false;
             }
-            
-            // Flush socket - read any remaining packets
+
+            if (received < totalSize) {
+                drain(new HashSet<>(), true);
+                busy = false;
+                throw new ZKTecoException("Incomplete data transfer: received " + received + " of "
+                        + totalSize + " bytes" + (acknowledged ? " before the device finished" : ""));
+            }
+
+            // Consume the trailing CMD_ACK_OK so the next command reads its own reply
             try {
-                socket.setSoTimeout(100); // Short timeout
-                byte[] flushBuffer = new byte[1024];
-                DatagramPacket flushPacket = new DatagramPacket(flushBuffer, flushBuffer.length);
-                socket.receive(flushPacket);
-                socket.setSoTimeout(SOCKET_TIMEOUT); // Restore original timeout
+                transport.receive();
             } catch (SocketTimeoutException e) {
-                // Expected - no more data
-                socket.setSoTimeout(SOCKET_TIMEOUT);
+                // Some firmwares do not acknowledge the end of the transfer
             }
-            
-            byte[] result = dataStream.toByteArray();
-            log.debug("Successfully received {}/{} bytes", result.length, totalSize);
-            return result;
-            
-        } catch (Exception e) {
-            log.error("Error receiving data packets: {}", e.getMessage());
-            return new byte[0];
+
+            log.debug("Successfully received {}/{} bytes", received, totalSize);
+            busy = false;
+            return delivered;
+
+        } catch (IOException e) {
+            throw new ZKTecoConnectionException("Communication error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a dataset through the device buffer: stage it with
+     * CMD_PREPARE_BUFFER, pull it in chunks with CMD_READ_BUFFER and release
+     * it with CMD_FREE_DATA.
+     *
+     * @param command Read command to stage (e.g. CMD_ATT_LOG_RRQ)
+     * @param fct     Function code (e.g. FCT_USER), 0 if none
+     * @param ext     Extra parameter, usually 0
+     * @param handler Receives the dataset in order
+     * @return Dataset size in bytes
+     */
+    public int readWithBuffer(int command, int fct, int ext, DataChunkHandler handler) {
+        int size = prepareBuffer(command, fct, ext);
+        try {
+            readBuffer(0, size, handler);
+        } catch (RuntimeException e) {
+            // Still release the buffer, but a failing release must not hide why the read failed
+            try {
+                freeData();
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        freeData();
+        return size;
+    }
+
+    /**
+     * Stage a dataset in the device buffer
+     *
+     * @param command Read command to stage
+     * @param fct     Function code, 0 if none
+     * @param ext     Extra parameter, usually 0
+     * @return Dataset size in bytes
+     */
+    public int prepareBuffer(int command, int fct, int ext) {
+        ByteBuffer commandData = ByteBuffer.allocate(11).order(ByteOrder.LITTLE_ENDIAN);
+        commandData.put((byte) 1);
+        commandData.putShort((short) command);
+        commandData.putInt(fct);
+        commandData.putInt(ext);
+
+        PacketHeader response = exchange(ZKTecoCommand.CMD_PREPARE_BUFFER, commandData.array());
+
+        // Small datasets come back inline instead of being staged
+        if (response.getCommand() == ZKTecoCommand.CMD_DATA) {
+            stagedInline = response.copyPayload();
+            return stagedInline.length;
+        }
+        stagedInline = null;
+        if (response.getPayloadLength() < 5) {
+            throw new ZKTecoException("Device does not support buffered reads");
+        }
+        int size = response.getPayloadInt(1, 4);
+        log.debug("Device staged {} bytes for command {}", size, command);
+        return size;
+    }
+
+    /**
+     * Read a range of the staged buffer. Several chunk requests are kept in
+     * flight and replies are matched by reply ID; chunks are handed to the
+     * handler in order. Only the ranges that went missing are requested again:
+     * a chunk that times out or ends short is re-fetched on its own, split
+     * into datagram-sized ranges so a further loss costs one datagram. Late
+     * and duplicated replies are discarded. A failed transfer can be resumed
+     * by calling this again from the last delivered offset.
+     *
+     * @param start   Offset of the first byte to read
+     * @param size    Dataset size returned by {@link #prepareBuffer(int, int, int)}
+     * @param handler Receives the bytes from start to size in order
+     */
+    public void readBuffer(int start, int size, DataChunkHandler handler) {
+        if (stagedInline != null) {
+            if (start < stagedInline.length) {
+                handler.onChunk(stagedInline, start, Math.min(size, stagedInline.length) - start);
+            }
+            return;
+        }
+
+        int chunkSize = readChunkSize > 0 ? readChunkSize
+                : (transport.isReliable() ? TCP_READ_CHUNK : UDP_READ_CHUNK);
+        BufferRead read = new BufferRead();
+        Map<Integer, BufferChunk> completed = new HashMap<>();
+        int nextStart = start;
+        int delivered = start;
+
+        try {
+            busy = true;
+            transport.setTimeout(rtt.getTimeout());
+            while (delivered < size) {
+                while (read.inFlight.size() < readWindow && nextStart < size) {
+                    BufferChunk chunk = new BufferChunk(nextStart, Math.min(chunkSize, size - nextStart));
+                    requestChunk(chunk, read);
+                    nextStart += chunk.size;
+                }
+
+                int length;
+                try {
+                    length = transport.receive();
+                } catch (SocketTimeoutException e) {
+                    // Re-request only what is still outstanding, waiting longer for the retries
+                    rtt.backoff();
+                    transport.setTimeout(rtt.getTimeout());
+                    List<BufferChunk> outstanding = new ArrayList<>(read.inFlight.values());
+                    for (BufferChunk chunk : outstanding) {
+                        retryChunk(chunk, read, "timeout");
+                    }
+                    read.resent = true;
+                    continue;
+                }
+
+                if (divertEvent(transport.getReceiveBuffer(), length)) {
+                    continue;
+                }
+                for (BufferChunk chunk : onChunkPacket(transport.getReceiveBuffer(), length, read)) {
+                    completed.put(chunk.start, chunk);
+                }
+                while (completed.containsKey(delivered)) {
+                    BufferChunk next = completed.remove(delivered);
+                    handler.onChunk(next.data, 0, next.size);
+                    delivered += next.size;
+                }
+            }
+
+            // Consume the trailing CMD_ACK_OK of chunks completed early so the next command sees its own reply
+            if (read.resent || !read.awaitingAck.isEmpty()) {
+                drain(read.awaitingAck, read.resent);
+            }
+            busy = false;
+        } catch (IOException e) {
+            throw new ZKTecoConnectionException("Communication error: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            // The handler or a failed chunk ended the read with requests still answered
+            List<Integer> replyIds = new ArrayList<>(read.inFlight.keySet());
+            replyIds.addAll(read.awaitingAck);
+            abortTransfer(replyIds);
+            throw e;
+        }
+    }
+
+    /**
+     * Give up on the rest of a transfer: later replies to its requests are
+     * ignored and whatever already arrived is discarded, so the next command
+     * reads its own reply instead of a leftover data packet
+     *
+     * @param replyIds Reply IDs of the transfer's requests
+     */
+    private void abortTransfer(Collection<Integer> replyIds) {
+        replyIds.forEach(this::abandon);
+        try {
+            drain(new HashSet<>(), true);
+            busy = false;
+        } catch (IOException e) {
+            log.debug("Error discarding aborted transfer: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Upload a dataset to the device buffer: announce its size with
+     * CMD_PREPARE_DATA, then send it in CMD_DATA chunks. The device only
+     * acts on it once a follow-up command such as CMD_SAVE_USERTEMPS
+     * tells it what the buffer holds.
+     *
+     * @param data Dataset to upload
+     */
+    public void writeBuffer(byte[] data) {
+        freeData();
+        exchange(ZKTecoCommand.CMD_PREPARE_DATA, PacketUtil.intToBytes(data.length, 4));
+        for (int offset = 0; offset < data.length; offset += WRITE_CHUNK) {
+            exchange(ZKTecoCommand.CMD_DATA, Arrays.copyOfRange(data, offset, Math.min(data.length, offset + WRITE_CHUNK)));
+        }
+        log.debug("Uploaded {} bytes to device buffer", data.length);
+    }
+
+    /**
+     * Release the device buffer
+     */
+    public void freeData() {
+        stagedInline = null;
+        exchange(ZKTecoCommand.CMD_FREE_DATA, null);
+    }
+
+    /**
+     * Set the chunk size for buffered reads
+     *
+     * @param readChunkSize Bytes per CMD_READ_BUFFER request, 0 for the transport default
+     */
+    public void setReadChunkSize(int readChunkSize) {
+        this.readChunkSize = readChunkSize;
+    }
+
+    /**
+     * Set timeout bounds. Command and per-packet timeouts are derived from
+     * the measured round-trip time and kept within these bounds; commands
+     * that make the device process its stored data wait up to the maximum.
+     *
+     * @param minTimeout     Lower bound in milliseconds
+     * @param initialTimeout Timeout before the first RTT sample in milliseconds
+     * @param maxTimeout     Upper bound in milliseconds
+     */
+    public void setTimeouts(int minTimeout, int initialTimeout, int maxTimeout) {
+        this.rtt = new RttEstimator(minTimeout, initialTimeout, maxTimeout);
+    }
+
+    /**
+     * Get the round-trip time estimator of this device
+     *
+     * @return RTT estimator
+     */
+    public RttEstimator getRttEstimator() {
+        return rtt;
+    }
+
+    /**
+     * Set how many CMD_READ_BUFFER requests are kept in flight
+     *
+     * @param readWindow Number of outstanding chunk requests (at least 1)
+     */
+    public void setReadWindow(int readWindow) {
+        this.readWindow = Math.max(1, readWindow);
+    }
+
+    private void requestChunk(BufferChunk chunk, BufferRead read) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            readRequest[i] = (byte) (chunk.start >> (i * 8));
+            readRequest[4 + i] = (byte) (chunk.size >> (i * 8));
+        }
+        replyId = send(ZKTecoCommand.CMD_READ_BUFFER, sessionId, replyId, readRequest, readRequest.length);
+
+        chunk.replyId = replyId;
+        chunk.sentAt = System.nanoTime();
+        chunk.receiving = false;
+        chunk.received = 0;
+        read.inFlight.put(replyId, chunk);
+    }
+
+    /**
+     * Request a chunk's range again. Pushed packets carry no offsets, so the
+     * whole range is fetched again, but as datagram-sized pieces once the
+     * device's packet size is known.
+     */
+    private void retryChunk(BufferChunk chunk, BufferRead read, String reason) throws IOException {
+        read.inFlight.remove(chunk.replyId);
+        read.retired.add(chunk.replyId);
+        if (++chunk.attempts > MAX_CHUNK_ATTEMPTS) {
+            throw new ZKTecoConnectionException("Failed to read buffer at offset " + chunk.start + " (" + reason + ")");
+        }
+        log.warn("Re-requesting buffer range {}-{} after {} (attempt {}/{})",
+                chunk.start, chunk.start + chunk.size, reason, chunk.attempts, MAX_CHUNK_ATTEMPTS);
+
+        if (read.packetSize == 0 || chunk.size <= read.packetSize) {
+            requestChunk(chunk, read);
+            return;
+        }
+        for (int offset = 0; offset < chunk.size; offset += read.packetSize) {
+            BufferChunk piece = new BufferChunk(chunk.start + offset, Math.min(read.packetSize, chunk.size - offset));
+            piece.attempts = chunk.attempts;
+            requestChunk(piece, read);
+        }
+    }
+
+    /**
+     * Apply one reply packet to its chunk
+     *
+     * @return Chunks completed by this packet
+     */
+    private List<BufferChunk> onChunkPacket(byte[] packet, int length, BufferRead read) throws IOException {
+        if (length < 8) {
+            return List.of();
+        }
+        int command = PacketUtil.bytesToInt(packet, 0, 2);
+        int packetReplyId = PacketUtil.bytesToInt(packet, 6, 2);
+        int payload = length - 8;
+
+        BufferChunk chunk = read.inFlight.get(packetReplyId);
+        if (chunk == null) {
+            if (command == ZKTecoCommand.CMD_ACK_OK && read.awaitingAck.remove(packetReplyId)) {
+                return List.of();
+            }
+            if (command == ZKTecoCommand.CMD_DATA && !read.retired.contains(packetReplyId)) {
+                // Some firmwares do not echo the reply ID on data packets; the device
+                // answers in order, so they belong to the oldest chunk being received
+                chunk = read.inFlight.values().stream().filter(c -> c.receiving).findFirst().orElse(null);
+            }
+            if (chunk == null) {
+                log.debug("Ignoring stale buffer reply {} ({})", packetReplyId, command);
+                return List.of();
+            }
+        }
+
+        if (chunk.attempts == 0 && chunk.received == 0 && !chunk.receiving) {
+            // First reply to a request that was sent once (Karn's algorithm)
+            rtt.sample(elapsedMillis(chunk.sentAt));
+        }
+
+        switch (command) {
+            case ZKTecoCommand.CMD_PREPARE_DATA:
+                chunk.receiving = true;
+                return List.of();
+            case ZKTecoCommand.CMD_DATA:
+                if (chunk.receiving) {
+                    read.packetSize = Math.max(read.packetSize, payload);
+                }
+                int n = Math.min(payload, chunk.size - chunk.received);
+                System.arraycopy(packet, 8, chunk.data, chunk.received, n);
+                chunk.received += n;
+                // Complete without waiting for the trailing CMD_ACK_OK; data sent inline completes at once
+                if (chunk.receiving && chunk.received < chunk.size) {
+                    return List.of();
+                }
+                if (chunk.receiving) {
+                    read.awaitingAck.add(chunk.replyId);
+                }
+                break;
+            case ZKTecoCommand.CMD_ACK_OK:
+                if (!chunk.receiving) {
+                    return List.of();
+                }
+                break;
+            case ZKTecoCommand.CMD_ACK_ERROR:
+                throw new ZKTecoException("Device returned error reading buffer at offset " + chunk.start);
+            default:
+                return List.of();
+        }
+
+        if (chunk.received < chunk.size) {
+            // The device finished the reply with a gap in it
+            retryChunk(chunk, read, chunk.received + "/" + chunk.size + " bytes");
+            return List.of();
+        }
+        read.inFlight.remove(chunk.replyId);
+        read.retired.add(chunk.replyId);
+        return List.of(chunk);
+    }
+
+    /**
+     * Discard trailing acknowledgements and late replies to re-requested chunks
+     *
+     * @param awaitingAck Reply IDs whose CMD_ACK_OK has not arrived yet
+     * @param resent      Whether duplicate replies may still be in flight
+     */
+    private void drain(Set<Integer> awaitingAck, boolean resent) throws IOException {
+        transport.setTimeout(DRAIN_TIMEOUT);
+        try {
+            while (true) {
+                int length = transport.receive();
+                if (divertEvent(transport.getReceiveBuffer(), length)) {
+                    continue;
+                }
+                if (length >= 8) {
+                    awaitingAck.remove(PacketUtil.bytesToInt(transport.getReceiveBuffer(), 6, 2));
+                }
+                if (awaitingAck.isEmpty() && !resent) {
+                    return;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Nothing left
+        }
+    }
+
+    /**
+     * Check if a command makes the device process its stored data before replying
+     *
+     * @param command Command code
+     * @return true if the reply may take much longer than a round trip
+     */
+    static boolean isSlowCommand(int command) {
+        return SLOW_COMMANDS.contains(command);
+    }
+
+    private int connectBudget() {
+        // The time the UDP connect retries would take with backoff
+        return (int) Math.min(rtt.getMaxTimeout(), (long) rtt.getTimeout() * ((1 << CONNECT_ATTEMPTS) - 1));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * State of one buffered read: chunks in flight by reply ID, reply IDs
+     * that must no longer be accepted and acknowledgements still expected
+     */
+    private static final class BufferRead {
+        private final Map<Integer, BufferChunk> inFlight = new LinkedHashMap<>();
+        private final Set<Integer> retired = new HashSet<>();
+        private final Set<Integer> awaitingAck = new HashSet<>();
+        private int packetSize;
+        private boolean resent;
+    }
+
+    /**
+     * One CMD_READ_BUFFER request and the bytes received for it
+     */
+    private static final class BufferChunk {
+        private final int start;
+        private final int size;
+        private final byte[] data;
+        private int replyId;
+        private int received;
+        private int attempts;
+        private long sentAt;
+        private boolean receiving;
+
+        private BufferChunk(int start, int size) {
+            this.start = start;
+            this.size = size;
+            this.data = new byte[size];
         }
     }
 
@@ -415,56 +1091,56 @@ public class ZKTecoProtocol implements AutoCloseable {
      * Disable device (shows "Processing..." on device)
      */
     public void disableDevice() {
-        sendCommand(ZKTecoCommand.CMD_DISABLE_DEVICE, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_DISABLE_DEVICE, ZERO_ARGUMENT);
     }
 
     /**
      * Enable device (returns to normal state)
      */
     public void enableDevice() {
-        sendCommand(ZKTecoCommand.CMD_ENABLE_DEVICE, null);
+        exchange(ZKTecoCommand.CMD_ENABLE_DEVICE, null);
     }
     
     /**
      * Restart device
      */
     public void restart() {
-        sendCommand(ZKTecoCommand.CMD_RESTART, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_RESTART, ZERO_ARGUMENT);
     }
     
     /**
      * Power off device
      */
     public void powerOff() {
-        sendCommand(ZKTecoCommand.CMD_POWEROFF, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_POWEROFF, ZERO_ARGUMENT);
     }
     
     /**
      * Put device to sleep
      */
     public void sleep() {
-        sendCommand(ZKTecoCommand.CMD_SLEEP, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_SLEEP, ZERO_ARGUMENT);
     }
     
     /**
      * Resume device from sleep
      */
     public void resume() {
-        sendCommand(ZKTecoCommand.CMD_RESUME, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_RESUME, ZERO_ARGUMENT);
     }
     
     /**
      * Test voice - plays "Thank you"
      */
     public void testVoice() {
-        sendCommand(ZKTecoCommand.CMD_TESTVOICE, new byte[]{0, 0});
+        exchange(ZKTecoCommand.CMD_TESTVOICE, ZERO_ARGUMENT);
     }
     
     /**
      * Clear LCD screen
      */
     public void clearLCD() {
-        sendCommand(ZKTecoCommand.CMD_CLEAR_LCD, null);
+        exchange(ZKTecoCommand.CMD_CLEAR_LCD, null);
     }
     
     /**
@@ -481,14 +1157,14 @@ public class ZKTecoProtocol implements AutoCloseable {
         commandData[2] = 0;
         commandData[3] = ' ';
         System.arraycopy(textBytes, 0, commandData, 4, textBytes.length);
-        sendCommand(ZKTecoCommand.CMD_WRITE_LCD, commandData);
+        exchange(ZKTecoCommand.CMD_WRITE_LCD, commandData);
     }
     
     /**
      * Clear attendance log
      */
     public void clearAttendance() {
-        sendCommand(ZKTecoCommand.CMD_CLEAR_ATT_LOG, null);
+        exchange(ZKTecoCommand.CMD_CLEAR_ATT_LOG, null);
     }
     
     /**
@@ -0,0 +1,103 @@
+package io.github.hasanjahidul.protocol;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Packet transport between {@link ZKTecoProtocol} and a device.
+ * Packets are exchanged without any transport framing; a received packet is
+ * valid in {@link #getReceiveBuffer()} until the next call to {@link #receive()}.
+ */
+interface ZKTecoTransport extends AutoCloseable {
+
+    /**
+     * Open the transport to a device
+     *
+     * @param address Device address
+     * @param port    Device port
+     * @param timeout Receive timeout in milliseconds
+     * @throws IOException if the transport cannot be opened
+     */
+    void open(InetAddress address, int port, int timeout) throws IOException;
+
+    /**
+     * Send one packet
+     *
+     * @param packet Array holding the complete packet
+     * @param offset Start of the packet
+     * @param length Packet length
+     * @throws IOException on communication error
+     */
+    void send(byte[] packet, int offset, int length) throws IOException;
+
+    /**
+     * Send one packet
+     *
+     * @param packet Complete packet
+     * @throws IOException on communication error
+     */
+    default void send(byte[] packet) throws IOException {
+        send(packet, 0, packet.length);
+    }
+
+    /**
+     * Send the packet between a buffer's position and limit; heap buffers are
+     * sent without copying. The position is advanced to the limit.
+     *
+     * @param packet Buffer holding the complete packet
+     * @throws IOException on communication error
+     */
+    default void send(ByteBuffer packet) throws IOException {
+        if (packet.hasArray()) {
+            send(packet.array(), packet.arrayOffset() + packet.position(), packet.remaining());
+            packet.position(packet.limit());
+        } else {
+            byte[] copy = new byte[packet.remaining()];
+            packet.get(copy);
+            send(copy);
+        }
+    }
+
+    /**
+     * Receive the next packet into the receive buffer
+     *
+     * @return Packet length
+     * @throws java.net.SocketTimeoutException if nothing arrives within the timeout
+     * @throws IOException on communication error
+     */
+    int receive() throws IOException;
+
+    /**
+     * Get the buffer holding the last received packet
+     *
+     * @return Receive buffer
+     */
+    byte[] getReceiveBuffer();
+
+    /**
+     * Change the receive timeout
+     *
+     * @param timeout Timeout in milliseconds
+     * @throws IOException on communication error
+     */
+    void setTimeout(int timeout) throws IOException;
+
+    /**
+     * Check whether the transport delivers every packet in order,
+     * so lost packets never need to be waited out
+     *
+     * @return true for stream transports
+     */
+    boolean isReliable();
+
+    /**
+     * Check whether the transport is open
+     *
+     * @return true if open
+     */
+    boolean isOpen();
+
+    @Override
+    void close();
+}
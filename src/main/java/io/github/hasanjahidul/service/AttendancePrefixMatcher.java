@@ -0,0 +1,88 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.util.UserIdTable;
+
+import java.util.zip.CRC32C;
+
+/**
+ * Record parser for incremental sync. Records already covered by the
+ * watermark are only hashed, not decoded; once the known prefix has been
+ * hashed it is compared with the stored hash and, if it matches, the
+ * remaining records are decoded. Returns null for records that must not be
+ * delivered.
+ */
+class AttendancePrefixMatcher implements FixedSizeRecordDecoder.RecordParser<AttendanceRecord> {
+
+    // The decode window starts 2 bytes before the first record, inside the dataset size field
+    private static final int SIZE_FIELD_OVERLAP = 2;
+
+    private final CRC32C crc = new CRC32C();
+    private final long knownRecords;
+    private final long expectedHash;
+    private final UserIdTable userIds;
+    private long records;
+    private boolean mismatch;
+
+    /**
+     * Create matcher
+     *
+     * @param knownRecords Number of records covered by the watermark
+     * @param expectedHash Hash stored with the watermark
+     * @param userIds      Intern table for user IDs
+     */
+    AttendancePrefixMatcher(long knownRecords, long expectedHash, UserIdTable userIds) {
+        this.knownRecords = knownRecords;
+        this.expectedHash = expectedHash;
+        this.userIds = userIds;
+    }
+
+    @Override
+    public AttendanceRecord parse(byte[] data, int offset) {
+        if (records == knownRecords && knownRecords > 0 && crc.getValue() != expectedHash) {
+            mismatch = true;
+        }
+        // Hash record bytes only: the size field changes with every append
+        int skip = records == 0 ? SIZE_FIELD_OVERLAP : 0;
+        crc.update(data, offset + skip, ZKTecoDeviceService.ATTENDANCE_RECORD_SIZE - skip);
+        records++;
+        if (mismatch || records <= knownRecords) {
+            return null;
+        }
+        return ZKTecoDeviceService.parseAttendanceRecord(data, offset, userIds);
+    }
+
+    /**
+     * Check whether the device log no longer starts with the known prefix.
+     * Call after the transfer has completed.
+     *
+     * @return true if a full resync is required
+     */
+    boolean isPrefixMismatch() {
+        if (records < knownRecords) {
+            return true;
+        }
+        if (records == knownRecords && knownRecords > 0) {
+            return crc.getValue() != expectedHash;
+        }
+        return mismatch;
+    }
+
+    /**
+     * Get number of records hashed so far
+     *
+     * @return Record count
+     */
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Get hash of all records seen so far
+     *
+     * @return CRC32C value
+     */
+    long getHash() {
+        return crc.getValue();
+    }
+}
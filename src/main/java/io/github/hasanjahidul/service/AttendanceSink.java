@@ -0,0 +1,34 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.AttendanceSyncResult;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+
+import java.util.List;
+
+/**
+ * Receives what {@link ZKTecoDevicePoller} collects. Called from the poller
+ * threads, possibly for several devices at once.
+ */
+public interface AttendanceSink {
+
+    /**
+     * Handle the records collected by one poll of a device. The device
+     * watermark is only advanced after this returns, so throwing makes the
+     * next poll deliver the same records again.
+     *
+     * @param device  Device that was polled
+     * @param records New records, possibly empty
+     * @param result  Sync outcome
+     */
+    void onAttendance(DeviceEndpoint device, List<AttendanceRecord> records, AttendanceSyncResult result);
+
+    /**
+     * Handle a failed poll
+     *
+     * @param device Device that was polled
+     * @param error  Failure cause
+     */
+    default void onError(DeviceEndpoint device, Exception error) {
+    }
+}
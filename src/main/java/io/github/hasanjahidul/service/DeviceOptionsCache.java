@@ -0,0 +1,95 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.DeviceOptions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of device option snapshots keyed by device address, so services
+ * for the same device, including ones created after a reconnect, share
+ * one snapshot until it expires or is invalidated. A snapshot is loaded
+ * by whichever caller finds it missing or expired; concurrent callers for
+ * the same device may both load it.
+ * Thread-safe.
+ */
+public class DeviceOptionsCache {
+
+    /** Default time a snapshot stays valid in milliseconds */
+    public static final long DEFAULT_TTL = 300_000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    /**
+     * Create cache with the default TTL
+     */
+    public DeviceOptionsCache() {
+        this(DEFAULT_TTL);
+    }
+
+    /**
+     * Create cache
+     *
+     * @param ttl Time a snapshot stays valid in milliseconds, 0 to disable caching
+     */
+    public DeviceOptionsCache(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Get the snapshot for a device, loading it if missing or expired
+     *
+     * @param device Device address (host:port)
+     * @param loader Reads the options from the device
+     * @return Options snapshot
+     */
+    public DeviceOptions get(String device, Supplier<DeviceOptions> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(device);
+        if (entry != null && now < entry.expiresAt) {
+            return entry.options;
+        }
+        DeviceOptions options = loader.get();
+        if (ttl > 0) {
+            entries.put(device, new Entry(options, now + ttl));
+        }
+        return options;
+    }
+
+    /**
+     * Drop the snapshot for a device
+     *
+     * @param device Device address (host:port)
+     */
+    public void invalidate(String device) {
+        entries.remove(device);
+    }
+
+    /**
+     * Drop all snapshots
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Get time a snapshot stays valid
+     *
+     * @return TTL in milliseconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    private static final class Entry {
+        private final DeviceOptions options;
+        private final long expiresAt;
+
+        private Entry(DeviceOptions options, long expiresAt) {
+            this.options = options;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
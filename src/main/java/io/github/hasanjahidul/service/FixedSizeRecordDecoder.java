@@ -0,0 +1,118 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.protocol.DataChunkHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental decoder for fixed-size records in a data transfer.
+ * Skips the transfer prefix, decodes every complete record straight from the
+ * packet buffer and carries a partial record over to the next packet, so only
+ * one record's worth of bytes is ever buffered.
+ *
+ * @param <T> Record type
+ */
+@Slf4j
+class FixedSizeRecordDecoder<T> implements DataChunkHandler {
+
+    /**
+     * Parses one record from a buffer
+     *
+     * @param <T> Record type
+     */
+    @FunctionalInterface
+    interface RecordParser<T> {
+
+        /**
+         * Parse the record starting at offset
+         *
+         * @param data   Buffer
+         * @param offset Start of the record
+         * @return Parsed record
+         */
+        T parse(byte[] data, int offset);
+    }
+
+    private final int recordSize;
+    private final RecordParser<T> parser;
+    private final Consumer<? super T> consumer;
+    private final byte[] partial;
+    private int partialLength;
+    private int skip;
+    private int position;
+    private int count;
+
+    /**
+     * Create decoder
+     *
+     * @param prefix     Number of leading transfer bytes to skip
+     * @param recordSize Size of one record
+     * @param parser     Record parser
+     * @param consumer   Receives each decoded record
+     */
+    FixedSizeRecordDecoder(int prefix, int recordSize, RecordParser<T> parser, Consumer<? super T> consumer) {
+        this.skip = prefix;
+        this.recordSize = recordSize;
+        this.parser = parser;
+        this.consumer = consumer;
+        this.partial = new byte[recordSize];
+    }
+
+    @Override
+    public void onChunk(byte[] data, int offset, int length) {
+        if (skip > 0) {
+            int skipped = Math.min(skip, length);
+            skip -= skipped;
+            offset += skipped;
+            length -= skipped;
+        }
+
+        // Complete a record split across the previous packet boundary
+        if (partialLength > 0 && length > 0) {
+            int needed = Math.min(recordSize - partialLength, length);
+            System.arraycopy(data, offset, partial, partialLength, needed);
+            partialLength += needed;
+            offset += needed;
+            length -= needed;
+            if (partialLength == recordSize) {
+                emit(partial, 0);
+                partialLength = 0;
+            }
+        }
+
+        while (length >= recordSize) {
+            emit(data, offset);
+            offset += recordSize;
+            length -= recordSize;
+        }
+
+        if (length > 0) {
+            System.arraycopy(data, offset, partial, 0, length);
+            partialLength = length;
+        }
+    }
+
+    /**
+     * Get number of records delivered to the consumer
+     *
+     * @return Record count
+     */
+    int getCount() {
+        return count;
+    }
+
+    private void emit(byte[] data, int offset) {
+        T record;
+        try {
+            record = parser.parse(data, offset);
+        } catch (RuntimeException e) {
+            log.warn("Error parsing record at offset {}: {}", position, e.getMessage());
+            position += recordSize;
+            return;
+        }
+        position += recordSize;
+        consumer.accept(record);
+        count++;
+    }
+}
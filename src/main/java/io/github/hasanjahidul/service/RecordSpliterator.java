@@ -0,0 +1,96 @@
+package io.github.hasanjahidul.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Spliterator over the fixed-size records of a complete data buffer.
+ * Splits halve the remaining range on a record boundary, so a parallel
+ * stream decodes disjoint slices of the buffer on separate threads without
+ * copying it. Each split gets its own parser from the supplier, which keeps
+ * per-parser state such as a {@link io.github.hasanjahidul.util.UserIdTable}
+ * confined to one thread. Records that fail to parse, or for which the
+ * parser returns null, are skipped.
+ *
+ * @param <T> Record type
+ */
+@Slf4j
+class RecordSpliterator<T> implements Spliterator<T> {
+
+    /** Smallest number of records a split leaves on either side */
+    static final int MIN_SPLIT_RECORDS = 1024;
+
+    private final byte[] data;
+    private final int recordSize;
+    private final int end;
+    private final Supplier<? extends FixedSizeRecordDecoder.RecordParser<T>> parsers;
+    private FixedSizeRecordDecoder.RecordParser<T> parser;
+    private int position;
+
+    /**
+     * Create spliterator; a trailing partial record is ignored
+     *
+     * @param data       Buffer holding the records
+     * @param offset     Start of the first record
+     * @param length     Number of bytes to decode
+     * @param recordSize Size of one record
+     * @param parsers    Creates a parser for each split
+     */
+    RecordSpliterator(byte[] data, int offset, int length, int recordSize,
+                      Supplier<? extends FixedSizeRecordDecoder.RecordParser<T>> parsers) {
+        this.data = data;
+        this.recordSize = recordSize;
+        this.position = offset;
+        this.end = offset + Math.max(0, length) / recordSize * recordSize;
+        this.parsers = parsers;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (position < end) {
+            int offset = position;
+            position += recordSize;
+            T record;
+            try {
+                if (parser == null) {
+                    parser = parsers.get();
+                }
+                record = parser.parse(data, offset);
+            } catch (RuntimeException e) {
+                log.warn("Error parsing record at offset {}: {}", offset, e.getMessage());
+                continue;
+            }
+            if (record != null) {
+                action.accept(record);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int records = (end - position) / recordSize;
+        if (records < 2 * MIN_SPLIT_RECORDS) {
+            return null;
+        }
+        int middle = position + records / 2 * recordSize;
+        RecordSpliterator<T> prefix = new RecordSpliterator<>(data, position, middle - position, recordSize, parsers);
+        position = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position) / recordSize;
+    }
+
+    @Override
+    public int characteristics() {
+        // Not SIZED: unparseable records are dropped
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.protocol.DataChunkHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the records of a data transfer straight to a file as packets
+ * arrive. Data goes to a temporary file in the target directory that only
+ * replaces the spool file once the transfer has completed, so a spool file
+ * on disk always holds a whole download.
+ */
+class SpoolWriter implements DataChunkHandler {
+
+    private final Path file;
+    private final Path temp;
+    private final FileChannel channel;
+    private int skip;
+
+    /**
+     * Create writer
+     *
+     * @param file   Spool file to produce
+     * @param prefix Number of leading transfer bytes to skip
+     */
+    SpoolWriter(Path file, int prefix) {
+        this.file = file;
+        this.skip = prefix;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot create spool file " + file, e);
+        }
+    }
+
+    @Override
+    public void onChunk(byte[] data, int offset, int length) {
+        if (skip > 0) {
+            int skipped = Math.min(skip, length);
+            skip -= skipped;
+            offset += skipped;
+            length -= skipped;
+        }
+        try {
+            ByteBuffer chunk = ByteBuffer.wrap(data, offset, length);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot write spool file " + temp, e);
+        }
+    }
+
+    /**
+     * Flush the data to disk and move it into place
+     *
+     * @return Spool file
+     */
+    Path commit() {
+        try {
+            channel.force(true);
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            abort();
+            throw new ZKTecoException("Cannot write spool file " + file, e);
+        }
+    }
+
+    /**
+     * Discard the partial data
+     */
+    void abort() {
+        try {
+            channel.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            // Leaves a stray temporary file; a completed spool file is never touched
+        }
+    }
+}
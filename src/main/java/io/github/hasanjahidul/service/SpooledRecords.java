@@ -0,0 +1,84 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a spool file of fixed-size records, memory-mapped so
+ * the records stay on disk and in the page cache rather than on the heap.
+ * A record is decoded only when it is read by index. The mapping is
+ * released when the view is garbage collected.
+ * Not thread-safe; use one view per thread.
+ *
+ * @param <T> Record type
+ */
+public final class SpooledRecords<T> {
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int recordSize;
+    private final int size;
+    private final FixedSizeRecordDecoder.RecordParser<T> parser;
+    private final byte[] record;
+
+    /**
+     * Map a spool file
+     *
+     * @param file       Spool file
+     * @param recordSize Size of one record
+     * @param parser     Record parser
+     */
+    SpooledRecords(Path file, int recordSize, FixedSizeRecordDecoder.RecordParser<T> parser) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new ZKTecoException("Spool file too large to map: " + file);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot map spool file " + file, e);
+        }
+        this.file = file;
+        this.recordSize = recordSize;
+        this.size = buffer.capacity() / recordSize;
+        this.parser = parser;
+        this.record = new byte[recordSize];
+    }
+
+    /**
+     * Get number of records
+     *
+     * @return Record count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decode a record
+     *
+     * @param index Record index
+     * @return Record
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        buffer.get(index * recordSize, record);
+        return parser.parse(record, 0);
+    }
+
+    /**
+     * Get the spool file
+     *
+     * @return File path
+     */
+    public Path getFile() {
+        return file;
+    }
+}
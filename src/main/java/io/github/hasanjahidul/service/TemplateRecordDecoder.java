@@ -0,0 +1,128 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.FingerTemplate;
+import io.github.hasanjahidul.protocol.DataChunkHandler;
+import io.github.hasanjahidul.util.PacketUtil;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental decoder for the fingerprint template transfer: a 4-byte
+ * dataset length, then variable-length records of record size (2 bytes),
+ * uid (2), finger index (1) and flag (1) followed by the template bytes.
+ * Template bytes are copied from the packet buffer straight into the
+ * template's own array, so no record is buffered twice and the transfer
+ * is never held whole.
+ */
+class TemplateRecordDecoder implements DataChunkHandler {
+
+    private static final int LENGTH_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 6;
+
+    private final Consumer<? super FingerTemplate> consumer;
+    private final byte[] header = new byte[RECORD_HEADER_SIZE];
+    private int headerLength;
+    private int skip;
+    private int remaining = -1;
+    private byte[] template;
+    private int templateLength;
+    private int count;
+
+    /**
+     * Create decoder
+     *
+     * @param prefix   Number of leading transfer bytes to skip before the dataset length
+     * @param consumer Receives each decoded template
+     */
+    TemplateRecordDecoder(int prefix, Consumer<? super FingerTemplate> consumer) {
+        this.skip = prefix;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void onChunk(byte[] data, int offset, int length) {
+        if (skip > 0) {
+            int skipped = Math.min(skip, length);
+            skip -= skipped;
+            offset += skipped;
+            length -= skipped;
+        }
+
+        // Dataset length, possibly split across packets
+        if (remaining < 0) {
+            int needed = Math.min(LENGTH_SIZE - headerLength, length);
+            System.arraycopy(data, offset, header, headerLength, needed);
+            headerLength += needed;
+            offset += needed;
+            length -= needed;
+            if (headerLength < LENGTH_SIZE) {
+                return;
+            }
+            remaining = PacketUtil.bytesToInt(header, 0, LENGTH_SIZE);
+            headerLength = 0;
+        }
+
+        // Bytes past the announced length are padding
+        length = Math.min(length, remaining);
+        remaining -= length;
+        while (length > 0) {
+            int consumed;
+            if (template == null) {
+                consumed = Math.min(RECORD_HEADER_SIZE - headerLength, length);
+                System.arraycopy(data, offset, header, headerLength, consumed);
+                headerLength += consumed;
+                if (headerLength == RECORD_HEADER_SIZE) {
+                    int size = PacketUtil.bytesToInt(header, 0, 2);
+                    if (size < RECORD_HEADER_SIZE) {
+                        throw new ZKTecoException("Invalid template record size " + size + " after "
+                                + count + " templates");
+                    }
+                    template = new byte[size - RECORD_HEADER_SIZE];
+                    templateLength = 0;
+                }
+            } else {
+                consumed = Math.min(template.length - templateLength, length);
+                System.arraycopy(data, offset, template, templateLength, consumed);
+                templateLength += consumed;
+            }
+            offset += consumed;
+            length -= consumed;
+
+            if (template != null && templateLength == template.length) {
+                emit();
+            }
+        }
+    }
+
+    /**
+     * Get number of templates delivered to the consumer
+     *
+     * @return Template count
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Check whether the transfer ended on a record boundary
+     *
+     * @return true if every announced byte was decoded
+     */
+    boolean isComplete() {
+        return remaining == 0 && headerLength == 0 && template == null;
+    }
+
+    private void emit() {
+        FingerTemplate record = FingerTemplate.builder()
+                .uid(PacketUtil.bytesToInt(header, 2, 2))
+                .fingerIndex(header[4])
+                .flag(header[5])
+                .template(template)
+                .build();
+        template = null;
+        headerLength = 0;
+        consumer.accept(record);
+        count++;
+    }
+}
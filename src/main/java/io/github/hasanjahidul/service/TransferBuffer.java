@@ -0,0 +1,51 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.protocol.DataChunkHandler;
+
+import java.util.Arrays;
+
+/**
+ * Collects a whole data transfer into one array, for decoders that need the
+ * complete buffer rather than packet-by-packet delivery.
+ */
+class TransferBuffer implements DataChunkHandler {
+
+    private byte[] data;
+    private int length;
+
+    /**
+     * Create buffer
+     *
+     * @param capacity Expected transfer size
+     */
+    TransferBuffer(int capacity) {
+        this.data = new byte[Math.max(16, capacity)];
+    }
+
+    @Override
+    public void onChunk(byte[] chunk, int offset, int chunkLength) {
+        if (length + chunkLength > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + chunkLength, data.length * 2));
+        }
+        System.arraycopy(chunk, offset, data, length, chunkLength);
+        length += chunkLength;
+    }
+
+    /**
+     * Get the collected bytes; valid up to {@link #getLength()}
+     *
+     * @return Backing array
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Get number of bytes collected
+     *
+     * @return Length
+     */
+    int getLength() {
+        return length;
+    }
+}
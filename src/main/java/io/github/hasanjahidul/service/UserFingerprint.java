@@ -0,0 +1,69 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.UserInfo;
+
+/**
+ * Compact 64-bit fingerprint of the user fields the device stores (uid,
+ * user ID, name, password, card and role), for telling which users of a
+ * roster differ from the device without comparing records field by field.
+ * Fields are normalized the way a record reads back from the device, and
+ * strings are hashed in the encoding they are written with, so a user that
+ * was written unchanged fingerprints the same as its download even when the
+ * charset cannot represent every character of a name.
+ */
+final class UserFingerprint {
+
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+
+    private UserFingerprint() {
+        // Utility class
+    }
+
+    /**
+     * Get the fingerprint of a user
+     *
+     * @param user User
+     * @return Fingerprint
+     */
+    static long of(UserInfo user) {
+        String userId = normalize(user.getUserId());
+        String name = normalize(user.getName());
+        // The device reports an empty name as the user ID
+        if (name.isEmpty()) {
+            name = userId;
+        }
+
+        long hash = OFFSET_BASIS;
+        hash = mix(hash, user.getUid() == null ? 0 : user.getUid());
+        hash = mix(hash, userId);
+        hash = mix(hash, name);
+        hash = mix(hash, normalize(user.getPassword()));
+        hash = mix(hash, user.getCardno() == null ? 0 : user.getCardno());
+        hash = mix(hash, user.getRole() == null ? 0 : user.getRole());
+        return hash;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    private static long mix(long hash, String value) {
+        // Same encoding as the user record, so unmappable characters hash as read back
+        byte[] bytes = value.getBytes();
+        // Length first, so adjacent fields cannot shift into each other
+        hash = mix(hash, bytes.length);
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        // FNV-1a over the 8 little-endian bytes
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xFF)) * PRIME;
+        }
+        return hash;
+    }
+}
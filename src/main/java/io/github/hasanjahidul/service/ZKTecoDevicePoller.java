@@ -0,0 +1,210 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.AttendanceSyncResult;
+import io.github.hasanjahidul.model.AttendanceWatermark;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.store.WatermarkStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls attendance from a set of devices on a shared, bounded scheduler and
+ * publishes new records to an {@link AttendanceSink}.
+ * Each device is synced incrementally through the watermark store, on its
+ * own interval. The first poll of each device is delayed by a random offset
+ * and every later poll by a random extra delay, both up to the configured
+ * jitter, so devices do not all poll at the same moment.
+ */
+@Slf4j
+public class ZKTecoDevicePoller implements AutoCloseable {
+
+    /** Default number of poller threads */
+    public static final int DEFAULT_THREADS = 4;
+    /** Default maximum random delay added to poll times in milliseconds */
+    public static final long DEFAULT_MAX_JITTER = 5000;
+
+    private final ZKTecoSessionPool pool;
+    private final WatermarkStore store;
+    private final AttendanceSink sink;
+    private final long maxJitter;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final List<PolledDevice> devices = new ArrayList<>();
+    private volatile boolean running = false;
+
+    /**
+     * Create poller
+     *
+     * @param pool      Session pool
+     * @param store     Watermark store for incremental syncs
+     * @param sink      Receives collected records
+     * @param threads   Number of devices polled at once
+     * @param maxJitter Maximum random delay added to poll times in milliseconds
+     */
+    public ZKTecoDevicePoller(ZKTecoSessionPool pool, WatermarkStore store, AttendanceSink sink,
+                              int threads, long maxJitter) {
+        this.pool = pool;
+        this.store = store;
+        this.sink = sink;
+        this.maxJitter = maxJitter;
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "zkteco-poller-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Add a device to poll. Devices added after {@link #start()} are scheduled immediately.
+     *
+     * @param endpoint     Device endpoint
+     * @param pollInterval Time between polls in milliseconds
+     */
+    public synchronized void addDevice(DeviceEndpoint endpoint, long pollInterval) {
+        if (pollInterval <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive for " + endpoint);
+        }
+        PolledDevice device = new PolledDevice(endpoint, pollInterval);
+        devices.add(device);
+        if (running) {
+            schedule(device, jitter(Math.min(maxJitter, pollInterval)));
+        }
+    }
+
+    /**
+     * Start polling all added devices
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (PolledDevice device : devices) {
+            // Spread first polls over the jitter window (or the interval, if shorter)
+            schedule(device, jitter(Math.min(maxJitter, device.pollInterval)));
+        }
+        log.info("Polling {} devices on {} threads", devices.size(), scheduler.getCorePoolSize());
+    }
+
+    /**
+     * Check if the poller is running
+     *
+     * @return true after start until close
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get polled devices
+     *
+     * @return Device endpoints
+     */
+    public synchronized List<DeviceEndpoint> getDevices() {
+        List<DeviceEndpoint> endpoints = new ArrayList<>(devices.size());
+        devices.forEach(device -> endpoints.add(device.endpoint));
+        return endpoints;
+    }
+
+    /**
+     * Stop polling; polls in progress finish on their own
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Poll one device once and publish the result
+     *
+     * @param device Device to poll
+     */
+    private void poll(PolledDevice device) {
+        DeviceEndpoint endpoint = device.endpoint;
+        try {
+            DeferredWatermarkStore watermarks = new DeferredWatermarkStore(store);
+            List<AttendanceRecord> records = new ArrayList<>();
+            AttendanceSyncResult result = pool.execute(endpoint, service -> {
+                // The pool may run the operation again on a fresh session
+                records.clear();
+                return service.syncAttendance(watermarks, records::add);
+            });
+            sink.onAttendance(endpoint, records, result);
+            watermarks.commit();
+        } catch (Exception e) {
+            log.warn("Polling {} failed: {}", endpoint, e.getMessage());
+            try {
+                sink.onError(endpoint, e);
+            } catch (Exception sinkError) {
+                log.warn("Sink failed to handle error for {}: {}", endpoint, sinkError.getMessage());
+            }
+        } finally {
+            if (running) {
+                schedule(device, device.pollInterval + jitter(maxJitter));
+            }
+        }
+    }
+
+    private void schedule(PolledDevice device, long delay) {
+        try {
+            scheduler.schedule(() -> poll(device), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Rejected after close
+            log.debug("Not scheduling {}: {}", device.endpoint, e.getMessage());
+        }
+    }
+
+    private static long jitter(long max) {
+        return max > 0 ? ThreadLocalRandom.current().nextLong(max) : 0;
+    }
+
+    /**
+     * A device and its poll interval
+     */
+    private static final class PolledDevice {
+        private final DeviceEndpoint endpoint;
+        private final long pollInterval;
+
+        private PolledDevice(DeviceEndpoint endpoint, long pollInterval) {
+            this.endpoint = endpoint;
+            this.pollInterval = pollInterval;
+        }
+    }
+
+    /**
+     * Holds back the watermark of a poll until the sink has accepted its records
+     */
+    private static final class DeferredWatermarkStore implements WatermarkStore {
+        private final WatermarkStore delegate;
+        private AttendanceWatermark pending;
+
+        private DeferredWatermarkStore(WatermarkStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public AttendanceWatermark load(String serialNumber) {
+            return delegate.load(serialNumber);
+        }
+
+        @Override
+        public void save(AttendanceWatermark watermark) {
+            pending = watermark;
+        }
+
+        private void commit() {
+            if (pending != null) {
+                delegate.save(pending);
+            }
+        }
+    }
+}
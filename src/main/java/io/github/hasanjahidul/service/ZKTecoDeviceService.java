@@ -1,19 +1,46 @@
 package io.github.hasanjahidul.service;
 
 import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceBatch;
 import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.AttendanceSyncResult;
+import io.github.hasanjahidul.model.AttendanceWatermark;
 import io.github.hasanjahidul.model.DeviceInfo;
+import io.github.hasanjahidul.model.DeviceOptions;
+import io.github.hasanjahidul.model.DeviceSizes;
+import io.github.hasanjahidul.model.FingerTemplate;
 import io.github.hasanjahidul.model.UserInfo;
+import io.github.hasanjahidul.model.UserSyncResult;
+import io.github.hasanjahidul.protocol.DataChunkHandler;
+import io.github.hasanjahidul.protocol.TransportType;
 import io.github.hasanjahidul.protocol.ZKTecoCommand;
 import io.github.hasanjahidul.protocol.ZKTecoProtocol;
+import io.github.hasanjahidul.store.WatermarkStore;
+import io.github.hasanjahidul.util.PacketHeader;
 import io.github.hasanjahidul.util.PacketUtil;
+import io.github.hasanjahidul.util.TimeCodec;
+import io.github.hasanjahidul.util.UserIdTable;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Main service for interacting with ZKTeco devices
@@ -21,7 +48,29 @@ import java.util.List;
 @Slf4j
 public class ZKTecoDeviceService implements AutoCloseable {
 
+    static final int ATTENDANCE_RECORD_SIZE = 40;
+    static final int USER_RECORD_SIZE = 72;
+    private static final int ATTENDANCE_PREFIX = 10;
+    private static final int USER_PREFIX = 11;
+    private static final int SET_USER_RECORD_SIZE = 72;
+    private static final int BULK_USER_RECORD_SIZE = SET_USER_RECORD_SIZE + 1;
+    private static final int DATA_HEADER_SIZE = 8;
+    /** Default transfer size in bytes from which records are decoded in parallel */
+    public static final int DEFAULT_PARALLEL_PARSE_THRESHOLD = 1 << 20;
+
     private final ZKTecoProtocol protocol;
+    private boolean bufferedReads = false;
+    private int parallelParseThreshold = DEFAULT_PARALLEL_PARSE_THRESHOLD;
+    private TimeCodec timeCodec = TimeCodec.systemDefault();
+    private DeviceOptionsCache optionsCache = new DeviceOptionsCache();
+    private boolean skipUnchangedDownloads = false;
+    // Last download and the device count it was taken at, for skipUnchangedDownloads
+    private List<AttendanceRecord> lastAttendance;
+    private int lastAttendanceCount = -1;
+    private List<UserInfo> lastUsers;
+    private int lastUserCount = -1;
+    // User IDs decoded by this session, shared by attendance and user downloads
+    private final UserIdTable userIds = new UserIdTable();
 
     /**
      * Create ZKTeco device service with default port
@@ -42,6 +91,17 @@ public class ZKTecoDeviceService implements AutoCloseable {
         this.protocol = new ZKTecoProtocol(ipAddress, port);
     }
 
+    /**
+     * Create ZKTeco device service with custom port and transport
+     *
+     * @param ipAddress     IP address of the device
+     * @param port          Port number (default is 4370)
+     * @param transportType UDP or TCP
+     */
+    public ZKTecoDeviceService(String ipAddress, int port, TransportType transportType) {
+        this.protocol = new ZKTecoProtocol(ipAddress, port, transportType);
+    }
+
     /**
      * Connect to device
      *
@@ -68,27 +128,175 @@ public class ZKTecoDeviceService implements AutoCloseable {
     }
 
     /**
-     * Get device information
+     * Abort the command or transfer running in another thread by closing the
+     * socket; the service must be closed or reconnected afterwards
+     */
+    public void abort() {
+        protocol.abort();
+    }
+
+    /**
+     * Check that no command or data transfer is left half-read
+     *
+     * @return true if nothing is in flight
+     */
+    public boolean isIdle() {
+        return protocol.isIdle();
+    }
+
+    /**
+     * Get device information. Static options come from the options cache;
+     * only the device time is read on every call.
      *
      * @return Device information
      */
     public DeviceInfo getDeviceInfo() {
+        DeviceOptions options = getDeviceOptions();
+        DeviceSizes sizes = getSizes();
+
+        return DeviceInfo.builder()
+                .version(options.getVersion())
+                .osVersion(options.getOsVersion())
+                .platform(options.getPlatform())
+                .serialNumber(options.getSerialNumber())
+                .deviceName(options.getDeviceName())
+                .deviceTime(protocol.getDeviceTime())
+                .userCount(sizes == null ? null : sizes.getUserCount())
+                .fingerprintCount(sizes == null ? null : sizes.getFingerprintCount())
+                .attendanceCount(sizes == null ? null : sizes.getAttendanceCount())
+                .faceCount(sizes == null ? null : sizes.getFaceCount())
+                .build();
+    }
+
+    /**
+     * Get record counts and capacities (CMD_GET_FREE_SIZES)
+     *
+     * @return Sizes, or null if the device does not report them
+     */
+    public DeviceSizes getSizes() {
         if (!protocol.isConnected()) {
             throw new ZKTecoException("Not connected to device");
         }
 
-        return DeviceInfo.builder()
+        // Twenty 4-byte counters, optionally followed by three face counters (as per pyzk)
+        PacketHeader response = protocol.exchange(ZKTecoCommand.CMD_GET_FREE_SIZES, null);
+        if (response.getPayloadLength() < 80) {
+            log.debug("Device did not report record counts");
+            return null;
+        }
+        boolean faces = response.getPayloadLength() >= 92;
+        return DeviceSizes.builder()
+                .userCount(response.getPayloadInt(4 * 4, 4))
+                .fingerprintCount(response.getPayloadInt(6 * 4, 4))
+                .attendanceCount(response.getPayloadInt(8 * 4, 4))
+                .cardCount(response.getPayloadInt(12 * 4, 4))
+                .fingerprintCapacity(response.getPayloadInt(14 * 4, 4))
+                .userCapacity(response.getPayloadInt(15 * 4, 4))
+                .attendanceCapacity(response.getPayloadInt(16 * 4, 4))
+                .faceCount(faces ? response.getPayloadInt(80, 4) : null)
+                .faceCapacity(faces ? response.getPayloadInt(88, 4) : null)
+                .build();
+    }
+
+    /**
+     * Check record counts before downloading, and skip the download when the
+     * count has not changed since the last one: getAttendance and getUsers
+     * then return copies of the previous result and syncAttendance delivers
+     * nothing. Only the count is compared: a log that was cleared and
+     * refilled to exactly the same count, or a user's name, card or password
+     * edited on the terminal keypad, is only picked up once the count
+     * changes. Writes made through this service always force a download.
+     *
+     * @param skipUnchangedDownloads true to skip unchanged downloads
+     */
+    public void setSkipUnchangedDownloads(boolean skipUnchangedDownloads) {
+        this.skipUnchangedDownloads = skipUnchangedDownloads;
+        if (!skipUnchangedDownloads) {
+            forgetDownloads();
+        }
+    }
+
+    private void forgetDownloads() {
+        lastAttendance = null;
+        lastAttendanceCount = -1;
+        lastUsers = null;
+        lastUserCount = -1;
+    }
+
+    // Downloads are kept and handed out as element copies, so callers editing a result cannot change the cache
+    private static List<AttendanceRecord> copyAttendance(List<AttendanceRecord> records) {
+        List<AttendanceRecord> copy = new ArrayList<>(records.size());
+        for (AttendanceRecord record : records) {
+            copy.add(new AttendanceRecord(record.getUid(), record.getUserId(), record.getState(),
+                    record.getTimestamp(), record.getType()));
+        }
+        return copy;
+    }
+
+    private static List<UserInfo> copyUsers(List<UserInfo> users) {
+        List<UserInfo> copy = new ArrayList<>(users.size());
+        for (UserInfo user : users) {
+            copy.add(new UserInfo(user.getUid(), user.getUserId(), user.getName(), user.getPassword(),
+                    user.getCardno(), user.getRole(), user.getGroupId(), user.getTimezone()));
+        }
+        return copy;
+    }
+
+    /**
+     * Get the static device options, read from the device in one pass when
+     * the cached snapshot is missing or expired
+     *
+     * @return Options snapshot
+     */
+    public DeviceOptions getDeviceOptions() {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+        return optionsCache.get(getDeviceAddress(), this::readDeviceOptions);
+    }
+
+    /**
+     * Drop the cached options of this device, e.g. after changing its configuration
+     */
+    public void invalidateDeviceOptions() {
+        optionsCache.invalidate(getDeviceAddress());
+    }
+
+    /**
+     * Share an options cache between services, e.g. across a session pool
+     *
+     * @param optionsCache Options cache
+     */
+    public void setOptionsCache(DeviceOptionsCache optionsCache) {
+        this.optionsCache = optionsCache;
+    }
+
+    private DeviceOptions readDeviceOptions() {
+        DeviceOptions options = DeviceOptions.builder()
                 .version(protocol.getString(ZKTecoCommand.CMD_GET_VERSION, ""))
                 .osVersion(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~OS"))
                 .platform(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~Platform"))
                 .serialNumber(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~SerialNumber"))
                 .deviceName(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~DeviceName"))
-                .deviceTime(protocol.getDeviceTime())
+                .workCode(protocol.getString(ZKTecoCommand.CMD_DEVICE, "WorkCode"))
+                .ssr(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~SSR"))
+                .pinWidth(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~PIN2Width"))
+                .faceFunctionOn(protocol.getString(ZKTecoCommand.CMD_DEVICE, "FaceFunOn"))
+                .firmwareVersion(protocol.getString(ZKTecoCommand.CMD_DEVICE, "~ZKFPVersion"))
+                .fetchedAt(Instant.now())
                 .build();
+        log.debug("Read device options from {}", getDeviceAddress());
+        return options;
+    }
+
+    private String getDeviceAddress() {
+        return protocol.getIpAddress() + ":" + protocol.getPort();
     }
 
     /**
-     * Get all attendance records from device
+     * Get all attendance records from device.
+     * Logs of at least the parallel parse threshold are downloaded whole and
+     * decoded on the common fork/join pool.
      *
      * @return List of attendance records
      */
@@ -97,36 +305,65 @@ public class ZKTecoDeviceService implements AutoCloseable {
             throw new ZKTecoException("Not connected to device");
         }
 
-        List<AttendanceRecord> records = new ArrayList<>();
+        DeviceSizes sizes = skipUnchangedDownloads ? getSizes() : null;
+        if (sizes != null && lastAttendance != null && sizes.getAttendanceCount() == lastAttendanceCount) {
+            log.debug("Attendance count unchanged at {}, skipping download", lastAttendanceCount);
+            return copyAttendance(lastAttendance);
+        }
 
         try {
-            // Disable device during data transfer
             protocol.disableDevice();
 
-            // Request attendance data (CMD_ATT_LOG_RRQ)
-            byte[] response = protocol.sendCommand(ZKTecoCommand.CMD_ATT_LOG_RRQ, null);
-
-            // Check if device is preparing to send data
-            int[] header = PacketUtil.parseHeader(response);
-            if (header == null || header[0] != ZKTecoCommand.CMD_PREPARE_DATA) {
+            List<AttendanceRecord> records = downloadRecords(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0,
+                    ATTENDANCE_PREFIX, ATTENDANCE_RECORD_SIZE,
+                    (data, offset) -> parseAttendanceRecord(data, offset, userIds), ZKTecoDeviceService::attendanceParser);
+            if (records == null) {
                 log.warn("Device did not prepare data for attendance records");
-                return records;
-            }
-
-            // Receive all data packets
-            byte[] allData = protocol.receiveDataPackets();
-            
-            if (allData.length > 10) {
-                // Skip first 10 bytes as per PHP implementation
-                byte[] attData = new byte[allData.length - 10];
-                System.arraycopy(allData, 10, attData, 0, attData.length);
-                
-                records = parseAttendanceData(attData);
+                return new ArrayList<>();
             }
 
             log.info("Retrieved {} attendance records", records.size());
+            if (sizes != null) {
+                lastAttendance = copyAttendance(records);
+                lastAttendanceCount = sizes.getAttendanceCount();
+            }
             return records;
 
+        } finally {
+            protocol.enableDevice();
+        }
+    }
+
+    /**
+     * Stream attendance records from device.
+     * Each 40-byte record is decoded and handed to the consumer as soon as its
+     * bytes arrive, so memory use does not grow with the size of the log.
+     * The consumer runs on the calling thread between packet reads.
+     *
+     * @param consumer Receives each attendance record
+     * @return Number of records delivered
+     */
+    public int streamAttendance(Consumer<? super AttendanceRecord> consumer) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+
+        try {
+            // Disable device during data transfer
+            protocol.disableDevice();
+
+            // Request attendance data (CMD_ATT_LOG_RRQ) and decode records as packets arrive,
+            // skipping the first 10 bytes as per PHP implementation
+            FixedSizeRecordDecoder<AttendanceRecord> decoder = new FixedSizeRecordDecoder<>(
+                    ATTENDANCE_PREFIX, ATTENDANCE_RECORD_SIZE, (data, offset) -> parseAttendanceRecord(data, offset, userIds), consumer);
+            if (downloadData(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, size -> decoder) < 0) {
+                log.warn("Device did not prepare data for attendance records");
+                return 0;
+            }
+
+            log.info("Retrieved {} attendance records", decoder.getCount());
+            return decoder.getCount();
+
         } finally {
             // Re-enable device
             protocol.enableDevice();
@@ -134,99 +371,413 @@ public class ZKTecoDeviceService implements AutoCloseable {
     }
 
     /**
-     * Parse attendance data from binary response
-     * Matches PHP parsing logic: each record is 40 bytes
+     * Get all attendance records from device in columnar form.
+     * Records are decoded straight into primitive arrays as packets arrive,
+     * so a large log takes a fraction of the heap of {@link #getAttendance()}.
      *
-     * @param data Binary data
-     * @return List of attendance records
+     * @return Attendance batch
      */
-    private List<AttendanceRecord> parseAttendanceData(byte[] data) {
-        List<AttendanceRecord> records = new ArrayList<>();
+    public AttendanceBatch getAttendanceBatch() {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
 
-        // Each record is exactly 40 bytes (as per PHP implementation)
-        int recordSize = 40;
-        int offset = 0;
+        try {
+            protocol.disableDevice();
 
-        while (offset + recordSize <= data.length) {
-            try {
-                // Parse according to PHP logic:
-                // Bytes 0-1: blank
-                // Bytes 2-3: uid (little endian)
-                // Bytes 4-12: user ID (9 bytes, null-terminated)
-                // Bytes 13-27: padding/unknown
-                // Byte 28: state
-                // Bytes 29-32: timestamp (4 bytes, little endian)
-                // Byte 33: type
-                // Bytes 34-39: padding
-                
-                // Extract UID (bytes 2-3)
-                int u1 = data[offset + 2] & 0xFF;
-                int u2 = data[offset + 3] & 0xFF;
-                long uid = u1 + (u2 * 256);
-                
-                // Extract user ID (bytes 4-12, 9 bytes)
-                byte[] userIdBytes = new byte[9];
-                System.arraycopy(data, offset + 4, userIdBytes, 0, 9);
-                String userId = extractString(userIdBytes);
-                
-                // Extract state (byte 28)
-                int state = data[offset + 28] & 0xFF;
-                
-                // Extract timestamp (bytes 29-32, 4 bytes little endian)
-                int timestampEncoded = PacketUtil.bytesToInt(data, offset + 29, 4);
-                LocalDateTime timestamp = decodeTime(timestampEncoded);
-                
-                // Extract type (byte 33)
-                int type = data[offset + 33] & 0xFF;
-
-                AttendanceRecord record = AttendanceRecord.builder()
-                        .uid(uid)
-                        .userId(userId)
-                        .timestamp(timestamp)
-                        .state(state)
-                        .type(type)
+            AttendanceBatch[] batch = {new AttendanceBatch(0, timeCodec)};
+            int totalSize = downloadData(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, size -> {
+                batch[0] = new AttendanceBatch(Math.max(0, size - 4) / ATTENDANCE_RECORD_SIZE, timeCodec);
+                return new FixedSizeRecordDecoder<Void>(ATTENDANCE_PREFIX, ATTENDANCE_RECORD_SIZE, (data, offset) -> {
+                    parseAttendanceRecord(data, offset, userIds, batch[0]);
+                    return null;
+                }, record -> { });
+            });
+            if (totalSize < 0) {
+                log.warn("Device did not prepare data for attendance records");
+            }
+
+            log.info("Retrieved {} attendance records", batch[0].size());
+            return batch[0];
+
+        } finally {
+            protocol.enableDevice();
+        }
+    }
+
+    /**
+     * Download the attendance log into a spool file named after the device
+     * serial number ({@code <serial>.attendance.spool}) and map it. Packets are
+     * written to disk as they arrive, so heap use does not depend on the size
+     * of the log, and the file can be reopened with
+     * {@link #openAttendanceSpool(Path)} after a restart without downloading
+     * again. The previous spool file is replaced only once the download has
+     * completed.
+     *
+     * @param directory Spool directory
+     * @return Lazily decoded attendance records
+     */
+    public SpooledRecords<AttendanceRecord> spoolAttendance(Path directory) {
+        Path file = spool(directory.resolve(spoolFileName(requireSerialNumber(), "attendance")),
+                ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, ATTENDANCE_PREFIX);
+        return openAttendanceSpool(file);
+    }
+
+    /**
+     * Map an attendance spool file written by {@link #spoolAttendance(Path)}
+     *
+     * @param file Spool file
+     * @return Lazily decoded attendance records
+     */
+    public static SpooledRecords<AttendanceRecord> openAttendanceSpool(Path file) {
+        return new SpooledRecords<>(file, ATTENDANCE_RECORD_SIZE, attendanceParser());
+    }
+
+    /**
+     * Incrementally sync attendance records from device.
+     * Uses the watermark stored for the device serial number to skip decoding
+     * records that were already delivered, and hands only new records to the
+     * consumer. If the log was cleared or rotated since the last sync, every
+     * record is delivered again. The watermark is saved after the consumer has
+     * seen all records.
+     *
+     * @param store    Watermark store
+     * @param consumer Receives each new attendance record
+     * @return Sync result
+     */
+    public AttendanceSyncResult syncAttendance(WatermarkStore store, Consumer<? super AttendanceRecord> consumer) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+
+        String serialNumber = requireSerialNumber();
+        AttendanceWatermark watermark = store.load(serialNumber);
+
+        if (skipUnchangedDownloads && watermark != null) {
+            DeviceSizes sizes = getSizes();
+            if (sizes != null && sizes.getAttendanceCount() == watermark.getRecordCount()) {
+                log.debug("Attendance count on {} unchanged at {}, skipping download", serialNumber, sizes.getAttendanceCount());
+                return AttendanceSyncResult.builder()
+                        .serialNumber(serialNumber)
+                        .totalRecords(watermark.getRecordCount())
                         .build();
+            }
+        }
 
-                records.add(record);
-                offset += recordSize;
+        try {
+            protocol.disableDevice();
 
-            } catch (Exception e) {
-                log.warn("Error parsing attendance record at offset {}: {}", offset, e.getMessage());
-                offset += recordSize;
+            long storedRecords = watermark == null ? 0 : watermark.getRecordCount();
+            long storedHash = watermark == null ? 0 : watermark.getPrefixHash();
+            boolean[] fullResync = new boolean[1];
+            AttendancePrefixMatcher[] matcher = new AttendancePrefixMatcher[1];
+
+            long[] delivered = new long[1];
+            Consumer<AttendanceRecord> deliver = record -> {
+                if (record != null) {
+                    consumer.accept(record);
+                    delivered[0]++;
+                }
+            };
+
+            // The matcher is built once the transfer size is known, so a shrunken log is caught up front
+            int totalSize = downloadData(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, size -> {
+                long knownRecords = storedRecords;
+                long totalRecords = Math.max(0, size - 4) / ATTENDANCE_RECORD_SIZE;
+                if (totalRecords < knownRecords) {
+                    log.info("Attendance log on {} shrank from {} to {} records, resyncing", serialNumber, knownRecords, totalRecords);
+                    knownRecords = 0;
+                    fullResync[0] = true;
+                }
+                matcher[0] = new AttendancePrefixMatcher(knownRecords, storedHash, userIds);
+                return new FixedSizeRecordDecoder<>(ATTENDANCE_PREFIX, ATTENDANCE_RECORD_SIZE, matcher[0], deliver);
+            });
+            if (totalSize < 0) {
+                log.warn("Device did not prepare data for attendance records");
+                return AttendanceSyncResult.builder().serialNumber(serialNumber).build();
+            }
+
+            if (matcher[0].isPrefixMismatch()) {
+                // Prefix was only hashed, so download again and deliver everything
+                log.info("Attendance log on {} was rotated, resyncing", serialNumber);
+                fullResync[0] = true;
+                matcher[0] = new AttendancePrefixMatcher(0, 0, userIds);
+                FixedSizeRecordDecoder<AttendanceRecord> decoder = new FixedSizeRecordDecoder<>(
+                        ATTENDANCE_PREFIX, ATTENDANCE_RECORD_SIZE, matcher[0], deliver);
+                if (downloadData(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, size -> decoder) < 0) {
+                    throw new ZKTecoException("Device did not prepare data for attendance resync");
+                }
+            }
+
+            store.save(AttendanceWatermark.builder()
+                    .serialNumber(serialNumber)
+                    .recordCount(matcher[0].getRecordCount())
+                    .prefixHash(matcher[0].getHash())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+
+            log.info("Synced {} new attendance records from {} ({} total)", delivered[0], serialNumber, matcher[0].getRecordCount());
+            return AttendanceSyncResult.builder()
+                    .serialNumber(serialNumber)
+                    .newRecords(delivered[0])
+                    .totalRecords(matcher[0].getRecordCount())
+                    .fullResync(fullResync[0])
+                    .build();
+
+        } finally {
+            protocol.enableDevice();
+        }
+    }
+
+    /**
+     * Download a dataset and feed it to the handler built for its size.
+     * Uses the buffered chunked read when enabled, otherwise the pushed
+     * CMD_PREPARE_DATA transfer. Either way the handler sees the layout
+     * {@link ZKTecoProtocol#receiveDataPackets()} returns: an 8-byte packet
+     * header, the 4-byte dataset size, then the records.
+     *
+     * @param command        Read command
+     * @param fct            Function code, 0 if none
+     * @param handlerFactory Builds the handler from the dataset size
+     * @return Dataset size, or -1 if the device did not prepare data
+     */
+    private int downloadData(int command, int fct, IntFunction<DataChunkHandler> handlerFactory) {
+        if (bufferedReads) {
+            int size = protocol.prepareBuffer(command, fct, 0);
+            DataChunkHandler handler = handlerFactory.apply(size);
+            try {
+                handler.onChunk(new byte[DATA_HEADER_SIZE], 0, DATA_HEADER_SIZE);
+                protocol.readBuffer(0, size, handler);
+            } finally {
+                protocol.freeData();
             }
+            return size;
         }
 
+        PacketHeader response = protocol.exchange(command, fct == 0 ? null : new byte[]{(byte) fct});
+
+        // Check if device is preparing to send data
+        if (response.getCommand() != ZKTecoCommand.CMD_PREPARE_DATA) {
+            return -1;
+        }
+        int size = response.getPayloadInt(0, 4);
+        protocol.receiveDataPackets(handlerFactory.apply(size));
+        return size;
+    }
+
+    /**
+     * Download fixed-size records into a list. Transfers below the parallel
+     * parse threshold are decoded as packets arrive; larger ones are collected
+     * whole and decoded in parallel, one parser per split.
+     *
+     * @param command    Read command
+     * @param fct        Function code, 0 for none
+     * @param prefix     Number of leading transfer bytes to skip
+     * @param recordSize Size of one record
+     * @param parser     Parser used for sequential decoding
+     * @param parsers    Creates a parser per split for parallel decoding
+     * @return Records, or null if the device did not prepare data
+     */
+    private <T> List<T> downloadRecords(int command, int fct, int prefix, int recordSize,
+                                        FixedSizeRecordDecoder.RecordParser<T> parser,
+                                        Supplier<FixedSizeRecordDecoder.RecordParser<T>> parsers) {
+        ArrayList<T> records = new ArrayList<>();
+        TransferBuffer[] buffer = new TransferBuffer[1];
+        int totalSize = downloadData(command, fct, size -> {
+            records.ensureCapacity(Math.max(0, size - 4) / recordSize);
+            if (parallelParseThreshold > 0 && size >= parallelParseThreshold) {
+                buffer[0] = new TransferBuffer(size + DATA_HEADER_SIZE);
+                return buffer[0];
+            }
+            return new FixedSizeRecordDecoder<>(prefix, recordSize, parser, records::add);
+        });
+        if (totalSize < 0) {
+            return null;
+        }
+        if (buffer[0] != null) {
+            TransferBuffer data = buffer[0];
+            return StreamSupport.stream(new RecordSpliterator<>(data.getData(), prefix,
+                    data.getLength() - prefix, recordSize, parsers), true).collect(Collectors.toList());
+        }
         return records;
     }
-    
+
     /**
-     * Decode ZKTeco timestamp to LocalDateTime
-     * Matches PHP decodeTime() function
+     * Set the transfer size from which attendance and user downloads are
+     * collected whole and decoded in parallel
      *
-     * @param encodedTime Encoded timestamp
-     * @return LocalDateTime
+     * @param parallelParseThreshold Size in bytes, 0 to always decode as packets arrive
      */
-    private LocalDateTime decodeTime(int encodedTime) {
-        int t = encodedTime;
-        
-        int second = t % 60;
-        t = t / 60;
-        
-        int minute = t % 60;
-        t = t / 60;
+    public void setParallelParseThreshold(int parallelParseThreshold) {
+        this.parallelParseThreshold = parallelParseThreshold;
+    }
+
+    /**
+     * Use the buffered read flow (CMD_PREPARE_BUFFER / CMD_READ_BUFFER) for
+     * attendance, user and template downloads instead of the pushed transfer
+     *
+     * @param bufferedReads true to pull data in pipelined chunks
+     */
+    public void setBufferedReads(boolean bufferedReads) {
+        this.bufferedReads = bufferedReads;
+    }
+
+    /**
+     * Set the zone the device clock runs in, used to turn device timestamps
+     * into instants (default: the system zone)
+     *
+     * @param zoneId Device zone
+     */
+    public void setZoneId(ZoneId zoneId) {
+        this.timeCodec = TimeCodec.of(zoneId);
+    }
+
+    /**
+     * Get the time codec for this device's zone
+     *
+     * @return Time codec
+     */
+    public TimeCodec getTimeCodec() {
+        return timeCodec;
+    }
+
+    /**
+     * Tune buffered reads
+     *
+     * @param chunkSize Bytes per chunk request, 0 for the transport default
+     * @param window    Number of chunk requests kept in flight
+     */
+    public void setBufferedReadOptions(int chunkSize, int window) {
+        protocol.setReadChunkSize(chunkSize);
+        protocol.setReadWindow(window);
+    }
+
+    /**
+     * Set timeout bounds. Actual timeouts follow the device's measured
+     * round-trip time within these bounds.
+     *
+     * @param minTimeout     Lower bound in milliseconds
+     * @param initialTimeout Timeout before the first RTT sample in milliseconds
+     * @param maxTimeout     Upper bound in milliseconds
+     */
+    public void setTimeouts(int minTimeout, int initialTimeout, int maxTimeout) {
+        protocol.setTimeouts(minTimeout, initialTimeout, maxTimeout);
+    }
+
+    /**
+     * Parse attendance data from binary response
+     * Matches PHP parsing logic: each record is 40 bytes
+     *
+     * @param data Binary data
+     * @return List of attendance records
+     */
+    static List<AttendanceRecord> parseAttendanceData(byte[] data) {
+        return parseAttendanceData(data, DEFAULT_PARALLEL_PARSE_THRESHOLD);
+    }
+
+    /**
+     * Parse attendance data, in parallel if the buffer reaches the threshold
+     *
+     * @param data              Binary data
+     * @param parallelThreshold Size in bytes from which to decode in parallel, 0 for never
+     * @return List of attendance records
+     */
+    static List<AttendanceRecord> parseAttendanceData(byte[] data, int parallelThreshold) {
+        Stream<AttendanceRecord> records = attendanceStream(data);
+        if (parallelThreshold > 0 && data.length >= parallelThreshold) {
+            records = records.parallel();
+        }
+        return records.collect(Collectors.toList());
+    }
+
+    /**
+     * Stream the records of a raw attendance buffer (40-byte records without
+     * the transfer prefix), e.g. an archived dump. The stream splits on record
+     * boundaries, so {@code attendanceStream(data).parallel()} decodes on all
+     * cores. Unparseable records are skipped.
+     *
+     * @param data Binary data
+     * @return Sequential stream of attendance records
+     */
+    public static Stream<AttendanceRecord> attendanceStream(byte[] data) {
+        return StreamSupport.stream(new RecordSpliterator<>(data, 0, data.length,
+                ATTENDANCE_RECORD_SIZE, ZKTecoDeviceService::attendanceParser), false);
+    }
+
+    /**
+     * Create an attendance parser with its own user ID table
+     *
+     * @return Record parser
+     */
+    private static FixedSizeRecordDecoder.RecordParser<AttendanceRecord> attendanceParser() {
+        UserIdTable userIds = new UserIdTable();
+        return (data, offset) -> parseAttendanceRecord(data, offset, userIds);
+    }
+
+    /**
+     * Parse a single 40-byte attendance record
+     *
+     * @param data    Binary data
+     * @param offset  Start of the record
+     * @param userIds Intern table for user IDs
+     * @return Attendance record
+     */
+    static AttendanceRecord parseAttendanceRecord(byte[] data, int offset, UserIdTable userIds) {
+        // Parse according to PHP logic:
+        // Bytes 0-1: blank
+        // Bytes 2-3: uid (little endian)
+        // Bytes 4-12: user ID (9 bytes, null-terminated)
+        // Bytes 13-27: padding/unknown
+        // Byte 28: state
+        // Bytes 29-32: timestamp (4 bytes, little endian)
+        // Byte 33: type
+        // Bytes 34-39: padding
         
-        int hour = t % 24;
-        t = t / 24;
+        // Extract UID (bytes 2-3)
+        int u1 = data[offset + 2] & 0xFF;
+        int u2 = data[offset + 3] & 0xFF;
+        long uid = u1 + (u2 * 256);
         
-        int day = t % 31 + 1;
-        t = t / 31;
+        // Extract user ID (bytes 4-12, 9 bytes)
+        String userId = userIds.intern(data, offset + 4, 9);
         
-        int month = t % 12 + 1;
-        t = t / 12;
+        // Extract state (byte 28)
+        int state = data[offset + 28] & 0xFF;
         
-        int year = t + 2000;
+        // Extract timestamp (bytes 29-32, 4 bytes little endian)
+        int timestampEncoded = PacketUtil.bytesToInt(data, offset + 29, 4);
+        LocalDateTime timestamp = TimeCodec.toLocalDateTime(timestampEncoded);
+        if (timestamp == null) {
+            throw new ZKTecoException("Invalid timestamp encoding: " + timestampEncoded);
+        }
         
-        return LocalDateTime.of(year, month, day, hour, minute, second);
+        // Extract type (byte 33)
+        int type = data[offset + 33] & 0xFF;
+
+        return AttendanceRecord.builder()
+                .uid(uid)
+                .userId(userId)
+                .timestamp(timestamp)
+                .state(state)
+                .type(type)
+                .build();
+    }
+    
+    /**
+     * Parse a single 40-byte attendance record into a batch, keeping the
+     * timestamp in the device encoding
+     *
+     * @param data    Binary data
+     * @param offset  Start of the record
+     * @param userIds Intern table for user IDs
+     * @param batch   Batch to append to
+     */
+    static void parseAttendanceRecord(byte[] data, int offset, UserIdTable userIds, AttendanceBatch batch) {
+        batch.add(PacketUtil.bytesToInt(data, offset + 2, 2),
+                userIds.intern(data, offset + 4, 9),
+                PacketUtil.bytesToInt(data, offset + 29, 4),
+                data[offset + 28] & 0xFF,
+                data[offset + 33] & 0xFF);
     }
 
     /**
@@ -239,30 +790,35 @@ public class ZKTecoDeviceService implements AutoCloseable {
             throw new ZKTecoException("Not connected to device");
         }
 
-        List<UserInfo> users = new ArrayList<>();
+        DeviceSizes sizes = skipUnchangedDownloads ? getSizes() : null;
+        if (sizes != null && lastUsers != null && sizes.getUserCount() == lastUserCount) {
+            log.debug("User count unchanged at {}, skipping download", lastUserCount);
+            return copyUsers(lastUsers);
+        }
 
+        List<UserInfo> users = downloadUsers();
+        if (sizes != null) {
+            lastUsers = copyUsers(users);
+            lastUserCount = sizes.getUserCount();
+        }
+        return users;
+    }
+
+    /**
+     * Download all users from device, never from the skip cache
+     */
+    private List<UserInfo> downloadUsers() {
         try {
             protocol.disableDevice();
 
-            // Request user data (CMD_USER_TEMP_RRQ with FCT_USER)
-            byte[] response = protocol.sendCommand(ZKTecoCommand.CMD_USER_TEMP_RRQ, new byte[]{ZKTecoCommand.FCT_USER});
-
-            // Check if device is preparing to send data
-            int[] header = PacketUtil.parseHeader(response);
-            if (header == null || header[0] != ZKTecoCommand.CMD_PREPARE_DATA) {
+            // Request user data (CMD_USER_TEMP_RRQ with FCT_USER), skipping the first 11 bytes
+            // as per PHP implementation
+            List<UserInfo> users = downloadRecords(ZKTecoCommand.CMD_USER_TEMP_RRQ, ZKTecoCommand.FCT_USER,
+                    USER_PREFIX, USER_RECORD_SIZE,
+                    (data, offset) -> parseUserRecord(data, offset, userIds), ZKTecoDeviceService::userParser);
+            if (users == null) {
                 log.warn("Device did not prepare data for users");
-                return users;
-            }
-
-            // Receive all data packets (like PHP recData())
-            byte[] allData = protocol.receiveDataPackets();
-            
-            if (allData.length > 11) {
-                // Skip first 11 bytes as per PHP implementation
-                byte[] userData = new byte[allData.length - 11];
-                System.arraycopy(allData, 11, userData, 0, userData.length);
-                
-                users = parseUserData(userData);
+                return new ArrayList<>();
             }
 
             log.info("Retrieved {} users", users.size());
@@ -273,6 +829,120 @@ public class ZKTecoDeviceService implements AutoCloseable {
         }
     }
 
+    /**
+     * Stream fingerprint templates from device.
+     * Each variable-length template record is decoded as its bytes arrive
+     * and handed to the consumer, so the template table, usually the largest
+     * dataset on a device, is never held whole in memory.
+     * The consumer runs on the calling thread between packet reads.
+     *
+     * @param consumer Receives each template
+     * @return Number of templates delivered
+     */
+    public int streamTemplates(Consumer<? super FingerTemplate> consumer) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+
+        try {
+            protocol.disableDevice();
+
+            // Request template data (CMD_DB_RRQ with FCT_FINGERTMP); records follow the 4-byte dataset length
+            TemplateRecordDecoder decoder = new TemplateRecordDecoder(DATA_HEADER_SIZE, consumer);
+            if (downloadData(ZKTecoCommand.CMD_DB_RRQ, ZKTecoCommand.FCT_FINGERTMP, size -> decoder) < 0) {
+                log.warn("Device did not prepare data for fingerprint templates");
+                return 0;
+            }
+            if (!decoder.isComplete()) {
+                log.warn("Template data ended inside a record after {} templates", decoder.getCount());
+            }
+
+            log.info("Retrieved {} fingerprint templates", decoder.getCount());
+            return decoder.getCount();
+
+        } finally {
+            protocol.enableDevice();
+        }
+    }
+
+    /**
+     * Get all fingerprint templates from device
+     *
+     * @return List of templates
+     */
+    public List<FingerTemplate> getTemplates() {
+        List<FingerTemplate> templates = new ArrayList<>();
+        streamTemplates(templates::add);
+        return templates;
+    }
+
+    /**
+     * Download the user table into a spool file named after the device serial
+     * number ({@code <serial>.users.spool}) and map it
+     *
+     * @param directory Spool directory
+     * @return Lazily decoded users
+     * @see #spoolAttendance(Path)
+     */
+    public SpooledRecords<UserInfo> spoolUsers(Path directory) {
+        Path file = spool(directory.resolve(spoolFileName(requireSerialNumber(), "users")),
+                ZKTecoCommand.CMD_USER_TEMP_RRQ, ZKTecoCommand.FCT_USER, USER_PREFIX);
+        return openUserSpool(file);
+    }
+
+    /**
+     * Map a user spool file written by {@link #spoolUsers(Path)}
+     *
+     * @param file Spool file
+     * @return Lazily decoded users
+     */
+    public static SpooledRecords<UserInfo> openUserSpool(Path file) {
+        return new SpooledRecords<>(file, USER_RECORD_SIZE, userParser());
+    }
+
+    /**
+     * Download data into a spool file
+     *
+     * @param file    Spool file
+     * @param command Read command
+     * @param fct     Function code, 0 for none
+     * @param prefix  Number of leading transfer bytes to skip
+     * @return Spool file
+     */
+    private Path spool(Path file, int command, int fct, int prefix) {
+        SpoolWriter writer = new SpoolWriter(file, prefix);
+        try {
+            protocol.disableDevice();
+            if (downloadData(command, fct, size -> writer) < 0) {
+                throw new ZKTecoException("Device did not prepare data for " + file.getFileName());
+            }
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        } finally {
+            protocol.enableDevice();
+        }
+        log.info("Spooled device data to {}", file);
+        return writer.commit();
+    }
+
+    private static String spoolFileName(String serialNumber, String kind) {
+        return serialNumber.replaceAll("[^A-Za-z0-9._-]", "_") + "." + kind + ".spool";
+    }
+
+    /**
+     * Get the device serial number, failing if the device has none
+     *
+     * @return Serial number
+     */
+    private String requireSerialNumber() {
+        String serialNumber = getDeviceOptions().getSerialNumber();
+        if (serialNumber.isEmpty()) {
+            throw new ZKTecoException("Device did not report a serial number");
+        }
+        return serialNumber;
+    }
+
     /**
      * Parse user data from binary response
      * Matches PHP parsing logic: each record is 72 bytes
@@ -281,86 +951,205 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @param data Binary data
      * @return List of users
      */
-    private List<UserInfo> parseUserData(byte[] data) {
-        List<UserInfo> users = new ArrayList<>();
-        int recordSize = 72;
-        int offset = 0;
+    static List<UserInfo> parseUserData(byte[] data) {
+        return parseUserData(data, DEFAULT_PARALLEL_PARSE_THRESHOLD);
+    }
 
-        while (offset + recordSize <= data.length) {
-            try {
-                // PHP hex positions to byte positions:
-                // - hex pos 2-3 = byte 1 (u1)
-                // - hex pos 4-5 = byte 2 (u2)
-                // - hex pos 6-7 = byte 3 (role)
-                // - hex pos 8-23 = bytes 4-11 (password, 8 bytes)
-                // - hex pos 24-71 = bytes 12-35 (name, 24 bytes)
-                // - hex pos 72-79 = bytes 36-39 (cardno, 4 bytes)
-                // - hex pos 98-171 = bytes 49-85 (userid, 9 bytes)
-                
-                // Extract UID (bytes 1-2, little endian) - PHP skips byte 0
-                int u1 = data[offset + 1] & 0xFF;
-                int u2 = data[offset + 2] & 0xFF;
-                int uid = u1 + (u2 * 256);
-                
-                // Extract role (byte 3)
-                int role = data[offset + 3] & 0xFF;
-                
-                // Extract password (bytes 4-11, 8 bytes)
-                byte[] passwordBytes = new byte[8];
-                System.arraycopy(data, offset + 4, passwordBytes, 0, 8);
-                String password = extractString(passwordBytes);
-                
-                // Extract name (bytes 12-35, 24 bytes)
-                byte[] nameBytes = new byte[24];
-                System.arraycopy(data, offset + 12, nameBytes, 0, 24);
-                String name = extractString(nameBytes);
-                
-                // Extract card number (bytes 36-39, 4 bytes little endian)
-                long cardno = PacketUtil.bytesToInt(data, offset + 36, 4) & 0xFFFFFFFFL;
-                
-                // Extract user ID (bytes 49-57, 9 bytes)
-                byte[] userIdBytes = new byte[9];
-                System.arraycopy(data, offset + 49, userIdBytes, 0, 9);
-                String userId = extractString(userIdBytes);
-                
-                // If name is empty, use userId as name (as per PHP)
-                if (name.isEmpty() && !userId.isEmpty()) {
-                    name = userId;
-                }
+    /**
+     * Parse user data, in parallel if the buffer reaches the threshold
+     *
+     * @param data              Binary data
+     * @param parallelThreshold Size in bytes from which to decode in parallel, 0 for never
+     * @return List of users
+     */
+    static List<UserInfo> parseUserData(byte[] data, int parallelThreshold) {
+        Stream<UserInfo> users = userStream(data);
+        if (parallelThreshold > 0 && data.length >= parallelThreshold) {
+            users = users.parallel();
+        }
+        return users.collect(Collectors.toList());
+    }
 
-                UserInfo user = UserInfo.builder()
-                        .uid(uid)
-                        .userId(userId)
-                        .name(name)
-                        .password(password)
-                        .cardno(cardno)
-                        .role(role)
-                        .build();
+    /**
+     * Stream the records of a raw user buffer (72-byte records without the
+     * transfer prefix). The stream splits on record boundaries and can be
+     * made parallel. Unparseable records are skipped.
+     *
+     * @param data Binary data
+     * @return Sequential stream of users
+     */
+    public static Stream<UserInfo> userStream(byte[] data) {
+        return StreamSupport.stream(new RecordSpliterator<>(data, 0, data.length,
+                USER_RECORD_SIZE, ZKTecoDeviceService::userParser), false);
+    }
 
-                users.add(user);
-                offset += recordSize;
+    /**
+     * Create a user parser with its own user ID table
+     *
+     * @return Record parser
+     */
+    private static FixedSizeRecordDecoder.RecordParser<UserInfo> userParser() {
+        UserIdTable userIds = new UserIdTable();
+        return (data, offset) -> parseUserRecord(data, offset, userIds);
+    }
 
-            } catch (Exception e) {
-                log.warn("Error parsing user record at offset {}: {}", offset, e.getMessage());
-                offset += recordSize;
-            }
+    /**
+     * Parse a single 72-byte user record
+     *
+     * @param data    Binary data
+     * @param offset  Start of the record
+     * @param userIds Intern table for user IDs
+     * @return User information
+     */
+    static UserInfo parseUserRecord(byte[] data, int offset, UserIdTable userIds) {
+        // PHP hex positions to byte positions:
+        // - hex pos 2-3 = byte 1 (u1)
+        // - hex pos 4-5 = byte 2 (u2)
+        // - hex pos 6-7 = byte 3 (role)
+        // - hex pos 8-23 = bytes 4-11 (password, 8 bytes)
+        // - hex pos 24-71 = bytes 12-35 (name, 24 bytes)
+        // - hex pos 72-79 = bytes 36-39 (cardno, 4 bytes)
+        // - hex pos 98-171 = bytes 49-85 (userid, 9 bytes)
+        
+        // Extract UID (bytes 1-2, little endian) - PHP skips byte 0
+        int u1 = data[offset + 1] & 0xFF;
+        int u2 = data[offset + 2] & 0xFF;
+        int uid = u1 + (u2 * 256);
+        
+        // Extract role (byte 3)
+        int role = data[offset + 3] & 0xFF;
+        
+        // Extract password (bytes 4-11, 8 bytes)
+        String password = extractString(data, offset + 4, 8);
+        
+        // Extract name (bytes 12-35, 24 bytes)
+        String name = extractString(data, offset + 12, 24);
+        
+        // Extract card number (bytes 36-39, 4 bytes little endian)
+        long cardno = PacketUtil.bytesToInt(data, offset + 36, 4) & 0xFFFFFFFFL;
+        
+        // Extract user ID (bytes 49-57, 9 bytes)
+        String userId = userIds.intern(data, offset + 49, 9);
+        
+        // If name is empty, use userId as name (as per PHP)
+        if (name.isEmpty() && !userId.isEmpty()) {
+            name = userId;
         }
 
-        return users;
+        return UserInfo.builder()
+                .uid(uid)
+                .userId(userId)
+                .name(name)
+                .password(password)
+                .cardno(cardno)
+                .role(role)
+                .build();
     }
 
     /**
-     * Extract null-terminated string from byte array
+     * Extract null-terminated string from a fixed-width field
      *
-     * @param bytes Byte array
+     * @param data   Binary data
+     * @param offset Start of the field
+     * @param width  Field width
      * @return String
      */
-    private String extractString(byte[] bytes) {
+    private static String extractString(byte[] data, int offset, int width) {
         int length = 0;
-        while (length < bytes.length && bytes[length] != 0) {
+        while (length < width && data[offset + length] != 0) {
             length++;
         }
-        return new String(bytes, 0, length).trim();
+        return new String(data, offset, length).trim();
+    }
+
+    /**
+     * Register this session for real-time events. Use a session dedicated to
+     * events; see {@link ZKTecoEventSubscription} for one that stays registered
+     * across reconnects.
+     *
+     * @param flags Event flags (e.g. ZKTecoCommand.EF_ATTLOG), 0 to unregister
+     */
+    public void registerEvents(int flags) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+        protocol.registerEvents(flags);
+    }
+
+    /**
+     * Wait for the next attendance event and hand its records to the consumer
+     *
+     * @param timeout  Time to wait in milliseconds
+     * @param consumer Receives the decoded punches; uid is not part of events and is left null
+     * @return Number of records delivered, 0 if no event arrived in time
+     */
+    public int pollEvents(int timeout, Consumer<? super AttendanceRecord> consumer) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+        byte[] event = protocol.receiveEvent(timeout);
+        if (event == null) {
+            return 0;
+        }
+        List<AttendanceRecord> records = parseEventRecords(event);
+        records.forEach(consumer);
+        return records.size();
+    }
+
+    /**
+     * Parse the payload of an attendance event. Firmwares differ in layout,
+     * told apart by length: a 2- or 4-byte numeric user ID (10, 12 or 14
+     * bytes) or a 24-byte string user ID (32, 36 or 37 bytes, or repeated
+     * 52-byte records), each followed by state, type and a 6-byte timestamp.
+     *
+     * @param data Event payload
+     * @return Attendance records
+     */
+    static List<AttendanceRecord> parseEventRecords(byte[] data) {
+        List<AttendanceRecord> records = new ArrayList<>();
+        int offset = 0;
+        while (data.length - offset >= 10) {
+            int remaining = data.length - offset;
+            int idLength;
+            int size;
+            if (remaining == 10 || remaining == 12 || remaining == 14) {
+                idLength = remaining == 12 ? 4 : 2;
+                size = remaining;
+            } else if (remaining == 32 || remaining == 36 || remaining == 37 || remaining >= 52) {
+                idLength = 24;
+                size = remaining >= 52 ? 52 : remaining;
+            } else {
+                log.warn("Unrecognised attendance event of {} bytes", remaining);
+                break;
+            }
+
+            try {
+                String userId;
+                if (idLength == 24) {
+                    userId = extractString(data, offset, 24);
+                } else {
+                    userId = Integer.toUnsignedString(PacketUtil.bytesToInt(data, offset, idLength));
+                }
+                records.add(AttendanceRecord.builder()
+                        .userId(userId)
+                        .state(data[offset + idLength] & 0xFF)
+                        .type(data[offset + idLength + 1] & 0xFF)
+                        .timestamp(decodeEventTime(data, offset + idLength + 2))
+                        .build());
+            } catch (Exception e) {
+                log.warn("Error parsing attendance event at offset {}: {}", offset, e.getMessage());
+            }
+            offset += size;
+        }
+        return records;
+    }
+
+    /**
+     * Decode the 6-byte event timestamp: year since 2000, month, day, hour, minute, second
+     */
+    private static LocalDateTime decodeEventTime(byte[] data, int offset) {
+        return LocalDateTime.of(2000 + (data[offset] & 0xFF), data[offset + 1] & 0xFF, data[offset + 2] & 0xFF,
+                data[offset + 3] & 0xFF, data[offset + 4] & 0xFF, data[offset + 5] & 0xFF);
     }
 
     /**
@@ -371,7 +1160,8 @@ public class ZKTecoDeviceService implements AutoCloseable {
             throw new ZKTecoException("Not connected to device");
         }
 
-        protocol.sendCommand(ZKTecoCommand.CMD_CLEAR_ATT_LOG, null);
+        protocol.exchange(ZKTecoCommand.CMD_CLEAR_ATT_LOG, null);
+        forgetDownloads();
         log.info("Cleared all attendance records");
     }
 
@@ -383,7 +1173,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
             throw new ZKTecoException("Not connected to device");
         }
 
-        protocol.sendCommand(ZKTecoCommand.CMD_RESTART, null);
+        protocol.exchange(ZKTecoCommand.CMD_RESTART, null);
         log.info("Device restart initiated");
     }
 
@@ -395,7 +1185,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
             throw new ZKTecoException("Not connected to device");
         }
 
-        protocol.sendCommand(ZKTecoCommand.CMD_POWEROFF, null);
+        protocol.exchange(ZKTecoCommand.CMD_POWEROFF, null);
         log.info("Device power off initiated");
     }
 
@@ -504,10 +1294,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @return Work code value
      */
     public String getWorkCode() {
-        if (!protocol.isConnected()) {
-            throw new ZKTecoException("Not connected to device");
-        }
-        return protocol.getString(ZKTecoCommand.CMD_DEVICE, "WorkCode");
+        return getDeviceOptions().getWorkCode();
     }
     
     /**
@@ -516,10 +1303,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @return SSR value
      */
     public String getSsr() {
-        if (!protocol.isConnected()) {
-            throw new ZKTecoException("Not connected to device");
-        }
-        return protocol.getString(ZKTecoCommand.CMD_DEVICE, "~SSR");
+        return getDeviceOptions().getSsr();
     }
     
     /**
@@ -528,10 +1312,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @return PIN width value
      */
     public String getPinWidth() {
-        if (!protocol.isConnected()) {
-            throw new ZKTecoException("Not connected to device");
-        }
-        return protocol.getString(ZKTecoCommand.CMD_DEVICE, "~PIN2Width");
+        return getDeviceOptions().getPinWidth();
     }
     
     /**
@@ -540,10 +1321,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @return Face function status
      */
     public String getFaceFunctionOn() {
-        if (!protocol.isConnected()) {
-            throw new ZKTecoException("Not connected to device");
-        }
-        return protocol.getString(ZKTecoCommand.CMD_DEVICE, "FaceFunOn");
+        return getDeviceOptions().getFaceFunctionOn();
     }
     
     /**
@@ -552,10 +1330,7 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * @return Firmware version
      */
     public String getFirmwareVersion() {
-        if (!protocol.isConnected()) {
-            throw new ZKTecoException("Not connected to device");
-        }
-        return protocol.getString(ZKTecoCommand.CMD_DEVICE, "~ZKFPVersion");
+        return getDeviceOptions().getFirmwareVersion();
     }
     
     /**
@@ -565,7 +1340,8 @@ public class ZKTecoDeviceService implements AutoCloseable {
         if (!protocol.isConnected()) {
             throw new ZKTecoException("Not connected to device");
         }
-        protocol.sendCommand(ZKTecoCommand.CMD_CLEAR_DATA, null);
+        protocol.exchange(ZKTecoCommand.CMD_CLEAR_DATA, null);
+        forgetDownloads();
         log.info("All users cleared");
     }
     
@@ -576,7 +1352,8 @@ public class ZKTecoDeviceService implements AutoCloseable {
         if (!protocol.isConnected()) {
             throw new ZKTecoException("Not connected to device");
         }
-        protocol.sendCommand(ZKTecoCommand.CMD_CLEAR_ADMIN, null);
+        protocol.exchange(ZKTecoCommand.CMD_CLEAR_ADMIN, null);
+        forgetDownloads();
         log.info("Admin privileges cleared");
     }
     
@@ -592,7 +1369,8 @@ public class ZKTecoDeviceService implements AutoCloseable {
         byte[] commandData = new byte[2];
         commandData[0] = (byte)(uid % 256);
         commandData[1] = (byte)(uid >> 8);
-        protocol.sendCommand(ZKTecoCommand.CMD_DELETE_USER, commandData);
+        protocol.exchange(ZKTecoCommand.CMD_DELETE_USER, commandData);
+        forgetDownloads();
         log.info("User {} removed", uid);
     }
     
@@ -600,9 +1378,9 @@ public class ZKTecoDeviceService implements AutoCloseable {
      * Set/Add user to device
      * 
      * @param uid Unique ID (max 65535)
-     * @param userid User ID string (max 9 digits)
-     * @param name User name (max 24 characters)
-     * @param password Password (max 8 digits)
+     * @param userid User ID string (max 9 bytes)
+     * @param name User name (max 24 bytes)
+     * @param password Password (max 8 bytes)
      * @param role User role (0=user, 14=admin)
      * @param cardno Card number (max 10 digits)
      */
@@ -610,57 +1388,186 @@ public class ZKTecoDeviceService implements AutoCloseable {
         if (!protocol.isConnected()) {
             throw new ZKTecoException("Not connected to device");
         }
-        
-        // Validate inputs
+
+        byte[] commandData = new byte[SET_USER_RECORD_SIZE];
+        encodeUser(commandData, 0, uid, userid, name, password, role, cardno);
+
+        protocol.exchange(ZKTecoCommand.CMD_SET_USER, commandData);
+        forgetDownloads();
+        log.info("User {} ({}) added/updated", userid, name);
+    }
+
+    /**
+     * Set/Add many users in one transfer.
+     * The users are encoded into a single user table, uploaded to the device
+     * buffer in 1 KB chunks and saved with one command, all inside one
+     * disable/enable window, instead of one round trip per user.
+     * Existing users with the same UID are replaced; fingerprint templates
+     * are left untouched.
+     *
+     * @param users Users to write; uid and userId are required, null fields are written empty
+     */
+    public void setUsers(Collection<UserInfo> users) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        // Header: user table, template index and template data lengths; only the user table is sent
+        int tableLength = users.size() * BULK_USER_RECORD_SIZE;
+        byte[] data = new byte[12 + tableLength];
+        System.arraycopy(PacketUtil.intToBytes(tableLength, 4), 0, data, 0, 4);
+        int offset = 12;
+        for (UserInfo user : users) {
+            if (user.getUid() == null || user.getUserId() == null) {
+                throw new IllegalArgumentException("UID and user ID are required: " + user);
+            }
+            data[offset] = 2;
+            encodeUser(data, offset + 1, user.getUid(), user.getUserId(),
+                    user.getName() == null ? "" : user.getName(),
+                    user.getPassword() == null ? "" : user.getPassword(),
+                    user.getRole() == null ? ZKTecoCommand.LEVEL_USER : user.getRole(),
+                    user.getCardno() == null ? 0 : user.getCardno());
+            offset += BULK_USER_RECORD_SIZE;
+        }
+
+        try {
+            protocol.disableDevice();
+            protocol.writeBuffer(data);
+
+            ByteBuffer save = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            save.putInt(12).putShort((short) 0).putShort((short) 8);
+            protocol.exchange(ZKTecoCommand.CMD_SAVE_USERTEMPS, save.array());
+            protocol.exchange(ZKTecoCommand.CMD_REFRESHDATA, null);
+        } finally {
+            protocol.enableDevice();
+            forgetDownloads();
+        }
+        log.info("{} users added/updated", users.size());
+    }
+
+    /**
+     * Make the device's users match a roster.
+     * The device users are downloaded once, bypassing the skip cache, and
+     * compared with the roster by UID and a fingerprint of uid, userId,
+     * name, password, card and role. New and changed users are written in one {@link #setUsers(Collection)}
+     * upload and users missing from the roster are removed; users that are
+     * already up to date cost nothing.
+     *
+     * @param desired Complete roster for the device; uid and userId are required
+     * @return Number of users inserted, updated, deleted and left unchanged
+     */
+    public UserSyncResult syncUsers(Collection<UserInfo> desired) {
+        if (!protocol.isConnected()) {
+            throw new ZKTecoException("Not connected to device");
+        }
+
+        // Always the live roster: a count-keyed cached download would miss edits made on the device
+        Map<Integer, Long> current = new HashMap<>();
+        for (UserInfo user : downloadUsers()) {
+            current.put(user.getUid(), UserFingerprint.of(user));
+        }
+
+        Set<Integer> wanted = new HashSet<>();
+        List<UserInfo> changed = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (UserInfo user : desired) {
+            if (user.getUid() == null || !wanted.add(user.getUid())) {
+                throw new IllegalArgumentException("Roster needs one entry per UID: " + user);
+            }
+            Long fingerprint = current.get(user.getUid());
+            if (fingerprint == null) {
+                changed.add(user);
+                inserted++;
+            } else if (fingerprint != UserFingerprint.of(user)) {
+                changed.add(user);
+                updated++;
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            setUsers(changed);
+        }
+        int deleted = 0;
+        for (Integer uid : current.keySet()) {
+            if (!wanted.contains(uid)) {
+                removeUser(uid);
+                deleted++;
+            }
+        }
+
+        UserSyncResult result = UserSyncResult.builder()
+                .inserted(inserted)
+                .updated(updated)
+                .deleted(deleted)
+                .unchanged(desired.size() - inserted - updated)
+                .build();
+        log.info("User sync: {} inserted, {} updated, {} deleted, {} unchanged",
+                inserted, updated, deleted, result.getUnchanged());
+        return result;
+    }
+
+    /**
+     * Encode a user in the 72-byte CMD_SET_USER layout
+     *
+     * @param target   Buffer to write into
+     * @param offset   Offset of the record
+     * @param uid      Unique ID (max 65535)
+     * @param userid   User ID string (max 9 bytes)
+     * @param name     User name (max 24 bytes)
+     * @param password Password (max 8 bytes)
+     * @param role     User role (0=user, 14=admin)
+     * @param cardno   Card number (max 10 digits)
+     */
+    private static void encodeUser(byte[] target, int offset, int uid, String userid, String name,
+                                   String password, int role, long cardno) {
+        // Validate inputs; fields are limited in encoded bytes, not characters
         if (uid <= 0 || uid > 65535) {
             throw new IllegalArgumentException("UID must be between 1 and 65535");
         }
-        if (userid.length() > 9) {
-            throw new IllegalArgumentException("User ID max length is 9");
+        byte[] useridBytes = userid.getBytes();
+        if (useridBytes.length > 9) {
+            throw new IllegalArgumentException("User ID max length is 9 bytes");
         }
-        if (name.length() > 24) {
-            throw new IllegalArgumentException("Name max length is 24");
+        byte[] nameBytes = name.getBytes();
+        if (nameBytes.length > 24) {
+            throw new IllegalArgumentException("Name max length is 24 bytes: " + name);
         }
-        if (password.length() > 8) {
-            throw new IllegalArgumentException("Password max length is 8");
+        byte[] passwordBytes = password.getBytes();
+        if (passwordBytes.length > 8) {
+            throw new IllegalArgumentException("Password max length is 8 bytes");
         }
-        
-        // Build command data (72 bytes total)
-        byte[] commandData = new byte[72];
-        
+
         // UID (2 bytes)
-        commandData[0] = (byte)(uid % 256);
-        commandData[1] = (byte)(uid >> 8);
-        
+        target[offset] = (byte)(uid % 256);
+        target[offset + 1] = (byte)(uid >> 8);
+
         // Role (1 byte)
-        commandData[2] = (byte)role;
-        
+        target[offset + 2] = (byte)role;
+
         // Password (8 bytes, null-padded)
-        byte[] passwordBytes = password.getBytes();
-        System.arraycopy(passwordBytes, 0, commandData, 3, Math.min(passwordBytes.length, 8));
-        
+        System.arraycopy(passwordBytes, 0, target, offset + 3, passwordBytes.length);
+
         // Name (24 bytes, null-padded)
-        byte[] nameBytes = name.getBytes();
-        System.arraycopy(nameBytes, 0, commandData, 11, Math.min(nameBytes.length, 24));
-        
+        System.arraycopy(nameBytes, 0, target, offset + 11, nameBytes.length);
+
         // Card number (4 bytes, little-endian)
-        commandData[35] = (byte)(cardno & 0xFF);
-        commandData[36] = (byte)((cardno >> 8) & 0xFF);
-        commandData[37] = (byte)((cardno >> 16) & 0xFF);
-        commandData[38] = (byte)((cardno >> 24) & 0xFF);
-        
+        target[offset + 35] = (byte)(cardno & 0xFF);
+        target[offset + 36] = (byte)((cardno >> 8) & 0xFF);
+        target[offset + 37] = (byte)((cardno >> 16) & 0xFF);
+        target[offset + 38] = (byte)((cardno >> 24) & 0xFF);
+
         // Group field (9 bytes): first byte is 1, rest are 0
-        commandData[39] = 1;
+        target[offset + 39] = 1;
         // Bytes 40-47 are already 0
-        
+
         // User ID (9 bytes, null-padded) at offset 48
-        byte[] useridBytes = userid.getBytes();
-        System.arraycopy(useridBytes, 0, commandData, 48, Math.min(useridBytes.length, 9));
-        
+        System.arraycopy(useridBytes, 0, target, offset + 48, useridBytes.length);
+
         // Bytes 57-71 (15 bytes) are already 0 (padding)
-        
-        protocol.sendCommand(ZKTecoCommand.CMD_SET_USER, commandData);
-        log.info("User {} ({}) added/updated", userid, name);
     }
 
     @Override
@@ -0,0 +1,184 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.protocol.ZKTecoCommand;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a dedicated session to one device registered for attendance events
+ * (CMD_REG_EVENT) and hands each live punch to a listener as it happens,
+ * instead of polling the attendance log. When the device has been quiet for
+ * the keep-alive interval the registration is renewed, which also detects a
+ * dead session; on any failure the session is reopened after the reconnect
+ * delay and registered again.
+ * Events are delivered on the subscription's own thread.
+ */
+@Slf4j
+public class ZKTecoEventSubscription implements AutoCloseable {
+
+    /** Default delay before reconnecting after a failure in milliseconds */
+    public static final long DEFAULT_RECONNECT_DELAY = 5000;
+    /** Default quiet time after which the registration is renewed in milliseconds */
+    public static final long DEFAULT_KEEP_ALIVE_INTERVAL = 30_000;
+
+    private static final int MAX_POLL_TIMEOUT = 1000;
+
+    private final DeviceEndpoint endpoint;
+    private final Consumer<? super AttendanceRecord> listener;
+    private final AtomicInteger registrations = new AtomicInteger();
+    private volatile Consumer<ZKTecoDeviceService> configurer = service -> { };
+    private volatile long reconnectDelay = DEFAULT_RECONNECT_DELAY;
+    private volatile long keepAliveInterval = DEFAULT_KEEP_ALIVE_INTERVAL;
+    private volatile boolean running = false;
+    private volatile boolean registered = false;
+    private volatile ZKTecoDeviceService service;
+    private Thread thread;
+
+    /**
+     * Create subscription; call {@link #start()} to open it
+     *
+     * @param endpoint Device endpoint
+     * @param listener Receives live attendance records
+     */
+    public ZKTecoEventSubscription(DeviceEndpoint endpoint, Consumer<? super AttendanceRecord> listener) {
+        this.endpoint = endpoint;
+        this.listener = listener;
+    }
+
+    /**
+     * Set a callback applied to each new device service before it connects,
+     * e.g. to set timeouts
+     *
+     * @param configurer Service configurer
+     */
+    public void setConfigurer(Consumer<ZKTecoDeviceService> configurer) {
+        this.configurer = configurer;
+    }
+
+    /**
+     * Set delay before reconnecting after a failure
+     *
+     * @param reconnectDelay Delay in milliseconds
+     */
+    public void setReconnectDelay(long reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Set quiet time after which the registration is renewed
+     *
+     * @param keepAliveInterval Interval in milliseconds
+     */
+    public void setKeepAliveInterval(long keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * Start the subscription thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "zkteco-events-" + endpoint.getIpAddress());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Check if the session is currently registered for events
+     *
+     * @return true while registered
+     */
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * Get number of times the session was registered, including renewals
+     *
+     * @return Registration count
+     */
+    public int getRegistrationCount() {
+        return registrations.get();
+    }
+
+    /**
+     * Stop the subscription and close its session
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        ZKTecoDeviceService current = service;
+        if (current != null) {
+            // Unblocks a pending receive
+            current.close();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (ZKTecoDeviceService session = new ZKTecoDeviceService(endpoint.getIpAddress(),
+                    endpoint.getPort(), endpoint.getTransport())) {
+                configurer.accept(session);
+                service = session;
+                if (!session.connect()) {
+                    throw new ZKTecoException("Failed to connect to device at " + endpoint);
+                }
+                register(session);
+                log.info("Subscribed to attendance events from {}", endpoint);
+
+                long lastActivity = System.currentTimeMillis();
+                while (running) {
+                    int timeout = (int) Math.max(1, Math.min(MAX_POLL_TIMEOUT, keepAliveInterval));
+                    if (session.pollEvents(timeout, this::deliver) > 0) {
+                        lastActivity = System.currentTimeMillis();
+                    } else if (System.currentTimeMillis() - lastActivity >= keepAliveInterval) {
+                        register(session);
+                        lastActivity = System.currentTimeMillis();
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Event subscription to {} lost, reconnecting in {} ms: {}",
+                            endpoint, reconnectDelay, e.getMessage());
+                }
+            } finally {
+                registered = false;
+                service = null;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void register(ZKTecoDeviceService session) {
+        session.registerEvents(ZKTecoCommand.EF_ATTLOG);
+        registered = true;
+        registrations.incrementAndGet();
+    }
+
+    private void deliver(AttendanceRecord record) {
+        try {
+            listener.accept(record);
+        } catch (RuntimeException e) {
+            log.warn("Event listener failed for {}: {}", endpoint, e.getMessage());
+        }
+    }
+}
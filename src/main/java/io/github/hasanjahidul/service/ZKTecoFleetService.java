@@ -0,0 +1,294 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.model.DeviceInfo;
+import io.github.hasanjahidul.model.DeviceResult;
+import io.github.hasanjahidul.model.FleetResult;
+import io.github.hasanjahidul.model.UserInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs operations across many devices concurrently, so a sweep takes about
+ * as long as the slowest device rather than the sum of all of them.
+ * Uses virtual threads when the runtime has them (Java 21+) and a bounded
+ * platform thread pool otherwise; either way at most the configured number
+ * of devices are worked on at once. Each device gets its own deadline,
+ * counted from when its work starts; a device that misses it has its
+ * call aborted, freeing its slot at once, and a call still waiting for a
+ * session held by another caller never runs. Connections come from a
+ * {@link ZKTecoSessionPool}, so repeated sweeps reuse sessions.
+ */
+@Slf4j
+public class ZKTecoFleetService implements AutoCloseable {
+
+    /** Default number of devices worked on at once */
+    public static final int DEFAULT_CONCURRENCY = 16;
+    /** Default per-device deadline in milliseconds */
+    public static final long DEFAULT_DEVICE_TIMEOUT = 120_000;
+
+    private final ZKTecoSessionPool pool;
+    private final boolean ownsPool;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private volatile long deviceTimeout = DEFAULT_DEVICE_TIMEOUT;
+    private volatile boolean partialResults = true;
+
+    /**
+     * Create fleet service with its own session pool and default concurrency
+     */
+    public ZKTecoFleetService() {
+        this(new ZKTecoSessionPool(), true, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create fleet service on a shared session pool
+     *
+     * @param pool        Session pool, not closed by this service
+     * @param concurrency Maximum number of devices worked on at once
+     */
+    public ZKTecoFleetService(ZKTecoSessionPool pool, int concurrency) {
+        this(pool, false, concurrency);
+    }
+
+    private ZKTecoFleetService(ZKTecoSessionPool pool, boolean ownsPool, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        this.executor = createExecutor(concurrency);
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("zkteco-fleet-timer"));
+    }
+
+    /**
+     * Set the per-device deadline
+     *
+     * @param deviceTimeout Deadline in milliseconds, counted from when work on the device starts
+     */
+    public void setDeviceTimeout(long deviceTimeout) {
+        this.deviceTimeout = deviceTimeout;
+    }
+
+    /**
+     * Choose what a device that misses its deadline mid-transfer reports
+     *
+     * @param partialResults true to return the data received so far as PARTIAL, false to report FAILED
+     */
+    public void setPartialResults(boolean partialResults) {
+        this.partialResults = partialResults;
+    }
+
+    /**
+     * Get maximum number of devices worked on at once
+     *
+     * @return Concurrency limit
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Get attendance records from every device
+     *
+     * @param devices Devices to collect from
+     * @return Records per device
+     */
+    public FleetResult<List<AttendanceRecord>> getAttendance(List<DeviceEndpoint> devices) {
+        return run(devices, endpoint -> {
+            List<AttendanceRecord> records = Collections.synchronizedList(new ArrayList<>());
+            return new Task<>(service -> {
+                // The pool may run the operation again on a fresh session
+                records.clear();
+                service.streamAttendance(records::add);
+                return snapshot(records);
+            }, () -> records.isEmpty() ? null : snapshot(records));
+        });
+    }
+
+    /**
+     * Get users from every device
+     *
+     * @param devices Devices to collect from
+     * @return Users per device
+     */
+    public FleetResult<List<UserInfo>> getUsers(List<DeviceEndpoint> devices) {
+        return execute(devices, ZKTecoDeviceService::getUsers);
+    }
+
+    /**
+     * Get device information from every device
+     *
+     * @param devices Devices to query
+     * @return Device information per device
+     */
+    public FleetResult<DeviceInfo> getDeviceInfo(List<DeviceEndpoint> devices) {
+        return execute(devices, ZKTecoDeviceService::getDeviceInfo);
+    }
+
+    /**
+     * Run an operation on every device
+     *
+     * @param devices   Devices to run on
+     * @param operation Operation to run with each connected service
+     * @param <T>       Result type
+     * @return Result per device
+     */
+    public <T> FleetResult<T> execute(List<DeviceEndpoint> devices, Function<ZKTecoDeviceService, T> operation) {
+        return run(devices, endpoint -> new Task<>(operation, null));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+
+    private <T> FleetResult<T> run(List<DeviceEndpoint> devices, Function<DeviceEndpoint, Task<T>> taskFactory) {
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<DeviceResult<T>>> futures = new ArrayList<>(devices.size());
+        for (DeviceEndpoint endpoint : devices) {
+            CompletableFuture<DeviceResult<T>> result = new CompletableFuture<>();
+            Task<T> task = taskFactory.apply(endpoint);
+            executor.execute(() -> runDevice(endpoint, task, result));
+            futures.add(result);
+        }
+
+        List<DeviceResult<T>> results = new ArrayList<>(devices.size());
+        for (CompletableFuture<DeviceResult<T>> future : futures) {
+            results.add(future.join());
+        }
+        FleetResult<T> fleetResult = new FleetResult<>(results, System.currentTimeMillis() - start);
+        log.info("Fleet sweep of {} devices finished in {} ms: {} succeeded, {} partial, {} failed",
+                devices.size(), fleetResult.getDurationMillis(),
+                fleetResult.getResults(DeviceResult.Status.SUCCESS).size(),
+                fleetResult.getResults(DeviceResult.Status.PARTIAL).size(),
+                fleetResult.getResults(DeviceResult.Status.FAILED).size());
+        return fleetResult;
+    }
+
+    private <T> void runDevice(DeviceEndpoint endpoint, Task<T> task, CompletableFuture<DeviceResult<T>> result) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(failed(endpoint, "Interrupted", 0));
+            return;
+        }
+        long started = System.currentTimeMillis();
+        // The deadline answers for the device and aborts this task's call, so the permit is freed at once;
+        // a call still waiting for the session is dropped without running
+        ZKTecoSessionPool.Lease lease = new ZKTecoSessionPool.Lease();
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            if (result.complete(timedOut(endpoint, task, started))) {
+                lease.abort();
+            }
+        }, deviceTimeout, TimeUnit.MILLISECONDS);
+        try {
+            T value = pool.execute(endpoint, task.operation, lease);
+            result.complete(DeviceResult.<T>builder()
+                    .endpoint(endpoint)
+                    .status(DeviceResult.Status.SUCCESS)
+                    .value(value)
+                    .durationMillis(System.currentTimeMillis() - started)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Fleet operation on {} failed: {}", endpoint, e.getMessage());
+            result.complete(failed(endpoint, e.getMessage(), System.currentTimeMillis() - started));
+        } finally {
+            deadline.cancel(false);
+            permits.release();
+        }
+    }
+
+    private <T> DeviceResult<T> timedOut(DeviceEndpoint endpoint, Task<T> task, long started) {
+        long duration = System.currentTimeMillis() - started;
+        String error = "Deadline of " + deviceTimeout + " ms exceeded";
+        T value = partialResults && task.partial != null ? task.partial.get() : null;
+        if (value != null) {
+            return DeviceResult.<T>builder()
+                    .endpoint(endpoint)
+                    .status(DeviceResult.Status.PARTIAL)
+                    .value(value)
+                    .error(error)
+                    .durationMillis(duration)
+                    .build();
+        }
+        return failed(endpoint, error, duration);
+    }
+
+    private static <T> DeviceResult<T> failed(DeviceEndpoint endpoint, String error, long duration) {
+        return DeviceResult.<T>builder()
+                .endpoint(endpoint)
+                .status(DeviceResult.Status.FAILED)
+                .error(error)
+                .durationMillis(duration)
+                .build();
+    }
+
+    private static <T> List<T> snapshot(List<T> list) {
+        synchronized (list) {
+            return new ArrayList<>(list);
+        }
+    }
+
+    /**
+     * Create a virtual-thread-per-task executor when available, otherwise a fixed pool
+     */
+    private static ExecutorService createExecutor(int concurrency) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.debug("Fleet service using virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads not available, using a pool of {} threads", concurrency);
+            return Executors.newFixedThreadPool(concurrency, daemonThreads("zkteco-fleet"));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Work for one device and, optionally, a view of what it collected so far
+     * (null while nothing was collected)
+     */
+    private static final class Task<T> {
+        private final Function<ZKTecoDeviceService, T> operation;
+        private final Supplier<T> partial;
+
+        private Task(Function<ZKTecoDeviceService, T> operation, Supplier<T> partial) {
+            this.operation = operation;
+            this.partial = partial;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoConnectionException;
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.protocol.TransportType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps one long-lived connected session per device and lends it out to
+ * callers, so operations do not pay the CMD_CONNECT/CMD_EXIT handshake each
+ * time. Idle sessions are probed with CMD_GET_TIME to keep them alive on the
+ * device; a session that fails a probe or an operation is dropped and
+ * reconnected on next use. Sessions idle for longer than the idle timeout
+ * are closed to free the device's connection slot, and devices whose session
+ * stays closed for longer than the eviction timeout, e.g. mistyped or
+ * decommissioned ones, are forgotten.
+ * A device session is used by one caller at a time; other callers wait.
+ */
+@Slf4j
+public class ZKTecoSessionPool implements AutoCloseable {
+
+    /** Default interval between keep-alive probes in milliseconds */
+    public static final long DEFAULT_KEEP_ALIVE_INTERVAL = 30_000;
+    /** Default time after which an unused session is closed in milliseconds */
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60_000;
+    /** Default time after which a device whose session is closed is forgotten in milliseconds */
+    public static final long DEFAULT_EVICTION_TIMEOUT = 60 * 60_000;
+    /** How often a caller waiting for a busy session checks its lease in milliseconds */
+    private static final long LOCK_POLL_INTERVAL = 20;
+
+    private final long keepAliveInterval;
+    private final long idleTimeout;
+    private final long evictionTimeout;
+    private final Map<String, PooledSession> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile BiConsumer<DeviceEndpoint, ZKTecoDeviceService> configurer = (endpoint, service) -> { };
+    private volatile boolean closed = false;
+
+    /**
+     * Create pool with default keep-alive interval and idle timeout
+     */
+    public ZKTecoSessionPool() {
+        this(DEFAULT_KEEP_ALIVE_INTERVAL, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Create pool
+     *
+     * @param keepAliveInterval Interval between keep-alive probes in milliseconds, 0 for no probes
+     * @param idleTimeout       Time after which an unused session is closed in milliseconds, 0 to keep forever
+     */
+    public ZKTecoSessionPool(long keepAliveInterval, long idleTimeout) {
+        this(keepAliveInterval, idleTimeout, DEFAULT_EVICTION_TIMEOUT);
+    }
+
+    /**
+     * Create pool
+     *
+     * @param keepAliveInterval Interval between keep-alive probes in milliseconds, 0 for no probes
+     * @param idleTimeout       Time after which an unused session is closed in milliseconds, 0 to keep forever
+     * @param evictionTimeout   Time after which a device whose session is closed is forgotten in milliseconds
+     */
+    public ZKTecoSessionPool(long keepAliveInterval, long idleTimeout, long evictionTimeout) {
+        if (keepAliveInterval < 0 || idleTimeout < 0) {
+            throw new IllegalArgumentException("Keep-alive interval and idle timeout must not be negative");
+        }
+        if (evictionTimeout <= 0) {
+            throw new IllegalArgumentException("Eviction timeout must be positive");
+        }
+        this.keepAliveInterval = keepAliveInterval;
+        this.idleTimeout = idleTimeout;
+        this.evictionTimeout = evictionTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "zkteco-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Sessions are checked as often as the shortest enabled setting needs
+        long interval = evictionTimeout;
+        if (keepAliveInterval > 0) {
+            interval = Math.min(interval, keepAliveInterval);
+        }
+        if (idleTimeout > 0) {
+            interval = Math.min(interval, idleTimeout);
+        }
+        this.scheduler.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set a callback applied to each new device service before it connects,
+     * e.g. to set timeouts or buffered reads
+     *
+     * @param configurer Service configurer
+     */
+    public void setConfigurer(Consumer<ZKTecoDeviceService> configurer) {
+        this.configurer = (endpoint, service) -> configurer.accept(service);
+    }
+
+    /**
+     * Set a callback applied to each new device service before it connects,
+     * with the endpoint it was created for, e.g. to apply per-device timeouts
+     *
+     * @param configurer Service configurer
+     */
+    public void setConfigurer(BiConsumer<DeviceEndpoint, ZKTecoDeviceService> configurer) {
+        this.configurer = configurer;
+    }
+
+    /**
+     * Run an operation on the pooled UDP session of a device on the default port
+     *
+     * @param ipAddress IP address of the device
+     * @param operation Operation to run with the connected service
+     * @param <T>       Result type
+     * @return Operation result
+     */
+    public <T> T execute(String ipAddress, Function<ZKTecoDeviceService, T> operation) {
+        return execute(ipAddress, 4370, TransportType.UDP, operation);
+    }
+
+    /**
+     * Run an operation on the pooled session of a device, connecting it first
+     * if needed. If a reused session turns out to be stale (the link fails),
+     * it is replaced and the operation is run once more on the new session.
+     *
+     * @param ipAddress     IP address of the device
+     * @param port          Port number
+     * @param transportType UDP or TCP
+     * @param operation     Operation to run with the connected service
+     * @param <T>           Result type
+     * @return Operation result
+     * @throws ZKTecoException if the device cannot be reached or the operation fails
+     */
+    public <T> T execute(String ipAddress, int port, TransportType transportType,
+                         Function<ZKTecoDeviceService, T> operation) {
+        return execute(DeviceEndpoint.builder().ipAddress(ipAddress).port(port).transport(transportType).build(), operation);
+    }
+
+    /**
+     * Run an operation on the pooled session of a device, connecting it first
+     * if needed. If a reused session turns out to be stale (the link fails),
+     * it is replaced and the operation is run once more on the new session.
+     *
+     * @param endpoint  Device endpoint
+     * @param operation Operation to run with the connected service
+     * @param <T>       Result type
+     * @return Operation result
+     * @throws ZKTecoException if the device cannot be reached or the operation fails
+     */
+    public <T> T execute(DeviceEndpoint endpoint, Function<ZKTecoDeviceService, T> operation) {
+        return execute(endpoint, operation, new Lease());
+    }
+
+    /**
+     * Run an operation on the pooled session of a device under a lease, so
+     * another thread can abort this call, and only this call, with
+     * {@link Lease#abort()}. A lease aborted while the call still waits for
+     * the session fails the call without running the operation.
+     *
+     * @param endpoint  Device endpoint
+     * @param operation Operation to run with the connected service
+     * @param lease     Fresh lease for this call
+     * @param <T>       Result type
+     * @return Operation result
+     * @throws ZKTecoException if the device cannot be reached, the operation fails or the lease was aborted
+     */
+    public <T> T execute(DeviceEndpoint endpoint, Function<ZKTecoDeviceService, T> operation, Lease lease) {
+        if (closed) {
+            throw new ZKTecoException("Session pool is closed");
+        }
+        String key = key(endpoint.getIpAddress(), endpoint.getPort(), endpoint.getTransport());
+        PooledSession session = sessions.computeIfAbsent(key, k -> new PooledSession(endpoint));
+        acquire(session, lease);
+        while (session.evicted) {
+            // Evicted while we waited: take the device's new entry instead
+            session.lock.unlock();
+            session = sessions.computeIfAbsent(key, k -> new PooledSession(endpoint));
+            acquire(session, lease);
+        }
+
+        try {
+            lease.bind(session);
+            try {
+                return run(session, key, operation, session.isConnected(), lease);
+            } finally {
+                lease.unbind();
+            }
+        } finally {
+            session.lastUsed = System.currentTimeMillis();
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for exclusive use of a session, giving up once the lease is aborted
+     */
+    private static void acquire(PooledSession session, Lease lease) {
+        try {
+            while (!session.lock.tryLock(LOCK_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (lease.isAborted()) {
+                    throw new ZKTecoException("Operation aborted before it started");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ZKTecoException("Interrupted waiting for session", e);
+        }
+    }
+
+    /**
+     * Run an operation on a session. Only link failures mark the session as
+     * stale; other failures, such as a command the device refused or the
+     * caller's own errors, leave it in the pool unless they cut a command
+     * or transfer short.
+     *
+     * @param retry Whether to reconnect and run once more after a link failure
+     * @param lease Lease of the call; an aborted call is not retried
+     */
+    private <T> T run(PooledSession session, String key, Function<ZKTecoDeviceService, T> operation, boolean retry,
+                      Lease lease) {
+        ZKTecoDeviceService service;
+        try {
+            service = session.connect();
+        } catch (RuntimeException e) {
+            session.discard();
+            throw e;
+        }
+        try {
+            return operation.apply(service);
+        } catch (RuntimeException e) {
+            if (e instanceof ZKTecoConnectionException || !service.isConnected()) {
+                session.discard();
+                if (retry && !lease.isAborted()) {
+                    log.info("Session to {} went stale ({}), reconnecting", key, e.getMessage());
+                    return run(session, key, operation, false, lease);
+                }
+            } else if (!service.isIdle()) {
+                log.warn("Operation on {} failed mid-command, dropping session: {}", key, e.getMessage());
+                session.discard();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get number of devices with an open session
+     *
+     * @return Number of connected sessions
+     */
+    public int getSessionCount() {
+        return (int) sessions.values().stream().filter(PooledSession::isConnected).count();
+    }
+
+    /**
+     * Close all sessions and stop keep-alive probes
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        sessions.values().forEach(session -> {
+            session.lock.lock();
+            try {
+                session.discard();
+            } finally {
+                session.lock.unlock();
+            }
+        });
+        sessions.clear();
+    }
+
+    /**
+     * Get number of devices the pool keeps an entry for, connected or not
+     *
+     * @return Number of tracked devices
+     */
+    int getTrackedCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Probe or close idle sessions and forget long-closed ones; sessions in use are skipped
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, PooledSession> entry : sessions.entrySet()) {
+            PooledSession session = entry.getValue();
+            if (!session.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!session.isConnected()) {
+                    if (now - session.lastUsed >= evictionTimeout) {
+                        log.debug("Forgetting unused device {}", entry.getKey());
+                        session.evicted = true;
+                        sessions.remove(entry.getKey(), session);
+                    }
+                } else if (idleTimeout > 0 && now - session.lastUsed >= idleTimeout) {
+                    log.debug("Closing idle session to {}", entry.getKey());
+                    session.discard();
+                } else if (keepAliveInterval > 0 && now - session.lastUsed >= keepAliveInterval) {
+                    session.service.getDeviceTime();
+                }
+            } catch (Exception e) {
+                log.warn("Keep-alive to {} failed, dropping session: {}", entry.getKey(), e.getMessage());
+                session.discard();
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    private static String key(String ipAddress, int port, TransportType transportType) {
+        return ipAddress + ":" + port + "/" + transportType;
+    }
+
+    /**
+     * One device's service and the lock that gives a caller exclusive use of it
+     */
+    private final class PooledSession {
+        private final DeviceEndpoint endpoint;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile ZKTecoDeviceService service;
+        private volatile boolean evicted;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledSession(DeviceEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private ZKTecoDeviceService connect() {
+            if (service != null && service.isConnected()) {
+                return service;
+            }
+            if (service == null) {
+                service = new ZKTecoDeviceService(endpoint.getIpAddress(), endpoint.getPort(), endpoint.getTransport());
+                configurer.accept(endpoint, service);
+            }
+            if (!service.connect()) {
+                throw new ZKTecoException("Failed to connect to device at " + endpoint);
+            }
+            return service;
+        }
+
+        private boolean isConnected() {
+            ZKTecoDeviceService current = service;
+            return current != null && current.isConnected();
+        }
+
+        private void discard() {
+            if (service != null) {
+                service.close();
+            }
+        }
+    }
+
+    /**
+     * Handle on one {@link #execute(DeviceEndpoint, Function, Lease)} call,
+     * e.g. for a caller that gives up waiting for it. Aborting closes the
+     * session's socket only while this call holds the session, so blocked
+     * I/O fails at once and the operation is not retried; other callers of
+     * the same device are never affected. A lease is used for one call.
+     */
+    public static final class Lease {
+        private PooledSession session;
+        private boolean aborted;
+
+        /**
+         * Abort the call: fail it before it starts, or cut its I/O if it is running
+         */
+        public synchronized void abort() {
+            aborted = true;
+            if (session != null && session.service != null) {
+                session.service.abort();
+            }
+        }
+
+        /**
+         * Check whether the call was aborted
+         *
+         * @return true if {@link #abort()} was called
+         */
+        public synchronized boolean isAborted() {
+            return aborted;
+        }
+
+        private synchronized void bind(PooledSession session) {
+            if (aborted) {
+                throw new ZKTecoException("Operation aborted before it started");
+            }
+            if (this.session != null) {
+                throw new IllegalStateException("Lease is already in use");
+            }
+            this.session = session;
+        }
+
+        private synchronized void unbind() {
+            // Synchronized with abort, so no abort can reach the session once it is handed on
+            session = null;
+        }
+    }
+}
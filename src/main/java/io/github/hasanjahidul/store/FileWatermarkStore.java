@@ -0,0 +1,81 @@
+package io.github.hasanjahidul.store;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceWatermark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+/**
+ * Watermark store writing one properties file per device serial number.
+ * Files are replaced atomically so a crash never leaves a torn watermark.
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private final Path directory;
+
+    /**
+     * Create store in the given directory (created if missing)
+     *
+     * @param directory Directory holding the watermark files
+     */
+    public FileWatermarkStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot create watermark directory " + directory, e);
+        }
+    }
+
+    @Override
+    public AttendanceWatermark load(String serialNumber) {
+        Path file = fileFor(serialNumber);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot read watermark " + file, e);
+        }
+        String updatedAt = properties.getProperty("updatedAt");
+        return AttendanceWatermark.builder()
+                .serialNumber(serialNumber)
+                .recordCount(Long.parseLong(properties.getProperty("recordCount", "0")))
+                .prefixHash(Long.parseLong(properties.getProperty("prefixHash", "0")))
+                .updatedAt(updatedAt == null ? null : LocalDateTime.parse(updatedAt))
+                .build();
+    }
+
+    @Override
+    public void save(AttendanceWatermark watermark) {
+        Properties properties = new Properties();
+        properties.setProperty("recordCount", String.valueOf(watermark.getRecordCount()));
+        properties.setProperty("prefixHash", String.valueOf(watermark.getPrefixHash()));
+        if (watermark.getUpdatedAt() != null) {
+            properties.setProperty("updatedAt", watermark.getUpdatedAt().toString());
+        }
+        Path file = fileFor(watermark.getSerialNumber());
+        try {
+            Path temp = Files.createTempFile(directory, "watermark", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Attendance watermark for " + watermark.getSerialNumber());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot write watermark " + file, e);
+        }
+    }
+
+    private Path fileFor(String serialNumber) {
+        return directory.resolve(serialNumber.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.hasanjahidul.store;
+
+import io.github.hasanjahidul.model.AttendanceWatermark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watermark store kept in memory, lost on restart
+ */
+public class InMemoryWatermarkStore implements WatermarkStore {
+
+    private final Map<String, AttendanceWatermark> watermarks = new ConcurrentHashMap<>();
+
+    @Override
+    public AttendanceWatermark load(String serialNumber) {
+        return watermarks.get(serialNumber);
+    }
+
+    @Override
+    public void save(AttendanceWatermark watermark) {
+        watermarks.put(watermark.getSerialNumber(), watermark);
+    }
+}
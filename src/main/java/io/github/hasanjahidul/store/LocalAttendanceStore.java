@@ -0,0 +1,422 @@
+package io.github.hasanjahidul.store;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded, append-only store for collected attendance records, with one
+ * log file per device serial number. All records are loaded on startup and
+ * indexed in memory by user ID and by day, so queries never touch the
+ * network or the disk. Appends are flushed to disk before they become
+ * visible; a torn record left by a crash is cut off on the next load.
+ * Feed it from an {@code AttendanceSink}, e.g.
+ * {@code (device, records, result) -> store.append(result.getSerialNumber(), records)};
+ * records already stored for the device (same user ID, timestamp, state and
+ * type) are skipped, so a full resync that delivers the whole log again
+ * stores nothing twice.
+ * Time ranges are half-open: from inclusive, to exclusive.
+ * Thread-safe.
+ */
+@Slf4j
+public class LocalAttendanceStore {
+
+    private static final String SUFFIX = ".attendance.log";
+
+    private final Path directory;
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Open store in the given directory (created if missing), loading all
+     * device logs found there
+     *
+     * @param directory Directory holding the log files
+     */
+    public LocalAttendanceStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    Partition partition = load(file);
+                    if (partition != null) {
+                        partitions.put(partition.serialNumber, partition);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot open attendance store " + directory, e);
+        }
+    }
+
+    /**
+     * Append records collected from a device. Records without a timestamp
+     * and records already stored for the device are skipped.
+     *
+     * @param serialNumber Device serial number
+     * @param records      Records to store
+     * @return Number of records stored
+     */
+    public int append(String serialNumber, Collection<? extends AttendanceRecord> records) {
+        lock.writeLock().lock();
+        try {
+            Partition partition = partitions.get(serialNumber);
+            Set<RecordKey> batch = new HashSet<>();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 32);
+            List<AttendanceRecord> accepted = new ArrayList<>(records.size());
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (AttendanceRecord record : records) {
+                    if (record.getTimestamp() == null) {
+                        log.warn("Skipping attendance record without timestamp from {}: {}", serialNumber, record);
+                        continue;
+                    }
+                    RecordKey key = new RecordKey(record);
+                    if ((partition != null && partition.keys.contains(key)) || !batch.add(key)) {
+                        continue;
+                    }
+                    write(out, record);
+                    accepted.add(record);
+                }
+            } catch (IOException e) {
+                throw new ZKTecoException("Cannot encode attendance records", e);
+            }
+            if (accepted.isEmpty()) {
+                return 0;
+            }
+
+            if (partition == null) {
+                partition = create(serialNumber);
+                partitions.put(serialNumber, partition);
+            }
+            try (FileChannel channel = FileChannel.open(partition.file, StandardOpenOption.WRITE)) {
+                long end = channel.size();
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, end + buffer.position());
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    // Drop the partial batch so later appends stay readable
+                    channel.truncate(end);
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new ZKTecoException("Cannot write attendance log " + partition.file, e);
+            }
+            for (AttendanceRecord record : accepted) {
+                partition.index(record);
+            }
+            return accepted.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the records of a user on any device
+     *
+     * @param userId User ID
+     * @param from   Start time, inclusive
+     * @param to     End time, exclusive
+     * @return Records ordered by timestamp
+     */
+    public List<AttendanceRecord> findByUser(String userId, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<AttendanceRecord> result = new ArrayList<>();
+            for (Partition partition : partitions.values()) {
+                collect(partition.byUser.get(userId), from, to, result);
+            }
+            return sorted(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the records of a user on one device
+     *
+     * @param serialNumber Device serial number
+     * @param userId       User ID
+     * @param from         Start time, inclusive
+     * @param to           End time, exclusive
+     * @return Records ordered by timestamp
+     */
+    public List<AttendanceRecord> findByUser(String serialNumber, String userId, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<AttendanceRecord> result = new ArrayList<>();
+            Partition partition = partitions.get(serialNumber);
+            if (partition != null) {
+                collect(partition.byUser.get(userId), from, to, result);
+            }
+            return sorted(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the records of all users on any device
+     *
+     * @param from Start time, inclusive
+     * @param to   End time, exclusive
+     * @return Records ordered by timestamp
+     */
+    public List<AttendanceRecord> findByRange(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<AttendanceRecord> result = new ArrayList<>();
+            for (Partition partition : partitions.values()) {
+                collect(partition.byDay, from, to, result);
+            }
+            return sorted(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the records of all users on one device
+     *
+     * @param serialNumber Device serial number
+     * @param from         Start time, inclusive
+     * @param to           End time, exclusive
+     * @return Records ordered by timestamp
+     */
+    public List<AttendanceRecord> findByRange(String serialNumber, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<AttendanceRecord> result = new ArrayList<>();
+            Partition partition = partitions.get(serialNumber);
+            if (partition != null) {
+                collect(partition.byDay, from, to, result);
+            }
+            return sorted(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get number of records stored for a device
+     *
+     * @param serialNumber Device serial number
+     * @return Record count
+     */
+    public int size(String serialNumber) {
+        lock.readLock().lock();
+        try {
+            Partition partition = partitions.get(serialNumber);
+            return partition == null ? 0 : partition.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get serial numbers of all devices with stored records
+     *
+     * @return Serial numbers
+     */
+    public Set<String> getSerialNumbers() {
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(partitions.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collect(NavigableMap<Long, List<AttendanceRecord>> days, LocalDateTime from, LocalDateTime to,
+                                List<AttendanceRecord> result) {
+        if (days == null || !from.isBefore(to)) {
+            return;
+        }
+        long firstDay = from.toLocalDate().toEpochDay();
+        long lastDay = to.toLocalDate().toEpochDay();
+        for (List<AttendanceRecord> records : days.subMap(firstDay, true, lastDay, true).values()) {
+            for (AttendanceRecord record : records) {
+                LocalDateTime timestamp = record.getTimestamp();
+                if (!timestamp.isBefore(from) && timestamp.isBefore(to)) {
+                    result.add(record);
+                }
+            }
+        }
+    }
+
+    private static List<AttendanceRecord> sorted(List<AttendanceRecord> records) {
+        records.sort(Comparator.comparing(AttendanceRecord::getTimestamp));
+        return records;
+    }
+
+    private Partition create(String serialNumber) {
+        Path file = directory.resolve(serialNumber.replaceAll("[^A-Za-z0-9._-]", "_") + SUFFIX);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeUTF(serialNumber);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot encode attendance log header", e);
+        }
+        try {
+            Files.write(file, header.toByteArray(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ZKTecoException("Cannot create attendance log " + file, e);
+        }
+        return new Partition(serialNumber, file);
+    }
+
+    private static Partition load(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bytes);
+        Partition partition;
+        try {
+            partition = new Partition(in.readUTF(), file);
+        } catch (IOException e) {
+            log.warn("Ignoring attendance log {} without a valid header", file);
+            return null;
+        }
+        int valid = data.length - bytes.available();
+        while (bytes.available() > 0) {
+            try {
+                partition.index(read(in));
+                valid = data.length - bytes.available();
+            } catch (IOException e) {
+                break;
+            }
+        }
+        if (valid < data.length) {
+            log.warn("Truncating torn tail of attendance log {} at byte {}", file, valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        log.info("Loaded {} attendance records for {}", partition.size, partition.serialNumber);
+        return partition;
+    }
+
+    private static void write(DataOutputStream out, AttendanceRecord record) throws IOException {
+        out.writeLong(record.getUid() == null ? -1 : record.getUid());
+        out.writeBoolean(record.getUserId() != null);
+        out.writeUTF(record.getUserId() == null ? "" : record.getUserId());
+        out.writeInt(record.getState() == null ? -1 : record.getState());
+        out.writeInt(record.getType() == null ? -1 : record.getType());
+        out.writeLong(record.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(record.getTimestamp().getNano());
+    }
+
+    private static AttendanceRecord read(DataInputStream in) throws IOException {
+        long uid = in.readLong();
+        boolean hasUserId = in.readBoolean();
+        String userId = in.readUTF();
+        int state = in.readInt();
+        int type = in.readInt();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return AttendanceRecord.builder()
+                .uid(uid < 0 ? null : uid)
+                .userId(hasUserId ? userId : null)
+                .state(state < 0 ? null : state)
+                .type(type < 0 ? null : type)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    /**
+     * Records and indexes of one device
+     */
+    private static final class Partition {
+
+        private final String serialNumber;
+        private final Path file;
+        private final NavigableMap<Long, List<AttendanceRecord>> byDay = new TreeMap<>();
+        private final Map<String, NavigableMap<Long, List<AttendanceRecord>>> byUser = new HashMap<>();
+        private final Set<RecordKey> keys = new HashSet<>();
+        private int size;
+
+        private Partition(String serialNumber, Path file) {
+            this.serialNumber = serialNumber;
+            this.file = file;
+        }
+
+        private void index(AttendanceRecord record) {
+            if (!keys.add(new RecordKey(record))) {
+                // Left by a version that stored duplicates
+                return;
+            }
+            long day = record.getTimestamp().toLocalDate().toEpochDay();
+            byDay.computeIfAbsent(day, key -> new ArrayList<>()).add(record);
+            if (record.getUserId() != null) {
+                byUser.computeIfAbsent(record.getUserId(), key -> new TreeMap<>())
+                        .computeIfAbsent(day, key -> new ArrayList<>()).add(record);
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Identity of a punch for duplicate detection
+     */
+    private static final class RecordKey {
+
+        private final String userId;
+        private final LocalDateTime timestamp;
+        private final Integer state;
+        private final Integer type;
+
+        private RecordKey(AttendanceRecord record) {
+            this.userId = record.getUserId();
+            this.timestamp = record.getTimestamp();
+            this.state = record.getState();
+            this.type = record.getType();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RecordKey)) {
+                return false;
+            }
+            RecordKey other = (RecordKey) o;
+            return timestamp.equals(other.timestamp) && Objects.equals(userId, other.userId)
+                    && Objects.equals(state, other.state) && Objects.equals(type, other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, timestamp, state, type);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.hasanjahidul.store;
+
+import io.github.hasanjahidul.model.AttendanceWatermark;
+
+/**
+ * Persistence for per-device attendance sync watermarks
+ */
+public interface WatermarkStore {
+
+    /**
+     * Load the watermark for a device
+     *
+     * @param serialNumber Device serial number
+     * @return Stored watermark, or null if the device was never synced
+     */
+    AttendanceWatermark load(String serialNumber);
+
+    /**
+     * Store the watermark for a device, replacing any previous one
+     *
+     * @param watermark Watermark to store
+     */
+    void save(AttendanceWatermark watermark);
+}
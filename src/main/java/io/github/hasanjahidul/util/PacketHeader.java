@@ -0,0 +1,165 @@
+package io.github.hasanjahidul.util;
+
+/**
+ * Reusable view of a packet in a byte array, e.g. a transport's receive
+ * buffer. Header fields and payload values are read in place, so decoding a
+ * reply allocates nothing. The view is only valid while the underlying
+ * array still holds the packet; re-point it with {@link #wrap(byte[], int)}.
+ */
+public final class PacketHeader {
+
+    /** Size of the packet header */
+    public static final int SIZE = 8;
+
+    private byte[] packet = new byte[0];
+    private int offset;
+    private int length;
+
+    /**
+     * Point the view at a packet starting at the beginning of an array
+     *
+     * @param packet Array holding the packet
+     * @param length Packet length
+     * @return This view
+     */
+    public PacketHeader wrap(byte[] packet, int length) {
+        return wrap(packet, 0, length);
+    }
+
+    /**
+     * Point the view at a packet
+     *
+     * @param packet Array holding the packet
+     * @param offset Start of the packet
+     * @param length Packet length
+     * @return This view
+     */
+    public PacketHeader wrap(byte[] packet, int offset, int length) {
+        this.packet = packet;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Check if the packet is long enough to hold a header
+     *
+     * @return true if the header fields can be read
+     */
+    public boolean isValid() {
+        return length >= SIZE;
+    }
+
+    /**
+     * Get command code
+     *
+     * @return Command code
+     */
+    public int getCommand() {
+        return readShort(0);
+    }
+
+    /**
+     * Get checksum
+     *
+     * @return Checksum
+     */
+    public int getChecksum() {
+        return readShort(2);
+    }
+
+    /**
+     * Get session ID
+     *
+     * @return Session ID
+     */
+    public int getSessionId() {
+        return readShort(4);
+    }
+
+    /**
+     * Get reply ID
+     *
+     * @return Reply ID
+     */
+    public int getReplyId() {
+        return readShort(6);
+    }
+
+    /**
+     * Get payload length
+     *
+     * @return Number of bytes after the header
+     */
+    public int getPayloadLength() {
+        return Math.max(0, length - SIZE);
+    }
+
+    /**
+     * Get start of the payload in the underlying array
+     *
+     * @return Payload offset
+     */
+    public int getPayloadOffset() {
+        return offset + SIZE;
+    }
+
+    /**
+     * Get packet length
+     *
+     * @return Packet length including the header
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the underlying array
+     *
+     * @return Array holding the packet
+     */
+    public byte[] array() {
+        return packet;
+    }
+
+    /**
+     * Read a little-endian integer from the payload; bytes past the end read as 0
+     *
+     * @param index Offset within the payload
+     * @param size  Number of bytes (1 to 4)
+     * @return Integer value
+     */
+    public int getPayloadInt(int index, int size) {
+        int result = 0;
+        for (int i = 0; i < size && index + i < getPayloadLength(); i++) {
+            result |= (packet[offset + SIZE + index + i] & 0xFF) << (i * 8);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the payload out of the underlying array
+     *
+     * @return Payload copy
+     */
+    public byte[] copyPayload() {
+        byte[] payload = new byte[getPayloadLength()];
+        System.arraycopy(packet, offset + SIZE, payload, 0, payload.length);
+        return payload;
+    }
+
+    /**
+     * Copy the whole packet out of the underlying array
+     *
+     * @return Packet copy
+     */
+    public byte[] copyPacket() {
+        byte[] copy = new byte[length];
+        System.arraycopy(packet, offset, copy, 0, length);
+        return copy;
+    }
+
+    private int readShort(int index) {
+        return (packet[offset + index] & 0xFF) | ((packet[offset + index + 1] & 0xFF) << 8);
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.hasanjahidul.util;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -22,42 +23,65 @@ public class PacketUtil {
      */
     public static byte[] createPacket(int command, int sessionId, int replyId, byte[] data) {
         int dataLen = (data != null) ? data.length : 0;
-        int totalLen = PACKET_HEADER_SIZE + dataLen;
+        ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + dataLen);
+        encodePacket(buffer, command, sessionId, replyId, data, 0, dataLen);
+        return buffer.array();
+    }
 
-        ByteBuffer buffer = ByteBuffer.allocate(totalLen);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Encode a packet into a caller-supplied buffer at its position, without
+     * allocating. The buffer's byte order is left untouched; the position is
+     * advanced past the packet. The result is byte-for-byte the same as
+     * {@link #createPacket(int, int, int, byte[])}.
+     *
+     * @param target     Buffer to write into, heap or direct
+     * @param command    Command code
+     * @param sessionId  Session ID
+     * @param replyId    Reply ID of the previous packet
+     * @param data       Data payload, may be null
+     * @param dataOffset Start of the payload in data
+     * @param dataLength Payload length
+     * @return Reply ID written into the packet (replyId + 1, wrapped)
+     * @throws java.nio.BufferOverflowException if the packet does not fit
+     */
+    public static int encodePacket(ByteBuffer target, int command, int sessionId, int replyId,
+                                   byte[] data, int dataOffset, int dataLength) {
+        int length = PACKET_HEADER_SIZE + (data != null ? dataLength : 0);
+        if (target.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        int start = target.position();
 
         // Create initial header with zero checksum
-        buffer.putShort((short) command);           // Command (2 bytes)
-        buffer.putShort((short) 0);                 // Checksum placeholder (2 bytes)
-        buffer.putShort((short) sessionId);         // Session ID (2 bytes)
-        buffer.putShort((short) replyId);           // Reply ID (2 bytes)
+        putShort(target, start, command);           // Command (2 bytes)
+        putShort(target, start + 2, 0);             // Checksum placeholder (2 bytes)
+        putShort(target, start + 4, sessionId);     // Session ID (2 bytes)
+        putShort(target, start + 6, replyId);       // Reply ID (2 bytes)
 
         // Data payload
-        if (data != null && data.length > 0) {
-            buffer.put(data);
+        if (data != null && dataLength > 0) {
+            target.position(start + PACKET_HEADER_SIZE);
+            target.put(data, dataOffset, dataLength);
         }
 
-        byte[] packet = buffer.array();
+        // Calculate checksum (PHP-style) over the header with the previous reply ID
+        putShort(target, start + 2, calculateChecksum(target, start, length));
 
-        // Calculate checksum (PHP-style)
-        int checksum = calculateChecksum(packet);
-        
-        // Set checksum in packet (little endian)
-        packet[2] = (byte) (checksum & 0xFF);
-        packet[3] = (byte) ((checksum >> 8) & 0xFF);
-        
         // Increment reply ID for next packet (matching PHP behavior)
         replyId++;
         if (replyId >= 0xFFFF) {
             replyId -= 0xFFFF;
         }
-        
+
         // Update reply ID in packet
-        packet[6] = (byte) (replyId & 0xFF);
-        packet[7] = (byte) ((replyId >> 8) & 0xFF);
+        putShort(target, start + 6, replyId);
+        target.position(start + length);
+        return replyId;
+    }
 
-        return packet;
+    private static void putShort(ByteBuffer target, int index, int value) {
+        target.put(index, (byte) (value & 0xFF));
+        target.put(index + 1, (byte) ((value >> 8) & 0xFF));
     }
 
     /**
@@ -66,9 +90,20 @@ public class PacketUtil {
      * @param packet Packet data
      * @return Checksum value
      */
-    private static int calculateChecksum(byte[] packet) {
+    static int calculateChecksum(byte[] packet) {
+        return calculateChecksum(ByteBuffer.wrap(packet), 0, packet.length);
+    }
+
+    /**
+     * Calculate checksum for the packet at the given range of a buffer
+     *
+     * @param packet Buffer holding the packet
+     * @param start  Start of the packet
+     * @param length Packet length
+     * @return Checksum value
+     */
+    static int calculateChecksum(ByteBuffer packet, int start, int length) {
         int checksum = 0;
-        int length = packet.length;
         int i = 0;
         
         //  Process pairs of bytes
@@ -80,7 +115,7 @@ public class PacketUtil {
             }
             
             // Combine two bytes as unsigned short (little endian)
-            int word = (packet[i] & 0xFF) | ((packet[i + 1] & 0xFF) << 8);
+            int word = (packet.get(start + i) & 0xFF) | ((packet.get(start + i + 1) & 0xFF) << 8);
             checksum += word;
             
             // Keep checksum within USHRT_MAX
@@ -93,7 +128,7 @@ public class PacketUtil {
         
         // Handle odd byte if exists
         if (i < length && i != 2 && i != 3) {
-            checksum += (packet[i] & 0xFF);
+            checksum += (packet.get(start + i) & 0xFF);
         }
         
         // Final checksum adjustment (matching PHP logic)
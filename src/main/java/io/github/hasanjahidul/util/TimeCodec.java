@@ -0,0 +1,197 @@
+package io.github.hasanjahidul.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Codec for the ZKTeco time encoding, in which a timestamp is
+ * ((year % 100 * 12 + month - 1) * 31 + day - 1) * 86400 + seconds of the day,
+ * counted from 2000 in the device's local time.
+ * Decoding to epoch seconds splits the value into a day and a second of the
+ * day and adds the second to the cached start of that day in the device's
+ * zone, so a timestamp costs two divisions and an array lookup. Days with a
+ * zone offset change fall back to full java.time resolution. Invalid
+ * encodings (e.g. February 30th) are reported as {@link #INVALID} or null
+ * instead of throwing.
+ * Instances are shared per zone through {@link #of(ZoneId)} and are thread-safe.
+ */
+public final class TimeCodec {
+
+    /** Returned by {@link #toEpochSecond(int)} for values that are not a valid timestamp */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int DAYS_PER_YEAR = 12 * 31;
+    private static final int YEARS = Integer.MAX_VALUE / SECONDS_PER_DAY / DAYS_PER_YEAR + 1;
+    // Cache marker for days that need full resolution; no real day starts there
+    private static final long IRREGULAR_DAY = Long.MAX_VALUE;
+
+    private static final Map<ZoneId, TimeCodec> CODECS = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+    // Start of each day in epoch seconds, one row per year, built on first use
+    private final AtomicReferenceArray<long[]> dayStarts = new AtomicReferenceArray<>(YEARS);
+
+    private TimeCodec(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Get the shared codec for a zone
+     *
+     * @param zone Zone the device clock runs in
+     * @return Codec
+     */
+    public static TimeCodec of(ZoneId zone) {
+        return CODECS.computeIfAbsent(zone, TimeCodec::new);
+    }
+
+    /**
+     * Get the shared codec for the system default zone
+     *
+     * @return Codec
+     */
+    public static TimeCodec systemDefault() {
+        return of(ZoneId.systemDefault());
+    }
+
+    /**
+     * Get zone of this codec
+     *
+     * @return Zone
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Decode to epoch seconds
+     *
+     * @param encoded Encoded timestamp
+     * @return Epoch seconds, or {@link #INVALID}
+     */
+    public long toEpochSecond(int encoded) {
+        if (encoded < 0) {
+            return INVALID;
+        }
+        int day = encoded / SECONDS_PER_DAY;
+        int secondOfDay = encoded - day * SECONDS_PER_DAY;
+        long start = dayStart(day);
+        if (start == INVALID) {
+            return INVALID;
+        }
+        if (start == IRREGULAR_DAY) {
+            return toLocalDateTime(encoded).atZone(zone).toEpochSecond();
+        }
+        return start + secondOfDay;
+    }
+
+    /**
+     * Decode to an instant
+     *
+     * @param encoded Encoded timestamp
+     * @return Instant, or null if the value is not a valid timestamp
+     */
+    public Instant toInstant(int encoded) {
+        long epochSecond = toEpochSecond(encoded);
+        return epochSecond == INVALID ? null : Instant.ofEpochSecond(epochSecond);
+    }
+
+    /**
+     * Encode an instant as device local time
+     *
+     * @param instant Instant
+     * @return Encoded timestamp
+     */
+    public int encode(Instant instant) {
+        return encode(LocalDateTime.ofInstant(instant, zone));
+    }
+
+    /**
+     * Decode to the device's local date and time
+     *
+     * @param encoded Encoded timestamp
+     * @return Local date and time, or null if the value is not a valid timestamp
+     */
+    public static LocalDateTime toLocalDateTime(int encoded) {
+        if (encoded < 0) {
+            return null;
+        }
+        int t = encoded;
+        int second = t % 60;
+        t /= 60;
+        int minute = t % 60;
+        t /= 60;
+        int hour = t % 24;
+        t /= 24;
+        int day = t % 31 + 1;
+        t /= 31;
+        int month = t % 12 + 1;
+        t /= 12;
+        int year = t + 2000;
+        if (day > 28 && day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * Check if a value decodes to a real date
+     *
+     * @param encoded Encoded timestamp
+     * @return true if valid
+     */
+    public static boolean isValid(int encoded) {
+        return toLocalDateTime(encoded) != null;
+    }
+
+    /**
+     * Encode a local date and time
+     *
+     * @param time Device local time
+     * @return Encoded timestamp
+     */
+    public static int encode(LocalDateTime time) {
+        int year = time.getYear() % 100;
+        return ((year * 12 * 31 + (time.getMonthValue() - 1) * 31 + time.getDayOfMonth() - 1) * SECONDS_PER_DAY)
+                + ((time.getHour() * 60 + time.getMinute()) * 60) + time.getSecond();
+    }
+
+    /**
+     * Get the cached start of an encoded day
+     */
+    private long dayStart(int day) {
+        int yearIndex = day / DAYS_PER_YEAR;
+        long[] year = dayStarts.get(yearIndex);
+        if (year == null) {
+            // Racing threads may both build a row; they compute the same values
+            year = new long[DAYS_PER_YEAR];
+            for (int i = 0; i < DAYS_PER_YEAR; i++) {
+                year[i] = computeDayStart(2000 + yearIndex, i / 31 + 1, i % 31 + 1);
+            }
+            dayStarts.set(yearIndex, year);
+        }
+        return year[day - yearIndex * DAYS_PER_YEAR];
+    }
+
+    private long computeDayStart(int year, int month, int dayOfMonth) {
+        LocalDate date;
+        try {
+            date = LocalDate.of(year, month, dayOfMonth);
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+        long start = date.atStartOfDay(zone).toEpochSecond();
+        long next = date.plusDays(1).atStartOfDay(zone).toEpochSecond();
+        // A day that is not 24 hours long (offset change) or that starts after midnight
+        boolean regular = next - start == SECONDS_PER_DAY
+                && date.atStartOfDay(zone).toLocalTime().toSecondOfDay() == 0;
+        return regular ? start : IRREGULAR_DAY;
+    }
+}
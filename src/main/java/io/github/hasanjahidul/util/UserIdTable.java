@@ -0,0 +1,127 @@
+package io.github.hasanjahidul.util;
+
+/**
+ * Intern table for the fixed-width, null-terminated user ID fields of
+ * attendance and user records. Looks the raw bytes up without copying them
+ * and returns one canonical String per distinct ID, so a log with many
+ * punches per employee holds one String per employee rather than one per
+ * punch. Once the table holds its maximum number of IDs, further IDs are
+ * decoded without being cached.
+ * Not thread-safe; use one table per decoding thread or session.
+ */
+public final class UserIdTable {
+
+    /** Default maximum number of distinct IDs cached */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private final int maxEntries;
+    private byte[][] keys = new byte[INITIAL_CAPACITY][];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Create table with the default size limit
+     */
+    public UserIdTable() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create table
+     *
+     * @param maxEntries Maximum number of distinct IDs cached
+     */
+    public UserIdTable(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the canonical String for a user ID field
+     *
+     * @param data   Buffer holding the field
+     * @param offset Start of the field
+     * @param width  Field width; the ID ends at the first zero byte
+     * @return User ID, trimmed
+     */
+    public String intern(byte[] data, int offset, int width) {
+        int length = 0;
+        int hash = 0x811C9DC5;
+        while (length < width && data[offset + length] != 0) {
+            // FNV-1a
+            hash = (hash ^ (data[offset + length] & 0xFF)) * 0x01000193;
+            length++;
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], data, offset, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = new String(data, offset, length).trim();
+        if (size >= maxEntries) {
+            return value;
+        }
+        byte[] key = new byte[length];
+        System.arraycopy(data, offset, key, 0, length);
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return value;
+    }
+
+    /**
+     * Get number of distinct IDs cached
+     *
+     * @return Entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(byte[] key, byte[] data, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != data[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[keys.length];
+        hashes = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.hasanjahidul.config;
+
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.service.AttendanceSink;
+import io.github.hasanjahidul.service.ZKTecoDevicePoller;
+import io.github.hasanjahidul.service.ZKTecoDeviceService;
+import io.github.hasanjahidul.service.ZKTecoFleetService;
+import io.github.hasanjahidul.service.ZKTecoSessionPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoAutoConfigurationTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ZKTecoAutoConfiguration.class))
+            .withPropertyValues("zkteco.poller.max-jitter=60000");
+
+    @Test
+    void testPollerForConfiguredDevices() {
+        runner.withPropertyValues(
+                        "zkteco.devices[0].name=front-door",
+                        "zkteco.devices[0].ip-address=10.0.0.1",
+                        "zkteco.devices[0].poll-interval=30000",
+                        "zkteco.devices[1].ip-address=10.0.0.2",
+                        "zkteco.devices[1].port=4371",
+                        "zkteco.devices[1].timeout=5000")
+                .withBean(AttendanceSink.class, () -> (device, records, result) -> { })
+                .run(context -> {
+                    assertFalse(context.containsBean("zkTecoDeviceService"));
+                    assertNotNull(context.getBean(ZKTecoSessionPool.class));
+
+                    ZKTecoDevicePoller poller = context.getBean(ZKTecoDevicePoller.class);
+                    assertTrue(poller.isRunning());
+                    List<DeviceEndpoint> devices = poller.getDevices();
+                    assertEquals(2, devices.size());
+                    assertEquals("front-door", devices.get(0).getName());
+                    assertEquals(4371, devices.get(1).getPort());
+                    assertEquals(5000, devices.get(1).getTimeout());
+                });
+    }
+
+    @Test
+    void testNoPollerWithoutSink() {
+        runner.withPropertyValues("zkteco.devices[0].ip-address=10.0.0.1", "zkteco.ip-address=10.0.0.9")
+                .run(context -> {
+                    assertTrue(context.getBeansOfType(ZKTecoDevicePoller.class).isEmpty());
+                    assertNotNull(context.getBean(ZKTecoDeviceService.class));
+                });
+    }
+
+    @Test
+    void testNoPoolForSingleDevice() {
+        runner.withPropertyValues("zkteco.ip-address=10.0.0.9")
+                .run(context -> {
+                    assertNotNull(context.getBean(ZKTecoDeviceService.class));
+                    assertTrue(context.getBeansOfType(ZKTecoSessionPool.class).isEmpty());
+                    assertTrue(context.getBeansOfType(ZKTecoFleetService.class).isEmpty());
+                });
+    }
+
+    @Test
+    void testPoolOptInWithoutKeepAlive() {
+        runner.withPropertyValues("zkteco.pool.enabled=true", "zkteco.pool.keep-alive-interval=0")
+                .run(context -> {
+                    assertNotNull(context.getBean(ZKTecoSessionPool.class));
+                    assertNotNull(context.getBean(ZKTecoFleetService.class));
+                });
+        runner.withPropertyValues("zkteco.pool.enabled=false", "zkteco.devices[0].ip-address=10.0.0.1")
+                .run(context -> assertTrue(context.getBeansOfType(ZKTecoSessionPool.class).isEmpty()));
+    }
+}
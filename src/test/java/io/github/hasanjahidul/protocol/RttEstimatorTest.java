@@ -0,0 +1,44 @@
+package io.github.hasanjahidul.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RttEstimatorTest {
+
+    @Test
+    void testInitialTimeoutUntilFirstSample() {
+        RttEstimator rtt = new RttEstimator(100, 1000, 60000);
+
+        assertEquals(1000, rtt.getTimeout());
+        assertEquals(-1, rtt.getSmoothedRtt());
+    }
+
+    @Test
+    void testTimeoutFollowsSamples() {
+        RttEstimator rtt = new RttEstimator(10, 1000, 60000);
+
+        // First sample: srtt = 200, rttvar = 100, timeout = 200 + 4 * 100
+        rtt.sample(200);
+        assertEquals(600, rtt.getTimeout());
+
+        for (int i = 0; i < 50; i++) {
+            rtt.sample(200);
+        }
+        assertEquals(200, rtt.getSmoothedRtt(), 0.001);
+        assertTrue(rtt.getTimeout() < 250);
+    }
+
+    @Test
+    void testBoundsAndBackoff() {
+        RttEstimator rtt = new RttEstimator(500, 1000, 3000);
+
+        rtt.sample(1);
+        assertEquals(500, rtt.getTimeout());
+
+        rtt.backoff();
+        rtt.backoff();
+        rtt.backoff();
+        assertEquals(3000, rtt.getTimeout());
+    }
+}
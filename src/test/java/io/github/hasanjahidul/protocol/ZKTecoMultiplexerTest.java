@@ -0,0 +1,91 @@
+package io.github.hasanjahidul.protocol;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.util.PacketUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoMultiplexerTest {
+
+    private final List<DatagramSocket> devices = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        devices.forEach(DatagramSocket::close);
+    }
+
+    @Test
+    void testRoutesRepliesPerDevice() throws Exception {
+        DatagramSocket first = startDevice(101, 1111);
+        DatagramSocket second = startDevice(202, 2222);
+
+        try (ZKTecoMultiplexer multiplexer = new ZKTecoMultiplexer(2000)) {
+            ZKTecoAsyncSession a = multiplexer.open("127.0.0.1", first.getLocalPort());
+            ZKTecoAsyncSession b = multiplexer.open("127.0.0.1", second.getLocalPort());
+
+            assertTrue(a.connect().get(5, TimeUnit.SECONDS));
+            assertTrue(b.connect().get(5, TimeUnit.SECONDS));
+            assertEquals(101, a.getSessionId());
+            assertEquals(202, b.getSessionId());
+
+            byte[] timeA = a.sendCommand(ZKTecoCommand.CMD_GET_TIME, null).get(5, TimeUnit.SECONDS);
+            byte[] timeB = b.sendCommand(ZKTecoCommand.CMD_GET_TIME, null).get(5, TimeUnit.SECONDS);
+            assertEquals(1111, PacketUtil.bytesToInt(PacketUtil.extractData(timeA), 0, 4));
+            assertEquals(2222, PacketUtil.bytesToInt(PacketUtil.extractData(timeB), 0, 4));
+
+            a.disconnect().get(5, TimeUnit.SECONDS);
+            assertFalse(a.isConnected());
+            assertEquals(1, multiplexer.getSessionCount());
+        }
+    }
+
+    @Test
+    void testTimeoutFailsFuture() throws Exception {
+        DatagramSocket silent = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        devices.add(silent);
+
+        try (ZKTecoMultiplexer multiplexer = new ZKTecoMultiplexer(200)) {
+            ZKTecoAsyncSession session = multiplexer.open("127.0.0.1", silent.getLocalPort());
+            assertFalse(session.connect().get(5, TimeUnit.SECONDS));
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> session.sendCommand(ZKTecoCommand.CMD_GET_TIME, null).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ZKTecoException.class, e.getCause());
+        }
+    }
+
+    private DatagramSocket startDevice(int sessionId, int time) throws SocketException {
+        DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        devices.add(socket);
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(request);
+                    int[] header = PacketUtil.parseHeader(request.getData());
+                    byte[] payload = header[0] == ZKTecoCommand.CMD_GET_TIME ? PacketUtil.intToBytes(time, 4) : null;
+                    // createPacket increments the reply ID, so pass the previous one to echo it back
+                    byte[] reply = PacketUtil.createPacket(ZKTecoCommand.CMD_ACK_OK, sessionId, header[3] - 1, payload);
+                    socket.send(new DatagramPacket(reply, reply.length, request.getSocketAddress()));
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return socket;
+    }
+}
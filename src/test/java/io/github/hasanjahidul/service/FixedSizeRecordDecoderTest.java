@@ -0,0 +1,56 @@
+package io.github.hasanjahidul.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedSizeRecordDecoderTest {
+
+    @Test
+    void testRecordsSplitAcrossChunks() {
+        // 3-byte prefix followed by five 4-byte records whose first byte is the index
+        byte[] data = new byte[3 + 5 * 4];
+        for (int i = 0; i < 5; i++) {
+            data[3 + i * 4] = (byte) i;
+        }
+
+        for (int chunk = 1; chunk <= data.length; chunk++) {
+            List<Integer> records = new ArrayList<>();
+            FixedSizeRecordDecoder<Integer> decoder = new FixedSizeRecordDecoder<>(3, 4, (d, o) -> (int) d[o], records::add);
+            for (int offset = 0; offset < data.length; offset += chunk) {
+                decoder.onChunk(data, offset, Math.min(chunk, data.length - offset));
+            }
+
+            assertEquals(List.of(0, 1, 2, 3, 4), records, "chunk size " + chunk);
+            assertEquals(5, decoder.getCount());
+        }
+    }
+
+    @Test
+    void testTrailingPartialRecordIsNotEmitted() {
+        List<Integer> records = new ArrayList<>();
+        FixedSizeRecordDecoder<Integer> decoder = new FixedSizeRecordDecoder<>(0, 4, (d, o) -> (int) d[o], records::add);
+
+        decoder.onChunk(new byte[]{7, 0, 0, 0, 8, 0}, 0, 6);
+
+        assertEquals(List.of(7), records);
+    }
+
+    @Test
+    void testUnparseableRecordIsSkipped() {
+        List<Integer> records = new ArrayList<>();
+        FixedSizeRecordDecoder<Integer> decoder = new FixedSizeRecordDecoder<>(0, 1, (d, o) -> {
+            if (d[o] < 0) {
+                throw new IllegalArgumentException("bad record");
+            }
+            return (int) d[o];
+        }, records::add);
+
+        decoder.onChunk(new byte[]{1, -1, 2}, 0, 3);
+
+        assertEquals(List.of(1, 2), records);
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.hasanjahidul.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordSpliteratorTest {
+
+    @Test
+    void testParallelDecodeKeepsOrder() {
+        // 100000 4-byte records holding their index, plus a trailing partial record
+        int count = 100_000;
+        byte[] data = new byte[count * 4 + 3];
+        for (int i = 0; i < count; i++) {
+            data[i * 4] = (byte) i;
+            data[i * 4 + 1] = (byte) (i >> 8);
+            data[i * 4 + 2] = (byte) (i >> 16);
+        }
+
+        List<Integer> records = StreamSupport.stream(new RecordSpliterator<Integer>(data, 0, data.length, 4,
+                        () -> (d, o) -> (d[o] & 0xFF) | (d[o + 1] & 0xFF) << 8 | (d[o + 2] & 0xFF) << 16), true)
+                .collect(Collectors.toList());
+
+        assertEquals(IntStream.range(0, count).boxed().collect(Collectors.toList()), records);
+    }
+
+    @Test
+    void testSplitsOnRecordBoundaries() {
+        byte[] data = new byte[5 + RecordSpliterator.MIN_SPLIT_RECORDS * 2 * 3];
+        RecordSpliterator<Integer> suffix = new RecordSpliterator<>(data, 5, data.length - 5, 3, () -> (d, o) -> o);
+
+        Spliterator<Integer> prefix = suffix.trySplit();
+
+        assertNotNull(prefix);
+        assertEquals(RecordSpliterator.MIN_SPLIT_RECORDS, prefix.estimateSize());
+        assertEquals(RecordSpliterator.MIN_SPLIT_RECORDS, suffix.estimateSize());
+        assertTrue(prefix.tryAdvance(offset -> assertEquals(5, offset)));
+        assertTrue(suffix.tryAdvance(offset -> assertEquals(5 + RecordSpliterator.MIN_SPLIT_RECORDS * 3, offset)));
+        assertNull(new RecordSpliterator<>(data, 0, 10 * 3, 3, () -> (d, o) -> o).trySplit());
+    }
+
+    @Test
+    void testUnparseableAndNullRecordsAreSkipped() {
+        List<Integer> records = StreamSupport.stream(new RecordSpliterator<Integer>(new byte[]{1, -1, 0, 2}, 0, 4, 1,
+                () -> (d, o) -> {
+                    if (d[o] < 0) {
+                        throw new IllegalArgumentException("bad record");
+                    }
+                    return d[o] == 0 ? null : (int) d[o];
+                }), false).collect(Collectors.toList());
+
+        assertEquals(List.of(1, 2), records);
+    }
+}
@@ -0,0 +1,532 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoConnectionException;
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceBatch;
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.AttendanceSyncResult;
+import io.github.hasanjahidul.model.DeviceInfo;
+import io.github.hasanjahidul.model.DeviceOptions;
+import io.github.hasanjahidul.model.FingerTemplate;
+import io.github.hasanjahidul.model.UserInfo;
+import io.github.hasanjahidul.model.UserSyncResult;
+import io.github.hasanjahidul.protocol.TransportType;
+import io.github.hasanjahidul.protocol.ZKTecoAsyncSession;
+import io.github.hasanjahidul.protocol.ZKTecoCommand;
+import io.github.hasanjahidul.protocol.ZKTecoMultiplexer;
+import io.github.hasanjahidul.protocol.ZKTecoProtocol;
+import io.github.hasanjahidul.simulator.SimulatorConfig;
+import io.github.hasanjahidul.simulator.ZKTecoDeviceSimulator;
+import io.github.hasanjahidul.store.FileWatermarkStore;
+import io.github.hasanjahidul.store.InMemoryWatermarkStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests against the in-process device simulator
+ */
+class SimulatedDeviceTest {
+
+    private ZKTecoDeviceSimulator simulator;
+    private ZKTecoDeviceService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .attendanceCount(1000)
+                .userCount(50)
+                .latencyMillis(1)
+                .build());
+        service = new ZKTecoDeviceService("127.0.0.1", simulator.getPort());
+        assertTrue(service.connect());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        simulator.close();
+    }
+
+    @Test
+    void testGetDeviceInfo() {
+        DeviceInfo info = service.getDeviceInfo();
+
+        assertEquals("SIM0000000001", info.getSerialNumber());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 8, 0, 0), info.getDeviceTime());
+    }
+
+    @Test
+    void testDeviceOptionsAreCached() {
+        DeviceOptions options = service.getDeviceOptions();
+        assertEquals("SIM0000000001", options.getSerialNumber());
+
+        long before = simulator.getPacketsReceived();
+        assertEquals("ZK Simulator", service.getDeviceInfo().getDeviceName());
+        assertEquals("0", service.getWorkCode());
+        assertEquals("0", service.getFirmwareVersion());
+        // Only the device time and record counts were read
+        assertEquals(2, simulator.getPacketsReceived() - before);
+
+        service.invalidateDeviceOptions();
+        assertNotSame(options, service.getDeviceOptions());
+    }
+
+    @Test
+    void testDeviceSizes() {
+        DeviceInfo info = service.getDeviceInfo();
+
+        assertEquals(50, info.getUserCount());
+        assertEquals(1000, info.getAttendanceCount());
+        assertEquals(0, info.getFaceCount());
+        assertEquals(100_000, service.getSizes().getAttendanceCapacity());
+    }
+
+    @Test
+    void testSkipUnchangedDownloads() {
+        service.setSkipUnchangedDownloads(true);
+        InMemoryWatermarkStore store = new InMemoryWatermarkStore();
+        assertEquals(1000, service.getAttendance().size());
+        assertEquals(50, service.getUsers().size());
+        assertEquals(1000, service.syncAttendance(store, record -> { }).getNewRecords());
+
+        long before = simulator.getPacketsReceived();
+        assertEquals(simulator.getAttendance(), service.getAttendance());
+        assertEquals(50, service.getUsers().size());
+        assertEquals(0, service.syncAttendance(store, record -> { }).getNewRecords());
+        // One count query per call and no downloads
+        assertEquals(3, simulator.getPacketsReceived() - before);
+
+        simulator.addAttendance(AttendanceRecord.builder()
+                .uid(1001L).userId("1000").state(1).type(0)
+                .timestamp(LocalDateTime.of(2024, 3, 1, 9, 0, 0))
+                .build());
+        assertEquals(1001, service.getAttendance().size());
+        assertEquals(1, service.syncAttendance(store, record -> { }).getNewRecords());
+    }
+
+    @Test
+    void testSkippedDownloadsAreNotShared() {
+        service.setSkipUnchangedDownloads(true);
+        List<UserInfo> users = service.getUsers();
+        users.get(0).setName("Edited");
+        service.getAttendance().get(0).setUserId("9999");
+
+        assertEquals("User 1", service.getUsers().get(0).getName());
+        assertEquals(simulator.getAttendance(), service.getAttendance());
+        assertNotSame(service.getUsers().get(0), service.getUsers().get(0));
+    }
+
+    @Test
+    void testGetAttendance() {
+        List<AttendanceRecord> records = service.getAttendance();
+
+        assertEquals(simulator.getAttendance(), records);
+    }
+
+    @Test
+    void testGetAttendanceBatch() {
+        AttendanceBatch batch = service.getAttendanceBatch();
+
+        assertEquals(1000, batch.size());
+        assertEquals(50, batch.getUserIds().size());
+        assertEquals(simulator.getAttendance(), batch.toRecords());
+
+        AttendanceBatch.Cursor cursor = batch.cursor();
+        int count = 0;
+        while (cursor.next()) {
+            assertSame(batch.getUserIds().get(count % 50), cursor.getUserId());
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test
+    void testUserIdsAreInterned() {
+        List<AttendanceRecord> records = service.getAttendance();
+        List<UserInfo> users = service.getUsers();
+
+        // Record i belongs to user i % 50
+        assertSame(records.get(0).getUserId(), records.get(50).getUserId());
+        assertSame(users.get(7).getUserId(), records.get(57).getUserId());
+    }
+
+    @Test
+    void testParallelParse() {
+        service.setParallelParseThreshold(1);
+
+        assertEquals(simulator.getAttendance(), service.getAttendance());
+        assertEquals(50, service.getUsers().size());
+        service.setBufferedReads(true);
+        assertEquals(simulator.getAttendance(), service.getAttendance());
+    }
+
+    @Test
+    void testSpoolAttendanceAndUsers(@TempDir Path spool) {
+        SpooledRecords<AttendanceRecord> attendance = service.spoolAttendance(spool);
+
+        assertEquals(spool.resolve("SIM0000000001.attendance.spool"), attendance.getFile());
+        assertEquals(1000, attendance.size());
+        for (int i = 0; i < attendance.size(); i++) {
+            assertEquals(simulator.getAttendance().get(i), attendance.get(i));
+        }
+
+        SpooledRecords<UserInfo> users = service.spoolUsers(spool);
+        assertEquals(50, users.size());
+        assertEquals("User 1", users.get(0).getName());
+
+        // Reopened after a restart without talking to the device
+        SpooledRecords<AttendanceRecord> reopened = ZKTecoDeviceService.openAttendanceSpool(attendance.getFile());
+        assertEquals(simulator.getAttendance().get(999), reopened.get(999));
+        assertThrows(IndexOutOfBoundsException.class, () -> reopened.get(1000));
+    }
+
+    @Test
+    void testBufferedReads() {
+        service.setBufferedReads(true);
+        service.setBufferedReadOptions(4096, 3);
+
+        assertEquals(simulator.getAttendance(), service.getAttendance());
+        assertEquals(50, service.getUsers().size());
+        assertEquals(1000, service.syncAttendance(new InMemoryWatermarkStore(), record -> { }).getNewRecords());
+    }
+
+    @Test
+    void testBufferedReadsRecoverLostPackets() throws Exception {
+        SimulatorConfig config = SimulatorConfig.builder()
+                .attendanceCount(2000)
+                .lossRate(0.05)
+                .dataLossOnly(true)
+                .build();
+        try (ZKTecoDeviceSimulator lossySimulator = new ZKTecoDeviceSimulator(config);
+             ZKTecoDeviceService lossyService = new ZKTecoDeviceService("127.0.0.1", lossySimulator.getPort())) {
+            assertTrue(lossyService.connect());
+            lossyService.setBufferedReads(true);
+
+            assertEquals(lossySimulator.getAttendance(), lossyService.getAttendance());
+            assertTrue(lossySimulator.getPacketsDropped() > 0);
+        }
+    }
+
+    @Test
+    void testPushTransferLossIsReported() throws Exception {
+        try (ZKTecoDeviceSimulator lossySimulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .attendanceCount(2000)
+                .lossRate(0.2)
+                .dataLossOnly(true)
+                .build());
+             ZKTecoDeviceService lossyService = new ZKTecoDeviceService("127.0.0.1", lossySimulator.getPort())) {
+            assertTrue(lossyService.connect());
+
+            // Pushed packets carry no offsets, so a gap must fail the transfer instead of truncating it
+            ZKTecoException e = assertThrows(ZKTecoException.class, lossyService::getAttendance);
+            assertTrue(e.getMessage().startsWith("Incomplete data transfer"));
+        }
+    }
+
+    @Test
+    void testConsumerExceptionLeavesSessionUsable() {
+        for (boolean buffered : new boolean[]{false, true}) {
+            service.setBufferedReads(buffered);
+            service.setBufferedReadOptions(4096, 3);
+
+            // Fail on the first record, with most of the transfer still on the wire
+            assertThrows(IllegalStateException.class, () -> service.streamAttendance(record -> {
+                throw new IllegalStateException("consumer failed");
+            }));
+
+            assertTrue(service.isIdle());
+            assertEquals(LocalDateTime.of(2024, 1, 1, 8, 0, 0), service.getDeviceTime(), "buffered " + buffered);
+            assertEquals(50, service.getUsers().size(), "buffered " + buffered);
+            assertEquals(simulator.getAttendance(), service.getAttendance(), "buffered " + buffered);
+        }
+    }
+
+    @Test
+    void testBufferedReadKeepsRootCauseOnDeadLink() {
+        service.setTimeouts(50, 100, 300);
+        try (ZKTecoProtocol protocol = new ZKTecoProtocol("127.0.0.1", simulator.getPort())) {
+            protocol.setTimeouts(50, 100, 300);
+            assertTrue(protocol.connect());
+
+            // The handler fails and the link dies with it, so releasing the buffer fails too
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> protocol.readWithBuffer(ZKTecoCommand.CMD_ATT_LOG_RRQ, 0, 0, (data, offset, length) -> {
+                        simulator.close();
+                        throw new IllegalStateException("handler failed");
+                    }));
+            assertEquals("handler failed", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertInstanceOf(ZKTecoConnectionException.class, e.getSuppressed()[0]);
+        }
+    }
+
+    @Test
+    void testDeadDeviceFailsFast() throws Exception {
+        int port;
+        try (DatagramSocket unused = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        try (ZKTecoDeviceService deadService = new ZKTecoDeviceService("127.0.0.1", port)) {
+            deadService.setTimeouts(50, 100, 60000);
+
+            long start = System.currentTimeMillis();
+            assertFalse(deadService.connect());
+            // Three connect attempts: 100 + 200 + 400 ms
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        }
+    }
+
+    @Test
+    void testSlowLinkAdaptsTimeouts() throws Exception {
+        try (ZKTecoDeviceSimulator slowSimulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .latencyMillis(300)
+                .build());
+             ZKTecoDeviceService slowService = new ZKTecoDeviceService("127.0.0.1", slowSimulator.getPort())) {
+            // Initial timeout is shorter than the round trip, so connect has to back off
+            slowService.setTimeouts(50, 100, 5000);
+            assertTrue(slowService.connect());
+
+            assertEquals("SIM0000000001", slowService.getDeviceInfo().getSerialNumber());
+            assertEquals(slowSimulator.getAttendance(), slowService.getAttendance());
+        }
+    }
+
+    @Test
+    void testIncrementalSync(@TempDir Path watermarks) {
+        FileWatermarkStore store = new FileWatermarkStore(watermarks);
+        List<AttendanceRecord> received = new ArrayList<>();
+
+        AttendanceSyncResult first = service.syncAttendance(store, received::add);
+        assertEquals(1000, first.getNewRecords());
+        assertEquals(simulator.getAttendance(), received);
+
+        received.clear();
+        AttendanceSyncResult second = service.syncAttendance(store, received::add);
+        assertEquals(0, second.getNewRecords());
+        assertEquals(1000, second.getTotalRecords());
+        assertFalse(second.isFullResync());
+
+        AttendanceRecord punch = AttendanceRecord.builder()
+                .uid(7L).userId("1006").state(1).type(0)
+                .timestamp(LocalDateTime.of(2024, 1, 2, 9, 0, 0))
+                .build();
+        simulator.addAttendance(punch);
+        AttendanceSyncResult third = service.syncAttendance(store, received::add);
+        assertEquals(1, third.getNewRecords());
+        assertEquals(List.of(punch), received);
+        assertEquals(1001, store.load("SIM0000000001").getRecordCount());
+    }
+
+    @Test
+    void testIncrementalSyncAcrossSizeBoundary() {
+        // 1630 records stay below 64 KiB; 1650 cross it, changing the upper bytes of the dataset size
+        LocalDateTime base = LocalDateTime.of(2024, 1, 2, 9, 0, 0);
+        for (int i = 0; i < 630; i++) {
+            simulator.addAttendance(AttendanceRecord.builder()
+                    .uid(1L).userId("1000").state(1).type(0).timestamp(base.plusMinutes(i)).build());
+        }
+        InMemoryWatermarkStore store = new InMemoryWatermarkStore();
+        assertEquals(1630, service.syncAttendance(store, record -> { }).getNewRecords());
+
+        for (int i = 0; i < 20; i++) {
+            simulator.addAttendance(AttendanceRecord.builder()
+                    .uid(2L).userId("1001").state(1).type(0).timestamp(base.plusDays(1).plusMinutes(i)).build());
+        }
+        AttendanceSyncResult result = service.syncAttendance(store, record -> { });
+        assertFalse(result.isFullResync());
+        assertEquals(20, result.getNewRecords());
+    }
+
+    @Test
+    void testIncrementalSyncAfterClearedLog() {
+        InMemoryWatermarkStore store = new InMemoryWatermarkStore();
+        service.syncAttendance(store, record -> { });
+
+        service.clearAttendance();
+        AttendanceRecord punch = AttendanceRecord.builder()
+                .uid(1L).userId("1000").state(1).type(0)
+                .timestamp(LocalDateTime.of(2024, 1, 3, 9, 0, 0))
+                .build();
+        simulator.addAttendance(punch);
+
+        List<AttendanceRecord> received = new ArrayList<>();
+        AttendanceSyncResult result = service.syncAttendance(store, received::add);
+        assertTrue(result.isFullResync());
+        assertEquals(List.of(punch), received);
+    }
+
+    @Test
+    void testIncrementalSyncAfterRotatedLog() {
+        InMemoryWatermarkStore store = new InMemoryWatermarkStore();
+        service.syncAttendance(store, record -> { });
+
+        // Same record count, different content
+        service.clearAttendance();
+        for (int i = 0; i < 1000; i++) {
+            simulator.addAttendance(AttendanceRecord.builder()
+                    .uid(2L).userId("1001").state(1).type(1)
+                    .timestamp(LocalDateTime.of(2024, 2, 1, 0, 0, 0).plusMinutes(i))
+                    .build());
+        }
+
+        List<AttendanceRecord> received = new ArrayList<>();
+        AttendanceSyncResult result = service.syncAttendance(store, received::add);
+        assertTrue(result.isFullResync());
+        assertEquals(simulator.getAttendance(), received);
+    }
+
+    @Test
+    void testGetUsers() {
+        List<UserInfo> users = service.getUsers();
+
+        assertEquals(50, users.size());
+        assertEquals("1000", users.get(0).getUserId());
+        assertEquals("User 1", users.get(0).getName());
+    }
+
+    @Test
+    void testSetAndRemoveUser() {
+        service.setUser(500, "9001", "New Hire", "1234", ZKTecoCommand.LEVEL_USER, 42L);
+        assertTrue(simulator.getUsers().stream().anyMatch(u -> u.getUid() == 500 && "New Hire".equals(u.getName())));
+
+        service.removeUser(500);
+        assertTrue(simulator.getUsers().stream().noneMatch(u -> u.getUid() == 500));
+    }
+
+    @Test
+    void testSetUsersInOneTransfer() {
+        List<UserInfo> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(UserInfo.builder().uid(600 + i).userId(String.valueOf(7000 + i)).name("Bulk " + i)
+                    .cardno(1000L + i).build());
+        }
+        long before = simulator.getPacketsReceived();
+        service.setUsers(users);
+
+        // Disable, free, prepare, 8 data chunks, save, refresh, enable
+        assertEquals(14, simulator.getPacketsReceived() - before);
+        UserInfo last = simulator.getUsers().stream().filter(u -> u.getUid() == 699).findFirst().orElseThrow();
+        assertEquals("7099", last.getUserId());
+        assertEquals("Bulk 99", last.getName());
+        assertEquals(1099L, last.getCardno());
+        assertTrue(service.getUsers().stream().anyMatch(u -> "7000".equals(u.getUserId())));
+    }
+
+    @Test
+    void testSyncUsersSendsOnlyChanges() {
+        List<UserInfo> roster = new ArrayList<>(service.getUsers());
+        roster.remove(0);
+        roster.get(0).setName("Renamed");
+        roster.add(UserInfo.builder().uid(900).userId("9900").name("Joiner").build());
+
+        UserSyncResult result = service.syncUsers(roster);
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getDeleted());
+        assertEquals(48, result.getUnchanged());
+        assertEquals(50, simulator.getUsers().size());
+        assertTrue(simulator.getUsers().stream().noneMatch(u -> u.getUid() == 1));
+
+        // A second sync only downloads the roster: disable, read, enable
+        long before = simulator.getPacketsReceived();
+        UserSyncResult again = service.syncUsers(roster);
+        assertEquals(50, again.getUnchanged());
+        assertEquals(0, again.getInserted() + again.getUpdated() + again.getDeleted());
+        assertEquals(3, simulator.getPacketsReceived() - before);
+    }
+
+    @Test
+    void testSyncUsersBypassesSkippedDownloads() {
+        service.setSkipUnchangedDownloads(true);
+        List<UserInfo> roster = service.getUsers();
+        simulator.renameUser(1, "Keypad");
+
+        // The count is unchanged, but the roster is still compared with the device
+        UserSyncResult result = service.syncUsers(roster);
+        assertEquals(1, result.getUpdated());
+        assertEquals("User 1", simulator.getUsers().stream()
+                .filter(u -> u.getUid() == 1).findFirst().orElseThrow().getName());
+    }
+
+    @Test
+    void testSyncUsersIsStableForNonAsciiNames() {
+        List<UserInfo> roster = new ArrayList<>(service.getUsers());
+        roster.get(0).setName("José Müller");
+        roster.get(1).setName("Łukasz Wróbel");
+
+        assertEquals(2, service.syncUsers(roster).getUpdated());
+        UserSyncResult again = service.syncUsers(roster);
+        assertEquals(0, again.getUpdated());
+        assertEquals(50, again.getUnchanged());
+
+        // Limits count encoded bytes, and a rejected roster leaves the device untouched
+        StringBuilder name = new StringBuilder("Müller");
+        while (name.toString().getBytes().length <= 24) {
+            name.append('ü');
+        }
+        roster.get(2).setName(name.toString());
+        roster.remove(3);
+        assertThrows(IllegalArgumentException.class, () -> service.syncUsers(roster));
+        assertEquals(50, simulator.getUsers().size());
+        assertEquals(0, service.syncUsers(service.getUsers()).getUpdated());
+    }
+
+    @Test
+    void testGetTemplates() {
+        List<FingerTemplate> expected = simulator.getTemplates();
+        List<FingerTemplate> templates = service.getTemplates();
+
+        assertEquals(100, templates.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getUid(), templates.get(i).getUid());
+            assertEquals(expected.get(i).getFingerIndex(), templates.get(i).getFingerIndex());
+            assertArrayEquals(expected.get(i).getTemplate(), templates.get(i).getTemplate());
+        }
+
+        service.setBufferedReads(true);
+        int[] count = {0};
+        assertEquals(100, service.streamTemplates(template -> count[0]++));
+        assertEquals(100, count[0]);
+    }
+
+    @Test
+    void testTcpTransport() throws Exception {
+        try (ZKTecoDeviceSimulator tcpSimulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .transport(TransportType.TCP)
+                .attendanceCount(5000)
+                .chunkSize(65472)
+                .build());
+             ZKTecoDeviceService tcpService = new ZKTecoDeviceService("127.0.0.1", tcpSimulator.getPort(), TransportType.TCP)) {
+            assertTrue(tcpService.connect());
+
+            assertEquals("SIM0000000001", tcpService.getDeviceInfo().getSerialNumber());
+            assertEquals(tcpSimulator.getAttendance(), tcpService.getAttendance());
+            assertEquals(10, tcpService.getUsers().size());
+        }
+    }
+
+    @Test
+    void testMultiplexedDataTransfer() throws Exception {
+        try (ZKTecoMultiplexer multiplexer = new ZKTecoMultiplexer(2000)) {
+            ZKTecoAsyncSession session = multiplexer.open("127.0.0.1", simulator.getPort());
+            assertTrue(session.connect().get(5, TimeUnit.SECONDS));
+
+            byte[] data = session.requestData(ZKTecoCommand.CMD_ATT_LOG_RRQ, null).get(5, TimeUnit.SECONDS);
+
+            // First packet header (8 bytes) + size prefix (4 bytes) + 40-byte records
+            assertEquals(8 + 4 + 1000 * 40, data.length);
+        }
+    }
+}
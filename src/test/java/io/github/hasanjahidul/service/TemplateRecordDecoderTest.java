@@ -0,0 +1,61 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.FingerTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateRecordDecoderTest {
+
+    @Test
+    void testRecordsSplitAcrossChunks() {
+        // 8-byte prefix, dataset length, templates of 5, 0 and 12 bytes, then 3 bytes of padding
+        int[] sizes = {5, 0, 12};
+        byte[] data = new byte[8 + 4 + 3 * 6 + 17 + 3];
+        data[8] = (byte) (3 * 6 + 17);
+        int offset = 12;
+        for (int i = 0; i < sizes.length; i++) {
+            data[offset] = (byte) (6 + sizes[i]);
+            data[offset + 2] = (byte) (i + 1);
+            data[offset + 4] = (byte) i;
+            data[offset + 5] = 1;
+            for (int b = 0; b < sizes[i]; b++) {
+                data[offset + 6 + b] = (byte) (i * 16 + b);
+            }
+            offset += 6 + sizes[i];
+        }
+
+        for (int chunk = 1; chunk <= data.length; chunk++) {
+            List<FingerTemplate> templates = new ArrayList<>();
+            TemplateRecordDecoder decoder = new TemplateRecordDecoder(8, templates::add);
+            for (int start = 0; start < data.length; start += chunk) {
+                decoder.onChunk(data, start, Math.min(chunk, data.length - start));
+            }
+
+            assertEquals(3, decoder.getCount(), "chunk size " + chunk);
+            assertTrue(decoder.isComplete());
+            for (int i = 0; i < sizes.length; i++) {
+                FingerTemplate template = templates.get(i);
+                assertEquals(i + 1, template.getUid());
+                assertEquals(i, template.getFingerIndex());
+                assertEquals(1, template.getFlag());
+                assertEquals(sizes[i], template.getTemplate().length);
+                if (sizes[i] > 0) {
+                    assertEquals((byte) (i * 16 + sizes[i] - 1), template.getTemplate()[sizes[i] - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRejectsCorruptRecordSize() {
+        byte[] data = {10, 0, 0, 0, 3, 0, 1, 0, 0, 1};
+        TemplateRecordDecoder decoder = new TemplateRecordDecoder(0, template -> { });
+
+        assertThrows(ZKTecoException.class, () -> decoder.onChunk(data, 0, data.length));
+    }
+}
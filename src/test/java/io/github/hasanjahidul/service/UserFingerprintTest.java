@@ -0,0 +1,37 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.UserInfo;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserFingerprintTest {
+
+    @Test
+    void testMatchesDownloadedForm() {
+        UserInfo written = UserInfo.builder().uid(7).userId("1007").build();
+        UserInfo downloaded = UserInfo.builder().uid(7).userId("1007").name("1007").password("")
+                .cardno(0L).role(0).build();
+
+        assertEquals(UserFingerprint.of(downloaded), UserFingerprint.of(written));
+    }
+
+    @Test
+    void testEveryFieldCounts() {
+        long fingerprint = UserFingerprint.of(user(7, "1007", "Ann", "12", 5L, 0));
+
+        assertNotEquals(fingerprint, UserFingerprint.of(user(8, "1007", "Ann", "12", 5L, 0)));
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1008", "Ann", "12", 5L, 0)));
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1007", "Anne", "12", 5L, 0)));
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1007", "Ann", "123", 5L, 0)));
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1007", "Ann", "12", 6L, 0)));
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1007", "Ann", "12", 5L, 14)));
+        // Field boundaries are part of the hash
+        assertNotEquals(fingerprint, UserFingerprint.of(user(7, "1007A", "nn", "12", 5L, 0)));
+    }
+
+    private static UserInfo user(int uid, String userId, String name, String password, long cardno, int role) {
+        return UserInfo.builder().uid(uid).userId(userId).name(name).password(password)
+                .cardno(cardno).role(role).build();
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.AttendanceSyncResult;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.simulator.SimulatorConfig;
+import io.github.hasanjahidul.simulator.ZKTecoDeviceSimulator;
+import io.github.hasanjahidul.store.InMemoryWatermarkStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoDevicePollerTest {
+
+    private final List<ZKTecoDeviceSimulator> simulators = new ArrayList<>();
+    private final ZKTecoSessionPool pool = new ZKTecoSessionPool();
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        simulators.forEach(ZKTecoDeviceSimulator::close);
+    }
+
+    @Test
+    void testPollsAllDevicesIncrementally() throws Exception {
+        ZKTecoDeviceSimulator first = startSimulator("SIM-A");
+        ZKTecoDeviceSimulator second = startSimulator("SIM-B");
+        Map<String, List<AttendanceRecord>> received = new ConcurrentHashMap<>();
+        AttendanceSink sink = (device, records, result) ->
+                received.computeIfAbsent(result.getSerialNumber(), k -> new CopyOnWriteArrayList<>()).addAll(records);
+
+        try (ZKTecoDevicePoller poller = new ZKTecoDevicePoller(pool, new InMemoryWatermarkStore(), sink, 2, 20)) {
+            poller.addDevice(DeviceEndpoint.of("127.0.0.1", first.getPort()), 50);
+            poller.addDevice(DeviceEndpoint.of("127.0.0.1", second.getPort()), 50);
+            poller.start();
+
+            waitFor(() -> received.containsKey("SIM-A") && received.containsKey("SIM-B"));
+            AttendanceRecord punch = AttendanceRecord.builder()
+                    .uid(1L).userId("1000").state(1).type(0)
+                    .timestamp(LocalDateTime.of(2024, 1, 5, 9, 0, 0))
+                    .build();
+            first.addAttendance(punch);
+            waitFor(() -> received.get("SIM-A").size() == 101);
+
+            // Every record delivered exactly once
+            assertEquals(first.getAttendance(), received.get("SIM-A"));
+            assertEquals(second.getAttendance(), received.get("SIM-B"));
+        }
+    }
+
+    @Test
+    void testFailingSinkGetsRecordsAgain() throws Exception {
+        ZKTecoDeviceSimulator simulator = startSimulator("SIM-C");
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Integer> deliveries = new CopyOnWriteArrayList<>();
+        AttendanceSink sink = (device, records, result) -> {
+            deliveries.add(records.size());
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("sink down");
+            }
+        };
+
+        try (ZKTecoDevicePoller poller = new ZKTecoDevicePoller(pool, new InMemoryWatermarkStore(), sink, 1, 0)) {
+            poller.addDevice(DeviceEndpoint.of("127.0.0.1", simulator.getPort()), 20);
+            poller.start();
+
+            waitFor(() -> deliveries.size() >= 3);
+            // The watermark only advances once the sink accepted the records
+            assertEquals(List.of(100, 100, 0), deliveries.subList(0, 3));
+        }
+    }
+
+    private ZKTecoDeviceSimulator startSimulator(String serialNumber) throws Exception {
+        ZKTecoDeviceSimulator simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .serialNumber(serialNumber)
+                .build());
+        simulators.add(simulator);
+        return simulator;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package io.github.hasanjahidul.service;
 
 import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.model.AttendanceRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ZKTecoDeviceServiceTest {
@@ -41,4 +45,18 @@ class ZKTecoDeviceServiceTest {
     void testClose() {
         assertDoesNotThrow(() -> service.close());
     }
+
+    @Test
+    void testParseShortEventRecord() {
+        // 2-byte user ID 513, state 1, type 4, 2024-05-01 08:30:15
+        byte[] event = {0x01, 0x02, 1, 4, 24, 5, 1, 8, 30, 15};
+
+        List<AttendanceRecord> records = ZKTecoDeviceService.parseEventRecords(event);
+
+        assertEquals(1, records.size());
+        assertEquals("513", records.get(0).getUserId());
+        assertEquals(1, records.get(0).getState());
+        assertEquals(4, records.get(0).getType());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 8, 30, 15), records.get(0).getTimestamp());
+    }
 }
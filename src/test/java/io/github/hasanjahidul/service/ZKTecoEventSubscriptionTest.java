@@ -0,0 +1,88 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.simulator.SimulatorConfig;
+import io.github.hasanjahidul.simulator.ZKTecoDeviceSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoEventSubscriptionTest {
+
+    private ZKTecoDeviceSimulator simulator;
+    private ZKTecoEventSubscription subscription;
+    private final BlockingQueue<AttendanceRecord> events = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder().build());
+        subscription = new ZKTecoEventSubscription(DeviceEndpoint.of("127.0.0.1", simulator.getPort()), events::add);
+        subscription.setConfigurer(service -> service.setTimeouts(50, 100, 200));
+        subscription.setKeepAliveInterval(200);
+        subscription.setReconnectDelay(50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscription.close();
+        simulator.close();
+    }
+
+    @Test
+    void testDeliversLiveAttendance() throws Exception {
+        subscription.start();
+        assertTrue(await(() -> simulator.getEventRegistrations() == 1));
+
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 8, 30, 15);
+        simulator.addAttendance(punch("4711", time));
+
+        AttendanceRecord event = events.poll(1, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals("4711", event.getUserId());
+        assertEquals(time, event.getTimestamp());
+        assertEquals(1, event.getState());
+        assertEquals(0, event.getType());
+    }
+
+    @Test
+    void testReregistersAfterDeviceRestart() throws Exception {
+        subscription.start();
+        assertTrue(await(subscription::isRegistered));
+
+        int port = simulator.getPort();
+        simulator.close();
+        assertTrue(await(() -> !subscription.isRegistered()));
+
+        simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder().port(port).build());
+        assertTrue(await(() -> simulator.getEventRegistrations() == 1));
+
+        simulator.addAttendance(punch("42", LocalDateTime.of(2024, 5, 1, 9, 0, 0)));
+        AttendanceRecord event = events.poll(1, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals("42", event.getUserId());
+    }
+
+    private static AttendanceRecord punch(String userId, LocalDateTime time) {
+        return AttendanceRecord.builder().uid(1L).userId(userId).state(1).type(0).timestamp(time).build();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
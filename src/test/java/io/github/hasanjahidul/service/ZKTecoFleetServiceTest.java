@@ -0,0 +1,161 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.DeviceEndpoint;
+import io.github.hasanjahidul.model.DeviceResult;
+import io.github.hasanjahidul.model.FleetResult;
+import io.github.hasanjahidul.simulator.SimulatorConfig;
+import io.github.hasanjahidul.simulator.ZKTecoDeviceSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoFleetServiceTest {
+
+    private final List<ZKTecoDeviceSimulator> simulators = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        simulators.forEach(ZKTecoDeviceSimulator::close);
+    }
+
+    @Test
+    void testSweepRunsDevicesConcurrently() throws Exception {
+        List<DeviceEndpoint> devices = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            // Every reply takes 20 ms, so a sequential sweep would take several seconds
+            ZKTecoDeviceSimulator simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                    .attendanceCount(200)
+                    .latencyMillis(20)
+                    .build());
+            simulators.add(simulator);
+            devices.add(DeviceEndpoint.of("127.0.0.1", simulator.getPort()));
+        }
+
+        try (ZKTecoFleetService fleet = new ZKTecoFleetService()) {
+            long start = System.currentTimeMillis();
+            FleetResult<List<AttendanceRecord>> result = fleet.getAttendance(devices);
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue(result.isComplete());
+            assertEquals(8, result.getValues().size());
+            result.getValues().forEach(records -> assertEquals(200, records.size()));
+
+            long slowest = result.getResults().stream().mapToLong(DeviceResult::getDurationMillis).max().orElse(0);
+            long total = result.getResults().stream().mapToLong(DeviceResult::getDurationMillis).sum();
+            assertTrue(elapsed < total, "sweep took " + elapsed + " ms, devices " + total + " ms in sum");
+            assertTrue(elapsed < slowest * 3, "sweep took " + elapsed + " ms, slowest device " + slowest + " ms");
+        }
+    }
+
+    @Test
+    void testFailedAndPartialDevices() throws Exception {
+        ZKTecoDeviceSimulator slow = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .attendanceCount(2000)
+                .chunkSize(400)
+                .dataPacketIntervalMillis(5)
+                .build());
+        simulators.add(slow);
+        int deadPort;
+        try (DatagramSocket unused = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            deadPort = unused.getLocalPort();
+        }
+
+        ZKTecoSessionPool pool = new ZKTecoSessionPool();
+        pool.setConfigurer(service -> service.setTimeouts(50, 100, 2000));
+        try (pool; ZKTecoFleetService fleet = new ZKTecoFleetService(pool, 4)) {
+            fleet.setDeviceTimeout(300);
+            FleetResult<List<AttendanceRecord>> result = fleet.getAttendance(List.of(
+                    DeviceEndpoint.of("127.0.0.1", slow.getPort()),
+                    DeviceEndpoint.of("127.0.0.1", deadPort)));
+
+            assertFalse(result.isComplete());
+            DeviceResult<List<AttendanceRecord>> partial = result.getResults().get(0);
+            assertEquals(DeviceResult.Status.PARTIAL, partial.getStatus());
+            assertTrue(partial.getValue().size() > 0 && partial.getValue().size() < 2000);
+            assertEquals(DeviceResult.Status.FAILED, result.getResults().get(1).getStatus());
+        }
+    }
+
+    @Test
+    void testMissedDeadlineFreesDevice() throws Exception {
+        // 5000 records in 250 paced packets: the transfer alone takes about 5 seconds
+        ZKTecoDeviceSimulator slow = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .attendanceCount(5000)
+                .dataPacketIntervalMillis(20)
+                .build());
+        simulators.add(slow);
+        ZKTecoDeviceSimulator fast = new ZKTecoDeviceSimulator(SimulatorConfig.builder().build());
+        simulators.add(fast);
+        DeviceEndpoint slowDevice = DeviceEndpoint.of("127.0.0.1", slow.getPort());
+        DeviceEndpoint fastDevice = DeviceEndpoint.of("127.0.0.1", fast.getPort());
+
+        ZKTecoSessionPool pool = new ZKTecoSessionPool();
+        pool.setConfigurer(service -> service.setTimeouts(50, 100, 2000));
+        try (pool; ZKTecoFleetService fleet = new ZKTecoFleetService(pool, 1)) {
+            fleet.setDeviceTimeout(300);
+            fleet.setPartialResults(false);
+            FleetResult<List<AttendanceRecord>> first = fleet.getAttendance(List.of(slowDevice));
+            assertEquals(DeviceResult.Status.FAILED, first.getResults().get(0).getStatus());
+
+            // With one permit, the next sweep must not wait for the abandoned transfer
+            long start = System.currentTimeMillis();
+            FleetResult<?> second = fleet.execute(List.of(fastDevice, slowDevice), ZKTecoDeviceService::getDeviceTime);
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue(second.isComplete(), second.getResults().toString());
+            assertTrue(elapsed < 1500, "second sweep took " + elapsed + " ms");
+        }
+    }
+
+    @Test
+    void testDeadlineSparesAnotherCallersSession() throws Exception {
+        ZKTecoDeviceSimulator simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder()
+                .attendanceCount(100)
+                .build());
+        simulators.add(simulator);
+        DeviceEndpoint device = DeviceEndpoint.of("127.0.0.1", simulator.getPort());
+
+        ZKTecoSessionPool pool = new ZKTecoSessionPool();
+        try (pool; ZKTecoFleetService fleet = new ZKTecoFleetService(pool, 1)) {
+            fleet.setDeviceTimeout(200);
+            CountDownLatch holding = new CountDownLatch(1);
+            CompletableFuture<Integer> holder = CompletableFuture.supplyAsync(() -> pool.execute(device, service -> {
+                holding.countDown();
+                sleep(800);
+                return service.getAttendance().size();
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            // The fleet task times out while the other caller holds the session
+            AtomicInteger runs = new AtomicInteger();
+            long start = System.currentTimeMillis();
+            FleetResult<Integer> result = fleet.execute(List.of(device), service -> runs.incrementAndGet());
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertEquals(DeviceResult.Status.FAILED, result.getResults().get(0).getStatus());
+            assertTrue(elapsed < 600, "timed-out task held its slot for " + elapsed + " ms");
+            assertEquals(100, holder.get(5, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertEquals(1, fleet.execute(List.of(device), service -> runs.incrementAndGet()).getValues().size());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.hasanjahidul.service;
+
+import io.github.hasanjahidul.exception.ZKTecoException;
+import io.github.hasanjahidul.protocol.TransportType;
+import io.github.hasanjahidul.simulator.SimulatorConfig;
+import io.github.hasanjahidul.simulator.ZKTecoDeviceSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZKTecoSessionPoolTest {
+
+    private ZKTecoDeviceSimulator simulator;
+    private ZKTecoSessionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        simulator = new ZKTecoDeviceSimulator(SimulatorConfig.builder().build());
+        pool = new ZKTecoSessionPool(100, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        simulator.close();
+    }
+
+    @Test
+    void testReusesSession() {
+        int first = pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, service -> service.getAttendance().size());
+        long packets = simulator.getPacketsReceived();
+        int second = pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, service -> service.getAttendance().size());
+
+        assertEquals(100, first);
+        assertEquals(100, second);
+        assertEquals(1, pool.getSessionCount());
+        // The second operation sent no CMD_CONNECT; only disable, read and enable (plus any keep-alive)
+        assertTrue(simulator.getPacketsReceived() - packets <= 4);
+    }
+
+    @Test
+    void testKeepAliveDropsDeadSession() throws Exception {
+        pool.setConfigurer(service -> service.setTimeouts(50, 100, 1000));
+        pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, ZKTecoDeviceService::getDeviceTime);
+        assertEquals(1, pool.getSessionCount());
+
+        simulator.close();
+        Thread.sleep(1000);
+
+        assertEquals(0, pool.getSessionCount());
+    }
+
+    @Test
+    void testUnreachableDeviceFails() throws Exception {
+        int port;
+        try (DatagramSocket unused = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        pool.setConfigurer(service -> service.setTimeouts(50, 100, 1000));
+
+        assertThrows(ZKTecoException.class,
+                () -> pool.execute("127.0.0.1", port, TransportType.UDP, ZKTecoDeviceService::getDeviceTime));
+        assertEquals(0, pool.getSessionCount());
+    }
+
+    @Test
+    void testForgetsLongClosedDevices() throws Exception {
+        int port;
+        try (DatagramSocket unused = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        try (ZKTecoSessionPool evicting = new ZKTecoSessionPool(100, 0, 300)) {
+            evicting.setConfigurer(service -> service.setTimeouts(50, 100, 300));
+            evicting.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, ZKTecoDeviceService::getDeviceTime);
+            assertThrows(ZKTecoException.class,
+                    () -> evicting.execute("127.0.0.1", port, TransportType.UDP, ZKTecoDeviceService::getDeviceTime));
+            assertEquals(2, evicting.getTrackedCount());
+
+            // The live session is kept alive; the unreachable device is forgotten
+            Thread.sleep(1000);
+            assertEquals(1, evicting.getTrackedCount());
+            assertEquals(1, evicting.getSessionCount());
+            assertThrows(ZKTecoException.class,
+                    () -> evicting.execute("127.0.0.1", port, TransportType.UDP, ZKTecoDeviceService::getDeviceTime));
+            assertEquals(2, evicting.getTrackedCount());
+        }
+    }
+
+    @Test
+    void testOperationErrorIsNotRetried() {
+        pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, ZKTecoDeviceService::getDeviceTime);
+        long packets = simulator.getPacketsReceived();
+        int[] calls = {0};
+
+        assertThrows(ZKTecoException.class, () -> pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, service -> {
+            calls[0]++;
+            service.getDeviceTime();
+            throw new ZKTecoException("Rejected by caller");
+        }));
+
+        // Run once on the same session: one CMD_GET_TIME, no CMD_EXIT or CMD_CONNECT
+        assertEquals(1, calls[0]);
+        assertEquals(1, simulator.getPacketsReceived() - packets);
+        assertEquals(1, pool.getSessionCount());
+    }
+
+    @Test
+    void testConsumerErrorMidTransferKeepsSessionUsable() {
+        int[] calls = {0};
+
+        assertThrows(IllegalStateException.class, () -> pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP,
+                service -> {
+                    calls[0]++;
+                    return service.streamAttendance(record -> {
+                        throw new IllegalStateException("consumer failed");
+                    });
+                }));
+
+        assertEquals(1, calls[0]);
+        int size = pool.execute("127.0.0.1", simulator.getPort(), TransportType.UDP, service -> service.getAttendance().size());
+        assertEquals(100, size);
+    }
+}
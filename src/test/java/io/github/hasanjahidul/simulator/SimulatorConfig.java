@@ -0,0 +1,106 @@
+package io.github.hasanjahidul.simulator;
+
+import io.github.hasanjahidul.protocol.TransportType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Configuration for {@link ZKTecoDeviceSimulator}.
+ * Constructor is generated by Lombok's @Builder annotation.
+ */
+@Data
+@Builder
+public class SimulatorConfig {
+
+    /**
+     * Transport to serve
+     */
+    @Builder.Default
+    private TransportType transport = TransportType.UDP;
+
+    /**
+     * Local port to bind (0 picks an ephemeral port)
+     */
+    @Builder.Default
+    private int port = 0;
+
+    /**
+     * Number of synthetic attendance records
+     */
+    @Builder.Default
+    private int attendanceCount = 100;
+
+    /**
+     * Number of synthetic users
+     */
+    @Builder.Default
+    private int userCount = 10;
+
+    /**
+     * Payload bytes per CMD_DATA packet
+     */
+    @Builder.Default
+    private int chunkSize = 1024;
+
+    /**
+     * Spacing between consecutive CMD_DATA packets of a transfer, in milliseconds
+     */
+    @Builder.Default
+    private long dataPacketIntervalMillis = 0;
+
+    /**
+     * Fixed delay before each outgoing packet, in milliseconds
+     */
+    @Builder.Default
+    private long latencyMillis = 0;
+
+    /**
+     * Random extra delay added to each outgoing packet, in milliseconds
+     */
+    @Builder.Default
+    private long jitterMillis = 0;
+
+    /**
+     * Probability (0.0 - 1.0) that an outgoing packet is dropped
+     */
+    @Builder.Default
+    private double lossRate = 0.0;
+
+    /**
+     * Apply loss to CMD_DATA packets only, so command replies always arrive
+     */
+    @Builder.Default
+    private boolean dataLossOnly = false;
+
+    /**
+     * Probability (0.0 - 1.0) that an outgoing packet is held back and overtaken by later ones
+     */
+    @Builder.Default
+    private double reorderRate = 0.0;
+
+    /**
+     * Extra delay applied to reordered packets, in milliseconds
+     */
+    @Builder.Default
+    private long reorderDelayMillis = 20;
+
+    /**
+     * Seed for the loss/jitter/reorder random source
+     */
+    @Builder.Default
+    private long seed = 42;
+
+    /**
+     * Device serial number reported for ~SerialNumber
+     */
+    @Builder.Default
+    private String serialNumber = "SIM0000000001";
+
+    /**
+     * Device clock at simulator start
+     */
+    @Builder.Default
+    private LocalDateTime deviceTime = LocalDateTime.of(2024, 1, 1, 8, 0, 0);
+}
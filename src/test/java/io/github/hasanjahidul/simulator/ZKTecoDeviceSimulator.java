@@ -0,0 +1,754 @@
+package io.github.hasanjahidul.simulator;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import io.github.hasanjahidul.model.FingerTemplate;
+import io.github.hasanjahidul.model.UserInfo;
+import io.github.hasanjahidul.protocol.TransportType;
+import io.github.hasanjahidul.protocol.ZKTecoCommand;
+import io.github.hasanjahidul.util.PacketUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process ZKTeco device speaking the UDP (or framed TCP) protocol on localhost.
+ * Serves synthetic attendance and user datasets through the
+ * CMD_PREPARE_DATA/CMD_DATA flow and the CMD_PREPARE_BUFFER/CMD_READ_BUFFER
+ * buffered flow, pushes CMD_REG_EVENT attendance events to registered
+ * sessions, with configurable latency, jitter, loss
+ * and reordering, so the client can be exercised without hardware.
+ * All simulators share one scheduler thread for delayed packets, so hundreds
+ * of instances can run in one JVM.
+ */
+@Slf4j
+public class ZKTecoDeviceSimulator implements AutoCloseable {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "zkteco-sim-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final byte[] TCP_MAGIC = {0x50, 0x50, (byte) 0x82, 0x7d};
+
+    /** Size of one attendance record on the wire */
+    public static final int ATTENDANCE_RECORD_SIZE = 40;
+    /** Size of one user record on the wire */
+    public static final int USER_RECORD_SIZE = 72;
+
+    private final SimulatorConfig config;
+    private final DatagramSocket socket;
+    private final ServerSocket serverSocket;
+    private final Thread receiver;
+    private final Random random;
+    private final List<AttendanceRecord> attendance = Collections.synchronizedList(new ArrayList<>());
+    private final List<UserInfo> users = Collections.synchronizedList(new ArrayList<>());
+    private final List<FingerTemplate> templates = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Integer, byte[]> buffers = new ConcurrentHashMap<>();
+    private final Map<Integer, ByteArrayOutputStream> uploads = new ConcurrentHashMap<>();
+    private final Map<Integer, Client> eventClients = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSessionId = new AtomicInteger(1);
+    private final AtomicLong packetsReceived = new AtomicLong();
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final AtomicLong packetsDropped = new AtomicLong();
+    private volatile LocalDateTime deviceTime;
+
+    /**
+     * Start a simulator with the given configuration
+     *
+     * @param config Simulator configuration
+     * @throws IOException if the socket cannot be bound
+     */
+    public ZKTecoDeviceSimulator(SimulatorConfig config) throws IOException {
+        this.config = config;
+        this.random = new Random(config.getSeed());
+        this.deviceTime = config.getDeviceTime();
+        generateData();
+        if (config.getTransport() == TransportType.TCP) {
+            this.socket = null;
+            this.serverSocket = new ServerSocket(config.getPort(), 50, InetAddress.getLoopbackAddress());
+            this.receiver = new Thread(this::acceptLoop, "zkteco-sim-" + serverSocket.getLocalPort());
+        } else {
+            this.serverSocket = null;
+            this.socket = new DatagramSocket(config.getPort(), InetAddress.getLoopbackAddress());
+            this.receiver = new Thread(this::receiveLoop, "zkteco-sim-" + socket.getLocalPort());
+        }
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    /**
+     * Get the bound port
+     *
+     * @return Local UDP or TCP port
+     */
+    public int getPort() {
+        return socket != null ? socket.getLocalPort() : serverSocket.getLocalPort();
+    }
+
+    /**
+     * Get the attendance records currently stored on the simulated device
+     *
+     * @return Copy of the attendance log
+     */
+    public List<AttendanceRecord> getAttendance() {
+        synchronized (attendance) {
+            return new ArrayList<>(attendance);
+        }
+    }
+
+    /**
+     * Append a punch to the simulated attendance log and push it to sessions
+     * registered for attendance events
+     *
+     * @param record Attendance record
+     */
+    public void addAttendance(AttendanceRecord record) {
+        attendance.add(record);
+        eventClients.forEach((sessionId, client) ->
+                reply(ZKTecoCommand.CMD_REG_EVENT, ZKTecoCommand.EF_ATTLOG, 1, encodeEvent(record), client));
+    }
+
+    /**
+     * Rename a user in place, as an edit on the terminal keypad would,
+     * without changing the user count
+     *
+     * @param uid  UID of the user
+     * @param name New name
+     */
+    public void renameUser(int uid, String name) {
+        synchronized (users) {
+            users.stream().filter(user -> user.getUid() == uid).forEach(user -> user.setName(name));
+        }
+    }
+
+    /**
+     * Get number of sessions registered for attendance events
+     *
+     * @return Registered session count
+     */
+    public int getEventRegistrations() {
+        return eventClients.size();
+    }
+
+    /**
+     * Get the users currently stored on the simulated device
+     *
+     * @return Copy of the user table
+     */
+    public List<UserInfo> getUsers() {
+        synchronized (users) {
+            return new ArrayList<>(users);
+        }
+    }
+
+    /**
+     * Get the fingerprint templates stored on the simulated device
+     *
+     * @return Copy of the template table
+     */
+    public List<FingerTemplate> getTemplates() {
+        synchronized (templates) {
+            return new ArrayList<>(templates);
+        }
+    }
+
+    /**
+     * Get number of packets received from clients
+     *
+     * @return Packet count
+     */
+    public long getPacketsReceived() {
+        return packetsReceived.get();
+    }
+
+    /**
+     * Get number of packets sent to clients
+     *
+     * @return Packet count
+     */
+    public long getPacketsSent() {
+        return packetsSent.get();
+    }
+
+    /**
+     * Get number of outgoing packets dropped by loss simulation
+     *
+     * @return Packet count
+     */
+    public long getPacketsDropped() {
+        return packetsDropped.get();
+    }
+
+    private void generateData() {
+        LocalDateTime base = config.getDeviceTime().minusDays(30);
+        for (int i = 0; i < config.getUserCount(); i++) {
+            users.add(UserInfo.builder()
+                    .uid(i + 1)
+                    .userId(String.valueOf(1000 + i))
+                    .name("User " + (i + 1))
+                    .password("")
+                    .cardno(0L)
+                    .role(ZKTecoCommand.LEVEL_USER)
+                    .build());
+        }
+        // Separate generator so the loss pattern of a seed stays the same
+        Random templateBytes = new Random(config.getSeed());
+        for (int i = 0; i < config.getUserCount(); i++) {
+            // Two fingers per user with varying template sizes
+            for (int finger = 0; finger < 2; finger++) {
+                byte[] template = new byte[400 + (i * 37 + finger * 101) % 900];
+                templateBytes.nextBytes(template);
+                templates.add(FingerTemplate.builder()
+                        .uid(i + 1)
+                        .fingerIndex(finger * 5)
+                        .flag(1)
+                        .template(template)
+                        .build());
+            }
+        }
+        int userCount = Math.max(1, config.getUserCount());
+        for (int i = 0; i < config.getAttendanceCount(); i++) {
+            attendance.add(AttendanceRecord.builder()
+                    .uid((long) (i % userCount) + 1)
+                    .userId(String.valueOf(1000 + i % userCount))
+                    .state(1)
+                    .timestamp(base.plusMinutes(i))
+                    .type(i % 2)
+                    .build());
+        }
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[65536];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                socket.receive(request);
+                packetsReceived.incrementAndGet();
+                byte[] packet = new byte[request.getLength()];
+                System.arraycopy(buffer, 0, packet, 0, packet.length);
+                int[] header = PacketUtil.parseHeader(packet);
+                if (header != null) {
+                    SocketAddress source = request.getSocketAddress();
+                    handle(header, PacketUtil.extractData(packet), new Client() {
+                        @Override
+                        public void transmit(byte[] reply) throws IOException {
+                            socket.send(new DatagramPacket(reply, reply.length, source));
+                        }
+
+                        @Override
+                        public boolean isReliable() {
+                            return false;
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Simulator receive error: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Simulator failed to handle packet: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                Thread thread = new Thread(() -> serveConnection(connection), "zkteco-sim-tcp-" + connection.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Simulator accept error: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve one TCP connection; frames are 50 50 82 7d + little-endian length + packet
+     */
+    private void serveConnection(Socket connection) {
+        try (connection) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            OutputStream out = connection.getOutputStream();
+            Client client = new Client() {
+                @Override
+                public void transmit(byte[] reply) throws IOException {
+                    byte[] frame = new byte[8 + reply.length];
+                    System.arraycopy(TCP_MAGIC, 0, frame, 0, 4);
+                    System.arraycopy(PacketUtil.intToBytes(reply.length, 4), 0, frame, 4, 4);
+                    System.arraycopy(reply, 0, frame, 8, reply.length);
+                    synchronized (out) {
+                        out.write(frame);
+                        out.flush();
+                    }
+                }
+
+                @Override
+                public boolean isReliable() {
+                    return true;
+                }
+            };
+            byte[] frameHeader = new byte[8];
+            while (!serverSocket.isClosed()) {
+                in.readFully(frameHeader);
+                byte[] packet = new byte[PacketUtil.bytesToInt(frameHeader, 4, 4)];
+                in.readFully(packet);
+                packetsReceived.incrementAndGet();
+                int[] header = PacketUtil.parseHeader(packet);
+                if (header != null) {
+                    handle(header, PacketUtil.extractData(packet), client);
+                }
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        }
+    }
+
+    /**
+     * Handle one command. Replies echo the request reply ID, as real devices do.
+     */
+    private void handle(int[] header, byte[] payload, Client client) {
+        int command = header[0];
+        int sessionId = header[2];
+        int replyId = header[3];
+
+        switch (command) {
+            case ZKTecoCommand.CMD_CONNECT:
+                reply(ZKTecoCommand.CMD_ACK_OK, nextSessionId.getAndIncrement(), replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_GET_TIME:
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId,
+                        PacketUtil.intToBytes(encodeTime(deviceTime), 4), client);
+                break;
+            case ZKTecoCommand.CMD_SET_TIME:
+                deviceTime = decodeTime(PacketUtil.bytesToInt(payload, 0, 4));
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_GET_VERSION:
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, cString("Ver 6.60 Sim"), client);
+                break;
+            case ZKTecoCommand.CMD_DEVICE:
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, cString(option(asString(payload))), client);
+                break;
+            case ZKTecoCommand.CMD_GET_FREE_SIZES:
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, encodeSizes(), client);
+                break;
+            case ZKTecoCommand.CMD_ATT_LOG_RRQ:
+                sendDataset(encodeAttendance(), sessionId, replyId, client);
+                break;
+            case ZKTecoCommand.CMD_USER_TEMP_RRQ:
+                if (payload.length > 0 && payload[0] == ZKTecoCommand.FCT_USER) {
+                    sendDataset(encodeUsers(), sessionId, replyId, client);
+                } else {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_DB_RRQ:
+                if (payload.length > 0 && payload[0] == ZKTecoCommand.FCT_FINGERTMP) {
+                    sendDataset(encodeTemplates(), sessionId, replyId, client);
+                } else {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_PREPARE_BUFFER:
+                byte[] staged = stage(PacketUtil.bytesToInt(payload, 1, 2), PacketUtil.bytesToInt(payload, 3, 4));
+                if (staged == null) {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                } else {
+                    buffers.put(sessionId, staged);
+                    byte[] info = new byte[5];
+                    System.arraycopy(PacketUtil.intToBytes(staged.length, 4), 0, info, 1, 4);
+                    reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, info, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_READ_BUFFER:
+                byte[] buffer = buffers.get(sessionId);
+                int start = PacketUtil.bytesToInt(payload, 0, 4);
+                int size = PacketUtil.bytesToInt(payload, 4, 4);
+                if (buffer == null || start < 0 || start + size > buffer.length) {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                } else {
+                    byte[] slice = new byte[size];
+                    System.arraycopy(buffer, start, slice, 0, size);
+                    sendDataset(slice, sessionId, replyId, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_FREE_DATA:
+                buffers.remove(sessionId);
+                uploads.remove(sessionId);
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_PREPARE_DATA:
+                uploads.put(sessionId, new ByteArrayOutputStream(PacketUtil.bytesToInt(payload, 0, 4)));
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_DATA:
+                ByteArrayOutputStream upload = uploads.get(sessionId);
+                if (upload == null) {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                } else {
+                    upload.write(payload, 0, payload.length);
+                    reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_SAVE_USERTEMPS:
+                ByteArrayOutputStream saved = uploads.remove(sessionId);
+                if (saved == null) {
+                    reply(ZKTecoCommand.CMD_ACK_ERROR, sessionId, replyId, null, client);
+                } else {
+                    storeUserTable(saved.toByteArray());
+                    reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                }
+                break;
+            case ZKTecoCommand.CMD_SET_USER:
+                storeUser(payload);
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_DELETE_USER:
+                int uid = PacketUtil.bytesToInt(payload, 0, 2);
+                users.removeIf(user -> user.getUid() == uid);
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_CLEAR_DATA:
+                users.clear();
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_REG_EVENT:
+                if ((PacketUtil.bytesToInt(payload, 0, 4) & ZKTecoCommand.EF_ATTLOG) != 0) {
+                    eventClients.put(sessionId, client);
+                } else {
+                    eventClients.remove(sessionId);
+                }
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_EXIT:
+                eventClients.remove(sessionId);
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            case ZKTecoCommand.CMD_CLEAR_ATT_LOG:
+                attendance.clear();
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+            default:
+                // Enable/disable and other control commands are simply acknowledged
+                reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client);
+                break;
+        }
+    }
+
+    private byte[] encodeSizes() {
+        // Twenty counters followed by three face counters, as real devices report them
+        ByteBuffer sizes = ByteBuffer.allocate(92).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt(4 * 4, getUsers().size());
+        sizes.putInt(8 * 4, getAttendance().size());
+        sizes.putInt(14 * 4, 3000);
+        sizes.putInt(15 * 4, 3000);
+        sizes.putInt(16 * 4, 100_000);
+        sizes.putInt(88, 500);
+        return sizes.array();
+    }
+
+    private String option(String key) {
+        switch (key) {
+            case "~SerialNumber":
+                return key + "=" + config.getSerialNumber();
+            case "~DeviceName":
+                return key + "=ZK Simulator";
+            case "~Platform":
+                return key + "=ZLM60_TFT";
+            case "~OS":
+                return key + "=1";
+            default:
+                return key + "=0";
+        }
+    }
+
+    /**
+     * Build the dataset a read command would return, for buffered reads
+     */
+    private byte[] stage(int command, int fct) {
+        if (command == ZKTecoCommand.CMD_ATT_LOG_RRQ) {
+            return encodeAttendance();
+        }
+        if (command == ZKTecoCommand.CMD_USER_TEMP_RRQ && fct == ZKTecoCommand.FCT_USER) {
+            return encodeUsers();
+        }
+        if (command == ZKTecoCommand.CMD_DB_RRQ && fct == ZKTecoCommand.FCT_FINGERTMP) {
+            return encodeTemplates();
+        }
+        return null;
+    }
+
+    /**
+     * Send a dataset the way the device does after a read request:
+     * CMD_PREPARE_DATA with the size, the payload in CMD_DATA chunks, then CMD_ACK_OK.
+     */
+    private void sendDataset(byte[] data, int sessionId, int replyId, Client client) {
+        reply(ZKTecoCommand.CMD_PREPARE_DATA, sessionId, replyId, PacketUtil.intToBytes(data.length, 4), client);
+        int chunkSize = config.getChunkSize();
+        long pacing = 0;
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, data.length - offset);
+            byte[] chunk = new byte[length];
+            System.arraycopy(data, offset, chunk, 0, length);
+            pacing += config.getDataPacketIntervalMillis();
+            reply(ZKTecoCommand.CMD_DATA, sessionId, replyId, chunk, client, pacing);
+        }
+        reply(ZKTecoCommand.CMD_ACK_OK, sessionId, replyId, null, client, pacing);
+    }
+
+    private byte[] encodeAttendance() {
+        List<AttendanceRecord> records = getAttendance();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + records.size() * ATTENDANCE_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(records.size() * ATTENDANCE_RECORD_SIZE);
+        for (AttendanceRecord record : records) {
+            int start = buffer.position();
+            buffer.putShort(record.getUid().shortValue());
+            putString(buffer, record.getUserId(), 24);
+            buffer.put(record.getState().byteValue());
+            buffer.putInt(encodeTime(record.getTimestamp()));
+            buffer.put(record.getType().byteValue());
+            buffer.position(start + ATTENDANCE_RECORD_SIZE);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encode a live attendance event in the 52-byte layout: user ID (24), state, type,
+     * timestamp as year-2000/month/day/hour/minute/second bytes, then 20 reserved bytes
+     */
+    private static byte[] encodeEvent(AttendanceRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(52);
+        putString(buffer, record.getUserId(), 24);
+        buffer.put(record.getState().byteValue());
+        buffer.put(record.getType().byteValue());
+        LocalDateTime time = record.getTimestamp();
+        buffer.put((byte) (time.getYear() - 2000));
+        buffer.put((byte) time.getMonthValue());
+        buffer.put((byte) time.getDayOfMonth());
+        buffer.put((byte) time.getHour());
+        buffer.put((byte) time.getMinute());
+        buffer.put((byte) time.getSecond());
+        return buffer.array();
+    }
+
+    private byte[] encodeUsers() {
+        List<UserInfo> table = getUsers();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + table.size() * USER_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(table.size() * USER_RECORD_SIZE);
+        for (UserInfo user : table) {
+            int start = buffer.position();
+            buffer.putShort(user.getUid().shortValue());
+            buffer.put(user.getRole().byteValue());
+            putString(buffer, user.getPassword(), 8);
+            putString(buffer, user.getName(), 24);
+            buffer.putInt(user.getCardno() == null ? 0 : user.getCardno().intValue());
+            buffer.put((byte) 0);
+            buffer.put((byte) 1); // group
+            buffer.position(start + 48);
+            putString(buffer, user.getUserId(), 24);
+            buffer.position(start + USER_RECORD_SIZE);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encode the template table: dataset length, then per template the record
+     * size, uid, finger index and flag (6 bytes) followed by the template
+     */
+    private byte[] encodeTemplates() {
+        List<FingerTemplate> table = getTemplates();
+        int length = 0;
+        for (FingerTemplate template : table) {
+            length += 6 + template.getTemplate().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(length);
+        for (FingerTemplate template : table) {
+            buffer.putShort((short) (6 + template.getTemplate().length));
+            buffer.putShort((short) template.getUid());
+            buffer.put((byte) template.getFingerIndex());
+            buffer.put((byte) template.getFlag());
+            buffer.put(template.getTemplate());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a CMD_SET_USER payload (same 72-byte layout as user records, shifted by one byte)
+     */
+    private void storeUser(byte[] payload) {
+        if (payload.length < 57) {
+            return;
+        }
+        int uid = PacketUtil.bytesToInt(payload, 0, 2);
+        UserInfo user = UserInfo.builder()
+                .uid(uid)
+                .role(payload[2] & 0xFF)
+                .password(asString(payload, 3, 8))
+                .name(asString(payload, 11, 24))
+                .cardno(PacketUtil.bytesToInt(payload, 35, 4) & 0xFFFFFFFFL)
+                .userId(asString(payload, 48, 9))
+                .build();
+        synchronized (users) {
+            users.removeIf(existing -> existing.getUid() == uid);
+            users.add(user);
+        }
+    }
+
+    private void storeUserTable(byte[] table) {
+        // Header of user table, template index and template data lengths, then 73-byte user records
+        int length = PacketUtil.bytesToInt(table, 0, 4);
+        for (int offset = 12; offset + 73 <= 12 + length; offset += 73) {
+            storeUser(Arrays.copyOfRange(table, offset + 1, offset + 73));
+        }
+    }
+
+    private void reply(int command, int sessionId, int replyId, byte[] data, Client client) {
+        reply(command, sessionId, replyId, data, client, 0);
+    }
+
+    private void reply(int command, int sessionId, int replyId, byte[] data, Client client, long pacing) {
+        // createPacket increments the reply ID, so pass the previous one to echo the request's
+        byte[] packet = PacketUtil.createPacket(command, sessionId, replyId - 1, data);
+        long delay = config.getLatencyMillis() + pacing;
+        // Loss, jitter and reordering only apply to UDP; TCP delivers in order
+        synchronized (random) {
+            if (client.isReliable()) {
+                schedule(packet, client, delay);
+                return;
+            }
+            boolean lossy = !config.isDataLossOnly() || command == ZKTecoCommand.CMD_DATA;
+            if (lossy && config.getLossRate() > 0 && random.nextDouble() < config.getLossRate()) {
+                packetsDropped.incrementAndGet();
+                return;
+            }
+            if (config.getJitterMillis() > 0) {
+                delay += (long) (random.nextDouble() * config.getJitterMillis());
+            }
+            if (config.getReorderRate() > 0 && random.nextDouble() < config.getReorderRate()) {
+                delay += config.getReorderDelayMillis();
+            }
+        }
+        schedule(packet, client, delay);
+    }
+
+    private void schedule(byte[] packet, Client client, long delay) {
+        if (delay <= 0) {
+            transmit(packet, client);
+        } else {
+            SCHEDULER.schedule(() -> transmit(packet, client), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void transmit(byte[] packet, Client client) {
+        try {
+            client.transmit(packet);
+            packetsSent.incrementAndGet();
+        } catch (IOException e) {
+            log.debug("Simulator send error: {}", e.getMessage());
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value, int width) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.put(bytes, 0, Math.min(bytes.length, width));
+        buffer.position(start + width);
+    }
+
+    private static byte[] cString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, result, 0, bytes.length);
+        return result;
+    }
+
+    private static String asString(byte[] data) {
+        return asString(data, 0, data.length);
+    }
+
+    private static String asString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && end < data.length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, StandardCharsets.UTF_8).trim();
+    }
+
+    private static int encodeTime(LocalDateTime time) {
+        return ((time.getYear() % 100 * 12 * 31 + (time.getMonthValue() - 1) * 31 + time.getDayOfMonth() - 1)
+                * (24 * 60 * 60)) + ((time.getHour() * 60 + time.getMinute()) * 60) + time.getSecond();
+    }
+
+    private static LocalDateTime decodeTime(int t) {
+        int second = t % 60;
+        t /= 60;
+        int minute = t % 60;
+        t /= 60;
+        int hour = t % 24;
+        t /= 24;
+        int day = t % 31 + 1;
+        t /= 31;
+        int month = t % 12 + 1;
+        t /= 12;
+        return LocalDateTime.of(t + 2000, month, day, hour, minute, second);
+    }
+
+    /**
+     * Destination of replies: a UDP peer or a TCP connection
+     */
+    private interface Client {
+
+        void transmit(byte[] packet) throws IOException;
+
+        boolean isReliable();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            socket.close();
+        }
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.debug("Simulator close error: {}", e.getMessage());
+            }
+        }
+        eventClients.clear();
+        receiver.interrupt();
+    }
+}
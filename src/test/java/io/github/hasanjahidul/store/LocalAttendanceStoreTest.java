@@ -0,0 +1,77 @@
+package io.github.hasanjahidul.store;
+
+import io.github.hasanjahidul.model.AttendanceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalAttendanceStoreTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 4, 0, 0);
+
+    @Test
+    void testQueriesByUserAndRange(@TempDir Path directory) {
+        LocalAttendanceStore store = new LocalAttendanceStore(directory);
+        store.append("DEV-A", List.of(punch(1, "100", DAY.plusHours(17)), punch(2, "100", DAY.plusHours(8)),
+                punch(3, "200", DAY.plusHours(9)), punch(4, "100", DAY.plusDays(1).plusHours(8))));
+        store.append("DEV-B", List.of(punch(1, "100", DAY.plusHours(12))));
+
+        List<AttendanceRecord> user = store.findByUser("100", DAY, DAY.plusDays(1));
+        assertEquals(List.of(2L, 1L, 1L), user.stream().map(AttendanceRecord::getUid).toList());
+        assertEquals(List.of(DAY.plusHours(8), DAY.plusHours(12), DAY.plusHours(17)),
+                user.stream().map(AttendanceRecord::getTimestamp).toList());
+
+        assertEquals(2, store.findByUser("DEV-A", "100", DAY, DAY.plusDays(1)).size());
+        assertEquals(4, store.findByRange(DAY, DAY.plusDays(1)).size());
+        assertEquals(3, store.findByRange(DAY.plusHours(9), DAY.plusDays(1).plusHours(8)).size());
+        assertEquals(1, store.findByRange("DEV-B", DAY, DAY.plusDays(2)).size());
+        assertTrue(store.findByUser("300", DAY, DAY.plusDays(1)).isEmpty());
+        assertEquals(Set.of("DEV-A", "DEV-B"), store.getSerialNumbers());
+    }
+
+    @Test
+    void testReloadsAndCutsTornTail(@TempDir Path directory) throws Exception {
+        LocalAttendanceStore store = new LocalAttendanceStore(directory);
+        AttendanceRecord punch = punch(7, "100", DAY.plusHours(8));
+        store.append("DEV-A", List.of(punch, AttendanceRecord.builder().userId("100").build()));
+        Path file = directory.resolve("DEV-A.attendance.log");
+        Files.write(file, new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        LocalAttendanceStore reopened = new LocalAttendanceStore(directory);
+
+        assertEquals(1, reopened.size("DEV-A"));
+        assertEquals(List.of(punch), reopened.findByUser("100", DAY, DAY.plusDays(1)));
+        reopened.append("DEV-A", List.of(punch(8, "100", DAY.plusHours(17))));
+        assertEquals(2, new LocalAttendanceStore(directory).size("DEV-A"));
+    }
+
+    @Test
+    void testSkipsRecordsAlreadyStored(@TempDir Path directory) {
+        LocalAttendanceStore store = new LocalAttendanceStore(directory);
+        List<AttendanceRecord> log = List.of(punch(1, "100", DAY.plusHours(8)), punch(2, "200", DAY.plusHours(9)));
+        assertEquals(2, store.append("DEV-A", log));
+
+        // A full resync delivers the whole log again, plus one new punch
+        List<AttendanceRecord> resync = List.of(log.get(0), log.get(1), punch(1, "100", DAY.plusHours(17)));
+        assertEquals(1, store.append("DEV-A", resync));
+        assertEquals(0, store.append("DEV-A", log));
+
+        assertEquals(3, store.size("DEV-A"));
+        assertEquals(3, store.findByRange(DAY, DAY.plusDays(1)).size());
+        assertEquals(3, new LocalAttendanceStore(directory).size("DEV-A"));
+        // The same punch on another device is a different record
+        assertEquals(2, store.append("DEV-B", log));
+    }
+
+    private static AttendanceRecord punch(long uid, String userId, LocalDateTime timestamp) {
+        return AttendanceRecord.builder().uid(uid).userId(userId).state(1).type(0).timestamp(timestamp).build();
+    }
+}
@@ -2,6 +2,8 @@ package io.github.hasanjahidul.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PacketUtilTest {
@@ -73,4 +75,33 @@ class PacketUtilTest {
         assertEquals((byte) 0xFF, bytes[0]);
         assertEquals(0x00, bytes[1]);
     }
+
+    @Test
+    void testEncodePacketMatchesCreatePacket() {
+        byte[] data = new byte[]{1, 2, 3, 4, 5};
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.position(3);
+
+        int replyId = PacketUtil.encodePacket(buffer, 1000, 7, 456, data, 0, data.length);
+
+        byte[] encoded = new byte[13];
+        buffer.flip().position(3);
+        buffer.get(encoded);
+        assertArrayEquals(PacketUtil.createPacket(1000, 7, 456, data), encoded);
+        assertEquals(457, replyId);
+    }
+
+    @Test
+    void testPacketHeaderView() {
+        byte[] packet = PacketUtil.createPacket(2000, 123, 10, new byte[]{0x78, 0x56, 0x34, 0x12});
+        PacketHeader header = new PacketHeader().wrap(packet, packet.length);
+
+        assertTrue(header.isValid());
+        assertEquals(2000, header.getCommand());
+        assertEquals(123, header.getSessionId());
+        assertEquals(11, header.getReplyId());
+        assertEquals(4, header.getPayloadLength());
+        assertEquals(0x12345678, header.getPayloadInt(0, 4));
+        assertFalse(header.wrap(packet, 4).isValid());
+    }
 }
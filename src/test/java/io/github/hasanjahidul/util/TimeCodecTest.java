@@ -0,0 +1,52 @@
+package io.github.hasanjahidul.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeCodecTest {
+
+    @Test
+    void testEpochSecondsMatchJavaTime() {
+        // A zone with daylight saving, so irregular days are covered too
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        TimeCodec codec = TimeCodec.of(zone);
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2015, 1, 1, 0, 0);
+        for (int i = 0; i < 100_000; i++) {
+            LocalDateTime time = base.plusSeconds(random.nextInt(20 * 365 * 86_400));
+            int encoded = TimeCodec.encode(time);
+
+            assertEquals(time, TimeCodec.toLocalDateTime(encoded));
+            assertEquals(time.atZone(zone).toEpochSecond(), codec.toEpochSecond(encoded), time.toString());
+        }
+    }
+
+    @Test
+    void testDaylightSavingDays() {
+        TimeCodec codec = TimeCodec.of(ZoneId.of("Europe/Berlin"));
+        LocalDateTime afterSpringForward = LocalDateTime.of(2024, 3, 31, 12, 0);
+        LocalDateTime afterFallBack = LocalDateTime.of(2024, 10, 27, 12, 0);
+
+        assertEquals(afterSpringForward.atZone(codec.getZone()).toInstant(),
+                codec.toInstant(TimeCodec.encode(afterSpringForward)));
+        assertEquals(afterFallBack.atZone(codec.getZone()).toInstant(),
+                codec.toInstant(TimeCodec.encode(afterFallBack)));
+    }
+
+    @Test
+    void testInvalidEncodings() {
+        // February 30th: month index 1, day index 29
+        int february30 = ((24 * 12 + 1) * 31 + 29) * 86_400;
+        TimeCodec codec = TimeCodec.of(ZoneId.of("UTC"));
+
+        assertFalse(TimeCodec.isValid(february30));
+        assertNull(TimeCodec.toLocalDateTime(february30));
+        assertEquals(TimeCodec.INVALID, codec.toEpochSecond(february30));
+        assertNull(codec.toInstant(-1));
+    }
+}
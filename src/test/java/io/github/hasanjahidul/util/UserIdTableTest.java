@@ -0,0 +1,50 @@
+package io.github.hasanjahidul.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for UserIdTable
+ */
+class UserIdTableTest {
+
+    @Test
+    void testInternReturnsSharedInstance() {
+        UserIdTable table = new UserIdTable();
+        byte[] data = {'x', '1', '2', '3', 0, 'g', 'a', 'r', 'b', '1', '2', '3', 0, 0, 0, 0, 0, 0};
+
+        String first = table.intern(data, 1, 9);
+        String second = table.intern(data, 9, 9);
+
+        assertEquals("123", first);
+        assertSame(first, second);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testFullWidthAndEmptyIds() {
+        UserIdTable table = new UserIdTable();
+
+        assertEquals("123456789", table.intern("123456789extra".getBytes(), 0, 9));
+        assertEquals("", table.intern(new byte[9], 0, 9));
+        assertEquals("42", table.intern(" 42\0".getBytes(), 0, 4));
+    }
+
+    @Test
+    void testGrowsAndStopsCachingAtLimit() {
+        UserIdTable table = new UserIdTable(1000);
+        for (int i = 0; i < 5000; i++) {
+            byte[] id = String.valueOf(i).getBytes();
+            assertEquals(String.valueOf(i), table.intern(id, 0, id.length));
+        }
+        assertEquals(1000, table.size());
+
+        byte[] cached = "999".getBytes();
+        assertSame(table.intern(cached, 0, 3), table.intern(cached, 0, 3));
+        byte[] uncached = "4999".getBytes();
+        assertNotSame(table.intern(uncached, 0, 4), table.intern(uncached, 0, 4));
+    }
+}